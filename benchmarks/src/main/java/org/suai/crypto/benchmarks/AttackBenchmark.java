@@ -0,0 +1,70 @@
+package org.suai.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.suai.crypto.analysis.DifferentialCryptAnalyzer;
+import org.suai.crypto.analysis.LinearCryptAnalyzer;
+import org.suai.crypto.analysis.Trail;
+import org.suai.crypto.data.PairSource;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.BlockCipher;
+import org.suai.crypto.spn.SBoxProvider;
+import org.suai.crypto.util.LinearApproximation;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttackBenchmark {
+
+    private static final String KEY = "010011101";
+
+    @Param({"sbox-7.txt", "sbox-9.txt"})
+    public String sBoxFile;
+
+    @Param({"100", "1000", "10000"})
+    public int numberOfPairs;
+
+    private LinearCryptAnalyzer linearAnalyzer;
+    private DifferentialCryptAnalyzer differentialAnalyzer;
+    private List<LinearApproximation> approximations;
+    private PairSource pairs;
+    private List<String> inputDifferences;
+    private List<Trail> characteristics;
+
+    @Setup
+    public void setUp() throws IOException {
+        BlockCipher spn = new BitPackedSubstitutionPermutationNetwork(SBoxProvider.readFromResource(sBoxFile, 3));
+        linearAnalyzer = new LinearCryptAnalyzer(spn);
+        differentialAnalyzer = new DifferentialCryptAnalyzer(spn);
+        approximations = linearAnalyzer.findBestApproximations(8);
+        PlaintextGenerator generator = new PlaintextGenerator(spn.getBlockSize(), 1, PlaintextGenerator.Mode.RANDOM);
+        pairs = generator.knownPairs(PlaintextGenerator.encryption(spn, Long.parseUnsignedLong(KEY, 2)), numberOfPairs);
+        characteristics = differentialAnalyzer.findBestCharacteristics(spn.getNumberOfRounds() - 1, 4);
+        inputDifferences = Arrays.asList("000110000", "000000110", "000101000", "000000101");
+    }
+
+    @Benchmark
+    public List<LinearApproximation> getKeyEquationsFromPairSource() {
+        return linearAnalyzer.getKeyEquations(approximations, pairs);
+    }
+
+    @Benchmark
+    public Map<Integer, Set<String>> analyzeInputDifferences() {
+        return differentialAnalyzer.analyzeInputDifferences(inputDifferences, numberOfPairs, KEY);
+    }
+
+    @Benchmark
+    public long[][] countSubKeys() {
+        return differentialAnalyzer.countSubKeys(characteristics, numberOfPairs, KEY, 1);
+    }
+}
@@ -0,0 +1,68 @@
+package org.suai.crypto.benchmarks;
+
+import org.apache.commons.collections4.BidiMap;
+import org.openjdk.jmh.annotations.*;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SBoxProvider;
+import org.suai.crypto.spn.SubstitutionPermutationNetwork;
+import org.suai.crypto.util.BinaryString;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CipherBenchmark {
+
+    @Param({"sbox-7.txt", "sbox-9.txt"})
+    public String sBoxFile;
+
+    private SubstitutionPermutationNetwork spn;
+    private BitPackedSubstitutionPermutationNetwork packed;
+    private String plaintext;
+    private String ciphertext;
+    private String key;
+    private int packedKey;
+    private int block;
+
+    @Setup
+    public void setUp() throws IOException {
+        BidiMap<String, String> sBox = SBoxProvider.readFromResource(sBoxFile, 3);
+        spn = new SubstitutionPermutationNetwork(sBox);
+        packed = new BitPackedSubstitutionPermutationNetwork(sBox);
+        plaintext = "101001111";
+        key = "110101001";
+        ciphertext = spn.encrypt(plaintext, key);
+        packedKey = Integer.parseInt(key, 2);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return spn.encrypt(plaintext, key);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return spn.decrypt(ciphertext, key);
+    }
+
+    @Benchmark
+    public int encryptBitPacked() {
+        block = packed.encrypt(block & 0x1FF, packedKey);
+        return block;
+    }
+
+    @Benchmark
+    public String xor() {
+        return BinaryString.xor(plaintext, key);
+    }
+
+    @Benchmark
+    public String permute() {
+        return BinaryString.permute(plaintext, spn.getBitPermutation());
+    }
+}
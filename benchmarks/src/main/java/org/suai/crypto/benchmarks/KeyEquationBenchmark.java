@@ -0,0 +1,51 @@
+package org.suai.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.suai.crypto.analysis.LinearCryptAnalyzer;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.BlockCipher;
+import org.suai.crypto.spn.SBoxProvider;
+import org.suai.crypto.util.LinearApproximation;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The String map holds DISTINCT plaintexts, so the 9-bit block allows at most 512 pairs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyEquationBenchmark {
+
+    private static final String KEY = "010011101";
+
+    @Param({"sbox-7.txt", "sbox-9.txt"})
+    public String sBoxFile;
+
+    @Param({"100", "500"})
+    public int numberOfPairs;
+
+    private LinearCryptAnalyzer linearAnalyzer;
+    private List<LinearApproximation> approximations;
+    private Map<String, String> pairMap;
+
+    @Setup
+    public void setUp() throws IOException {
+        BlockCipher spn = new BitPackedSubstitutionPermutationNetwork(SBoxProvider.readFromResource(sBoxFile, 3));
+        linearAnalyzer = new LinearCryptAnalyzer(spn);
+        approximations = linearAnalyzer.findBestApproximations(8);
+        pairMap = linearAnalyzer.generateCiphertextAndPlaintext(numberOfPairs, KEY, 1);
+        if (pairMap.size() != numberOfPairs) {
+            throw new IllegalStateException("Only " + pairMap.size() + " distinct pairs for " + numberOfPairs);
+        }
+    }
+
+    @Benchmark
+    public List<LinearApproximation> getKeyEquations() {
+        return linearAnalyzer.getKeyEquations(approximations, pairMap);
+    }
+}
@@ -0,0 +1,73 @@
+package org.suai.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.suai.crypto.analysis.DifferenceDistributionTable;
+import org.suai.crypto.analysis.DifferentialCryptAnalyzer;
+import org.suai.crypto.analysis.LinearApproximationTableBuilder;
+import org.suai.crypto.analysis.LinearCryptAnalyzer;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.BlockCipher;
+import org.suai.crypto.spn.SBoxProvider;
+import org.suai.crypto.util.LinearApproximation;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+
+    @Param({"sbox-7.txt", "sbox-9.txt"})
+    public String sBoxFile;
+
+    private BlockCipher spn;
+    private LinearCryptAnalyzer linearAnalyzer;
+    private int[][] approximationTable;
+    private int[] sBox;
+
+    @Setup
+    public void setUp() throws IOException {
+        spn = new BitPackedSubstitutionPermutationNetwork(SBoxProvider.readFromResource(sBoxFile, 3));
+        linearAnalyzer = new LinearCryptAnalyzer(spn);
+        sBox = SBoxProvider.toTable(spn.getSBox(), 3);
+        approximationTable = linearAnalyzer.buildApproximationTable();
+    }
+
+    @Benchmark
+    public int[][] buildApproximationTable() {
+        return linearAnalyzer.buildApproximationTable();
+    }
+
+    @Benchmark
+    public int[][] buildLinearApproximationTable() {
+        // Bypasses the table cache the analyzers go through
+        return LinearApproximationTableBuilder.build(sBox, 3);
+    }
+
+    @Benchmark
+    public DifferenceDistributionTable buildDifferenceDistributionTable() {
+        return DifferenceDistributionTable.build(sBox, 3);
+    }
+
+    @Benchmark
+    public DifferenceDistributionTable getCachedDifferenceDistributionTable() {
+        return new DifferentialCryptAnalyzer(spn).getDifferenceDistribution();
+    }
+
+    @Benchmark
+    public LinearApproximation getSPNApproximation(InputBlock input) {
+        return linearAnalyzer.getSPNApproximation(approximationTable, input.inputBlock);
+    }
+
+    // Only the approximation benchmark takes this state, so the table benchmarks don't run once per block
+    @State(Scope.Benchmark)
+    public static class InputBlock {
+
+        @Param({"000010000", "100000100"})
+        public String inputBlock;
+    }
+}
@@ -5,16 +5,52 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.suai.crypto.analysis.DifferentialCryptAnalyzer;
 import org.suai.crypto.analysis.LinearCryptAnalyzer;
+import org.suai.crypto.analysis.OnlineAttackStatus;
+import org.suai.crypto.analysis.SBoxExplorer;
+import org.suai.crypto.analysis.SBoxLibrary;
+import org.suai.crypto.analysis.SBoxProfile;
+import org.suai.crypto.analysis.Trail;
+import org.suai.crypto.data.PairSource;
+import org.suai.crypto.experiment.AttackType;
+import org.suai.crypto.experiment.CampaignJob;
+import org.suai.crypto.experiment.CampaignResult;
+import org.suai.crypto.experiment.CampaignRunner;
+import org.suai.crypto.experiment.SuccessRateExperiment;
+import org.suai.crypto.experiment.SuccessRatePoint;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.metrics.MetricsRegistry;
+import org.suai.crypto.oracle.LocalEncryptionOracle;
+import org.suai.crypto.oracle.OracleServer;
+import org.suai.crypto.oracle.RemoteEncryptionOracle;
+import org.suai.crypto.search.Gf2Solution;
+import org.suai.crypto.search.Gf2Solver;
+import org.suai.crypto.search.KeySearchEngine;
+import org.suai.crypto.search.KeySearchResult;
+import org.suai.crypto.search.KeySpace;
+import org.suai.crypto.search.KeyVerifier;
+import org.suai.crypto.search.MeetInTheMiddleAttack;
+import org.suai.crypto.search.MeetInTheMiddleResult;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.BlockCipher;
+import org.suai.crypto.spn.CachingBlockCipher;
+import org.suai.crypto.spn.CodebookCache;
 import org.suai.crypto.spn.SBoxProvider;
-import org.suai.crypto.spn.SubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
 import org.suai.crypto.util.LinearApproximation;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.suai.crypto.util.BinaryString.valueOf;
 
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
@@ -24,12 +60,24 @@ public class Main {
         linearCryptanalysis();
         logger.debug("Differential cryptanalysis");
         differentialCryptanalysis();
+        logger.debug("Attack campaign");
+        attackCampaign();
+        logger.debug("Success rate experiment");
+        successRateExperiment();
+        logger.debug("Online attacks");
+        onlineAttacks();
+        logger.debug("S-box exploration");
+        sBoxExploration();
+        logger.debug("Meet-in-the-middle attack");
+        meetInTheMiddleAttack();
+        logger.info("Metrics");
+        logger.info(MetricsRegistry.getDefault().toJson());
     }
 
     private static void differentialCryptanalysis() throws IOException {
         File file = new File("src/main/resources/sbox-7.txt");
         BidiMap<String, String> sBox = SBoxProvider.readFromFile(file, 3);
-        SubstitutionPermutationNetwork spn = new SubstitutionPermutationNetwork(sBox);
+        BlockCipher spn = new CachingBlockCipher(new BitPackedSubstitutionPermutationNetwork(sBox), new CodebookCache(16));
         DifferentialCryptAnalyzer analyzer = new DifferentialCryptAnalyzer(spn);
         int[][] table = analyzer.getDifferenceDistributionTable();
         logger.info("Difference distribution table");
@@ -37,16 +85,125 @@ public class Main {
             logger.info(Arrays.toString(row));
         }
         String key = "010011101";
-        List<String> inputDifference = Arrays.asList("000110000", "000000110", "000101000", "000000101");
-        int num = 5;
-        Map<Integer, Set<String>> subKeys = analyzer.analyzeInputDifferences(inputDifference, num, key);
-        System.out.println(subKeys);
+        List<Trail> characteristics = analyzer.findBestCharacteristics(spn.getNumberOfRounds() - 1, 4);
+        logger.info("Best differential characteristics");
+        characteristics.forEach(characteristic -> logger.info(characteristic.toString()));
+        int num = 32;
+        long[][] counters = analyzer.countSubKeys(characteristics, num, key);
+        Map<Integer, Set<String>> subKeys = analyzer.getBestSubKeys(counters, 1);
+        logger.info("Sub key candidates: {}", subKeys);
+        // The same attack against an oracle behind a socket, the key stays on the server side
+        try (OracleServer server = OracleServer.start(new LocalEncryptionOracle(spn, Long.parseUnsignedLong(key, 2)), 0);
+             RemoteEncryptionOracle oracle = new RemoteEncryptionOracle("localhost", server.getPort())) {
+            long[][] oracleCounters = analyzer.countSubKeys(characteristics, num, oracle, 1);
+            logger.info("Sub key candidates through the oracle: {} ({} queries)",
+                    analyzer.getBestSubKeys(oracleCounters, 1), oracle.getNumberOfQueries());
+        }
+
+        long[] plaintexts = {0b000000000, 0b101001111, 0b111000111, 0b010101010};
+        long[] ciphertexts = new long[plaintexts.length];
+        for (int i = 0; i < plaintexts.length; i++) {
+            ciphertexts[i] = spn.encrypt((int) plaintexts[i], Integer.parseInt(key, 2));
+        }
+        List<KeySpace> keySpaces = KeySpace.fromSubKeys(spn.getSpec(), subKeys);
+        KeySearchResult result = new KeySearchEngine()
+                .search(keySpaces, KeyVerifier.knownPairs(spn, plaintexts, ciphertexts), false);
+        logger.info("Key search: {}", result);
+        MetricsRegistry.getDefault().gauge("search.keys.per.second", result::getKeysPerSecond);
+        result.getKeys().forEach(k -> logger.info("Key: {}", valueOf(k, spn.getBlockSize())));
+    }
+
+    private static void attackCampaign() throws IOException {
+        // The 4-bit s-box from Heys' tutorial on a 16-bit network, where both attacks have something to find
+        File file = new File("src/main/resources/sbox-heys.txt");
+        Map<String, int[]> sBoxes = Collections.singletonMap(file.getName(),
+                SBoxProvider.toTable(SBoxProvider.readFromFile(file, 4), 4));
+        long[] keys = {0x3A94, 0xB7E1, 0x0F0F, 0xC5D2};
+        List<CampaignJob> jobs = CampaignJob.matrix(sBoxes, SpnSpec.of(16, 4, 4), keys, new int[]{1000, 8000},
+                AttackType.LINEAR, AttackType.DIFFERENTIAL);
+        try (CampaignRunner runner = new CampaignRunner(Duration.ofSeconds(10))) {
+            List<CampaignResult> results = runner.run(jobs, result -> logger.info(result.toString()));
+            long recovered = results.stream().filter(CampaignResult::isKeyRecovered).count();
+            long partial = results.stream().filter(CampaignResult::isPartiallyRecovered).count();
+            logger.info("Campaign: {} of {} jobs recovered every attacked key bit, {} only part of them",
+                    recovered, results.size(), partial);
+        }
+    }
+
+    private static void onlineAttacks() throws IOException {
+        File file = new File("src/main/resources/sbox-heys.txt");
+        BlockCipher spn = new BitPackedSubstitutionPermutationNetwork(SBoxProvider.readFromFile(file, 4), SpnSpec.of(16, 4, 4));
+        try (LocalEncryptionOracle oracle = new LocalEncryptionOracle(spn, 0xB7E1)) {
+            LinearCryptAnalyzer linearAnalyzer = new LinearCryptAnalyzer(spn);
+            Trail trail = linearAnalyzer.findBestTrails(spn.getNumberOfRounds() - 1, 1).get(0);
+            OnlineAttackStatus linear = linearAnalyzer.recoverLastRoundKeyOnline(trail, oracle, 2000, 400_000, 1,
+                    status -> logger.debug(status.toString(spn.getBlockSize())));
+            logger.info("Online linear attack: {}", linear.toString(spn.getBlockSize()));
+
+            DifferentialCryptAnalyzer differentialAnalyzer = new DifferentialCryptAnalyzer(spn);
+            Trail characteristic = differentialAnalyzer.findBestCharacteristics(spn.getNumberOfRounds() - 1, 1).get(0);
+            OnlineAttackStatus differential = differentialAnalyzer.countSubKeysOnline(characteristic, oracle, 50,
+                    10_000, 1, status -> logger.debug(status.toString(spn.getBlockSize())));
+            logger.info("Online differential attack: {}", differential.toString(spn.getBlockSize()));
+            logger.info("Oracle queries: {}", oracle.getNumberOfQueries());
+        }
+    }
+
+    private static void meetInTheMiddleAttack() throws IOException {
+        // Four independent 9-bit round keys are 2^36 keys for exhaustive search, but only 2 * 2^18 guesses here
+        File file = new File("src/main/resources/sbox-9.txt");
+        BitPackedSubstitutionPermutationNetwork spn = new BitPackedSubstitutionPermutationNetwork(SBoxProvider.readFromFile(file, 3));
+        long[] roundKeys = {0b010011101, 0b110001011, 0b001110100, 0b101010111};
+        long[] plaintexts = new long[12];
+        long[] ciphertexts = new long[plaintexts.length];
+        for (int i = 0; i < plaintexts.length; i++) {
+            plaintexts[i] = i * 37L % (1 << spn.getBlockSize());
+            ciphertexts[i] = spn.encrypt(plaintexts[i], roundKeys);
+        }
+        MeetInTheMiddleResult result = new MeetInTheMiddleAttack(spn, 2).attack(plaintexts, ciphertexts);
+        logger.info("Meet-in-the-middle: {}", result);
+        // Differentials of probability 1 through this s-box let neighbouring round keys absorb each other's
+        // changes, so the keys come in classes of ciphers that can't be told apart
+        logger.info("Real round keys among them: {}", result.getKeys().stream().anyMatch(keys -> Arrays.equals(keys, roundKeys)));
+        result.getKeys().stream().limit(4).forEach(keys -> logger.info("Round keys: {}",
+                Arrays.stream(keys).mapToObj(key -> valueOf(key, spn.getBlockSize())).collect(Collectors.toList())));
+    }
+
+    private static void sBoxExploration() throws IOException {
+        // All 3-bit s-boxes fall into a few affine classes, 4-bit ones are too many and are sampled
+        List<SBoxProfile> threeBit = new SBoxExplorer(SpnSpec.DEFAULT, SpnSpec.DEFAULT.getNumberOfRounds() - 1).enumerate();
+        logger.info("Affine classes of 3-bit s-boxes");
+        threeBit.forEach(profile -> logger.info(profile.toString()));
+        SpnSpec spec = SpnSpec.of(16, 4, 4);
+        List<SBoxProfile> fourBit = new SBoxExplorer(spec, spec.getNumberOfRounds() - 1).sample(1000, 1);
+        logger.info("Best of {} distinct random 4-bit s-boxes", fourBit.size());
+        fourBit.stream().limit(4).forEach(profile -> logger.info(profile.toString()));
+        Path path = Paths.get("target", "sboxes-4.bin");
+        SBoxLibrary.write(path, fourBit);
+        logger.info("S-box library written to {}", path);
+    }
+
+    private static void successRateExperiment() throws IOException {
+        File file = new File("src/main/resources/sbox-heys.txt");
+        int[] sBox = SBoxProvider.toTable(SBoxProvider.readFromFile(file, 4), 4);
+        try (CampaignRunner runner = new CampaignRunner(Duration.ofSeconds(10))) {
+            SuccessRateExperiment experiment = new SuccessRateExperiment(runner);
+            List<SuccessRatePoint> linear = experiment.run(file.getName(), sBox, SpnSpec.of(16, 4, 4),
+                    AttackType.LINEAR, 64, new int[]{500, 1000, 2000, 4000, 8000}, 1);
+            linear.forEach(point -> logger.info(point.toString()));
+            logger.info("Pairs for a 90% linear success rate: {}", SuccessRateExperiment.getMinimumPairs(linear, 0.9));
+            List<SuccessRatePoint> differential = experiment.run(file.getName(), sBox, SpnSpec.of(16, 4, 4),
+                    AttackType.DIFFERENTIAL, 64, new int[]{50, 100, 200, 400, 800}, 1);
+            differential.forEach(point -> logger.info(point.toString()));
+            logger.info("Pairs for a 90% differential success rate: {}",
+                    SuccessRateExperiment.getMinimumPairs(differential, 0.9));
+        }
     }
 
     private static void linearCryptanalysis() throws IOException {
         File file = new File("src/main/resources/sbox-9.txt");
         BidiMap<String, String> sBox = SBoxProvider.readFromFile(file, 3);
-        SubstitutionPermutationNetwork spn = new SubstitutionPermutationNetwork(sBox);
+        BlockCipher spn = new BitPackedSubstitutionPermutationNetwork(sBox);
         LinearCryptAnalyzer analyzer = new LinearCryptAnalyzer(spn);
         int[][] table = analyzer.buildApproximationTable();
         logger.info("Linear approximation table");
@@ -54,18 +211,9 @@ public class Main {
             logger.info(Arrays.toString(row));
         }
 
-        List<String> inputs = Arrays.asList(
-                "000010000",
-                "000110000",
-                "000000110",
-                "000000100",
-                "100000100",
-                "110000000",
-                "111000000",
-                "000111000"
-        );
-
-        List<LinearApproximation> approximations = analyzer.getSPNApproximations(table, inputs);
+        List<LinearApproximation> approximations = analyzer.findBestApproximations(8);
+        logger.info("Best linear approximations");
+        approximations.forEach(approximation -> logger.info(approximation.toString()));
 
         String key = "110101001";
         logger.info("Key: " + key);
@@ -77,5 +225,23 @@ public class Main {
         List<LinearApproximation> keyEquations = analyzer.getKeyEquations(approximations, pairs);
         logger.info("Key equations");
         keyEquations.forEach(equation -> logger.info(equation.toString()));
+        Gf2Solution solution = new Gf2Solver(spn.getBlockSize()).solve(keyEquations);
+        logger.info("Key equations solution: {}", solution);
+        solution.getConflicts().forEach(equation -> logger.info("Conflicting equation: {}", equation));
+        long[] knownPlaintexts = pairs.keySet().stream().limit(4).mapToLong(p -> Long.parseUnsignedLong(p, 2)).toArray();
+        long[] knownCiphertexts = Arrays.stream(knownPlaintexts)
+                .map(p -> Long.parseUnsignedLong(pairs.get(valueOf(p, spn.getBlockSize())), 2))
+                .toArray();
+        KeySearchResult solutionSearch = new KeySearchEngine().search(solution.iterator(), 1L << spn.getBlockSize(),
+                KeyVerifier.knownPairs(spn, knownPlaintexts, knownCiphertexts), true);
+        logger.info("Key search over the solution space: {}", solutionSearch);
+        solutionSearch.getKeys().forEach(candidate -> logger.info("Key: {}", valueOf(candidate, spn.getBlockSize())));
+
+        Trail trail = analyzer.findBestTrails(spn.getNumberOfRounds() - 1, 1).get(0);
+        PlaintextGenerator generator = new PlaintextGenerator(spn.getBlockSize(), 1, PlaintextGenerator.Mode.RANDOM);
+        PairSource knownPairs = generator.knownPairs(PlaintextGenerator.encryption(spn, Long.parseUnsignedLong(key, 2)), 1000);
+        logger.info("Last round key candidates for {}", trail);
+        analyzer.recoverLastRoundKey(trail, knownPairs, 4)
+                .forEach(candidate -> logger.info(candidate.toString(spn.getBlockSize())));
     }
 }
@@ -0,0 +1,64 @@
+package org.suai.crypto.analysis;
+
+import org.suai.crypto.data.PairSource;
+import org.suai.crypto.util.LinearApproximation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Evaluates any number of approximations in a single pass over the pairs
+public class ApproximationEvaluator {
+    private final CompiledApproximation[] approximations;
+    private final long[] plaintextMasks;
+    private final long[] ciphertextMasks;
+
+    public ApproximationEvaluator(List<LinearApproximation> approximations, int blockSize) {
+        this.approximations = approximations.stream()
+                .map(approximation -> new CompiledApproximation(approximation, blockSize))
+                .toArray(CompiledApproximation[]::new);
+        this.plaintextMasks = new long[this.approximations.length];
+        this.ciphertextMasks = new long[this.approximations.length];
+        for (int i = 0; i < this.approximations.length; i++) {
+            plaintextMasks[i] = this.approximations[i].getPlaintextMask();
+            ciphertextMasks[i] = this.approximations[i].getCiphertextMask();
+        }
+    }
+
+    // counts[i] = number of pairs for which the left part of approximation i equals one
+    public long[] countOnes(PairSource source) {
+        int parts = Math.max(1, Runtime.getRuntime().availableProcessors());
+        return source.split(parts).parallelStream()
+                .map(this::countOnesSequentially)
+                .reduce((first, second) -> {
+                    for (int i = 0; i < first.length; i++) {
+                        first[i] += second[i];
+                    }
+                    return first;
+                })
+                .orElseGet(() -> new long[approximations.length]);
+    }
+
+    private long[] countOnesSequentially(PairSource source) {
+        long[] counts = new long[approximations.length];
+        source.forEach((plaintext, ciphertext) -> {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += Long.bitCount(plaintext & plaintextMasks[i] ^ ciphertext & ciphertextMasks[i]) & 1;
+            }
+        });
+        return counts;
+    }
+
+    public double[] getLeftPartStats(PairSource source) {
+        long[] counts = countOnes(source);
+        double[] stats = new double[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            stats[i] = (double) counts[i] / source.size();
+        }
+        return stats;
+    }
+
+    public List<CompiledApproximation> getApproximations() {
+        return Collections.unmodifiableList(Arrays.asList(approximations));
+    }
+}
@@ -0,0 +1,47 @@
+package org.suai.crypto.analysis;
+
+import org.suai.crypto.util.EquationElement;
+import org.suai.crypto.util.EquationElementType;
+import org.suai.crypto.util.LinearApproximation;
+
+// Plaintext and ciphertext bits of a left part packed into masks, leftmost bit is the highest one
+public class CompiledApproximation {
+    private final LinearApproximation approximation;
+    private final long plaintextMask;
+    private final long ciphertextMask;
+
+    public CompiledApproximation(LinearApproximation approximation, int blockSize) {
+        long plaintextMask = 0;
+        long ciphertextMask = 0;
+        for (EquationElement element : approximation.getLeftPart()) {
+            long bit = 1L << (blockSize - element.getBitNumber());
+            if (element.getType() == EquationElementType.PLAINTEXT) {
+                plaintextMask ^= bit;
+            } else if (element.getType() == EquationElementType.CIPHERTEXT) {
+                ciphertextMask ^= bit;
+            } else {
+                throw new IllegalArgumentException("Left part must contain only plaintext and ciphertext bits: "
+                        + approximation);
+            }
+        }
+        this.approximation = approximation;
+        this.plaintextMask = plaintextMask;
+        this.ciphertextMask = ciphertextMask;
+    }
+
+    public int evaluate(long plaintext, long ciphertext) {
+        return Long.bitCount(plaintext & plaintextMask ^ ciphertext & ciphertextMask) & 1;
+    }
+
+    public LinearApproximation getApproximation() {
+        return approximation;
+    }
+
+    public long getPlaintextMask() {
+        return plaintextMask;
+    }
+
+    public long getCiphertextMask() {
+        return ciphertextMask;
+    }
+}
@@ -0,0 +1,118 @@
+package org.suai.crypto.analysis;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+public class DifferenceDistributionTable {
+
+    private final int sBoxInputSize;
+    private final int[][] counts;
+    // Right pairs of (input difference a, output difference b) are the inputs x with S(x) ^ S(x ^ a) = b,
+    // stored in rightInputs[offsets[a * size + b] .. offsets[a * size + b + 1])
+    private final int[] offsets;
+    private final int[] rightInputs;
+
+    private DifferenceDistributionTable(int sBoxInputSize, int[][] counts, int[] offsets, int[] rightInputs) {
+        this.sBoxInputSize = sBoxInputSize;
+        this.counts = counts;
+        this.offsets = offsets;
+        this.rightInputs = rightInputs;
+    }
+
+    // Restores a table from its counts and right inputs, e.g. when it is read back from disk
+    static DifferenceDistributionTable of(int sBoxInputSize, int[][] counts, int[] rightInputs) {
+        int size = counts.length;
+        int[] offsets = new int[size * size + 1];
+        int offset = 0;
+        for (int inputDifference = 0; inputDifference < size; inputDifference++) {
+            for (int outputDifference = 0; outputDifference < size; outputDifference++) {
+                offsets[inputDifference * size + outputDifference] = offset;
+                offset += counts[inputDifference][outputDifference];
+            }
+        }
+        offsets[size * size] = offset;
+        return new DifferenceDistributionTable(sBoxInputSize, counts, offsets, rightInputs);
+    }
+
+    public static DifferenceDistributionTable build(int[] sBox, int sBoxInputSize) {
+        int size = 1 << sBoxInputSize;
+        if (sBox.length != size) {
+            throw new IllegalArgumentException("S-box must have " + size + " entries");
+        }
+        int[][] counts = new int[size][size];
+        int[] offsets = new int[size * size + 1];
+        int[] rightInputs = new int[size * size];
+        // Every row holds exactly size right inputs, so rows can be filled independently
+        IntStream.range(0, size).parallel().forEach(inputDifference -> {
+            int[] row = counts[inputDifference];
+            for (int x = 0; x < size; x++) {
+                row[sBox[x] ^ sBox[x ^ inputDifference]]++;
+            }
+            int base = inputDifference * size;
+            int offset = base;
+            for (int outputDifference = 0; outputDifference < size; outputDifference++) {
+                offsets[base + outputDifference] = offset;
+                offset += row[outputDifference];
+            }
+            int[] next = Arrays.copyOfRange(offsets, base, base + size);
+            for (int x = 0; x < size; x++) {
+                rightInputs[next[sBox[x] ^ sBox[x ^ inputDifference]]++] = x;
+            }
+        });
+        offsets[size * size] = size * size;
+        return new DifferenceDistributionTable(sBoxInputSize, counts, offsets, rightInputs);
+    }
+
+    public int getCount(int inputDifference, int outputDifference) {
+        return counts[inputDifference][outputDifference];
+    }
+
+    public int[] getRightInputs(int inputDifference, int outputDifference) {
+        int index = inputDifference * counts.length + outputDifference;
+        return Arrays.copyOfRange(rightInputs, offsets[index], offsets[index + 1]);
+    }
+
+    public int getRightInputsOffset(int inputDifference, int outputDifference) {
+        return offsets[inputDifference * counts.length + outputDifference];
+    }
+
+    // Copies, since the table itself may be shared through SBoxTableCache
+    public int[] getRightInputs() {
+        return rightInputs.clone();
+    }
+
+    public int getDifferentialUniformity() {
+        int uniformity = 0;
+        for (int inputDifference = 1; inputDifference < counts.length; inputDifference++) {
+            for (int count : counts[inputDifference]) {
+                uniformity = Math.max(uniformity, count);
+            }
+        }
+        return uniformity;
+    }
+
+    public int[][] getCounts() {
+        int[][] result = new int[counts.length][];
+        for (int i = 0; i < counts.length; i++) {
+            result[i] = counts[i].clone();
+        }
+        return result;
+    }
+
+    // The arrays themselves, for readers in this package that leave them unchanged
+    int[][] getSharedCounts() {
+        return counts;
+    }
+
+    int[] getSharedRightInputs() {
+        return rightInputs;
+    }
+
+    public int getSBoxInputSize() {
+        return sBoxInputSize;
+    }
+
+    public int size() {
+        return counts.length;
+    }
+}
@@ -1,15 +1,22 @@
 package org.suai.crypto.analysis;
 
 import com.google.common.base.Splitter;
-import org.apache.commons.collections4.BidiMap;
 import org.apache.commons.math3.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.suai.crypto.spn.SubstitutionPermutationNetwork;
+import org.suai.crypto.data.DifferencePairSource;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.metrics.MetricsRegistry;
+import org.suai.crypto.oracle.EncryptionOracle;
+import org.suai.crypto.spn.BlockCipher;
+import org.suai.crypto.spn.SBoxProvider;
+import org.suai.crypto.spn.SpnSpec;
 import org.suai.crypto.util.TextPair;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.IntPredicate;
+import java.util.function.LongUnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -18,96 +25,253 @@ import static org.suai.crypto.util.BinaryString.*;
 public class DifferentialCryptAnalyzer {
     private static final Logger logger = LoggerFactory.getLogger(DifferentialCryptAnalyzer.class);
 
-    private final SubstitutionPermutationNetwork spn;
-    private final int[][] table;
+    private static final SplittableRandom SEED_SOURCE = new SplittableRandom();
 
-    public DifferentialCryptAnalyzer(SubstitutionPermutationNetwork spn) {
+    private final BlockCipher spn;
+    private final int[] sBox;
+    private volatile DifferenceDistributionTable differenceDistributionTable;
+    private MetricsRegistry metrics = MetricsRegistry.getDefault();
+    private SBoxTableCache tableCache = SBoxTableCache.getDefault();
+
+    public DifferentialCryptAnalyzer(BlockCipher spn) {
         this.spn = spn;
-        this.table = buildDifferenceDistributionTable();
+        this.sBox = SBoxProvider.toTable(spn.getSBox(), spn.getSBoxInputSize());
     }
 
-    private int[][] buildDifferenceDistributionTable() {
-        BidiMap<String, String> sBox = spn.getSBox();
-        int sBoxInputSize = spn.getSBoxInputSize();
-        int size = (int) Math.pow(2, sBoxInputSize);
-        int[][] table = new int[size][size];
-        for (int row = 0; row < size; row++) {
-            String inputDifference = valueOf(row, sBoxInputSize);
-            Map<String, String> combinations = getCombinationsForDifference(inputDifference);
-            for (Map.Entry<String, String> entry : combinations.entrySet()) {
-                String firstOutput = sBox.get(entry.getKey());
-                String secondOutput = sBox.get(entry.getValue());
-                String outputDifference = xor(firstOutput, secondOutput);
-                int column = Integer.parseInt(outputDifference, 2);
-                table[row][column]++;
-            }
-        }
-        return table;
+    public DifferentialCryptAnalyzer(BlockCipher spn, DifferenceDistributionTable differenceDistributionTable) {
+        this(spn);
+        this.differenceDistributionTable = differenceDistributionTable;
     }
 
-    private Map<String, String> getCombinationsForDifference(String inputDifference) {
-        Map<String, String> combinations = new HashMap<>();
-        int length = inputDifference.length();
-        int numberOfCombinations = (int) Math.pow(2, length);
-        for (int i = 0; i < numberOfCombinations; i++) {
-            String first = valueOf(i, length);
-            String second = xor(first, inputDifference);
-            combinations.put(first, second);
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setTableCache(SBoxTableCache tableCache) {
+        this.tableCache = tableCache;
+    }
+
+    public DifferenceDistributionTable getDifferenceDistribution() {
+        // Built on first use, so creating an analyzer stays cheap
+        DifferenceDistributionTable result = differenceDistributionTable;
+        if (result == null) {
+            synchronized (this) {
+                result = differenceDistributionTable;
+                if (result == null) {
+                    result = metrics.timer("differential.table").time(() ->
+                            tableCache.getDifferenceDistributionTable(sBox, spn.getSBoxInputSize()));
+                    differenceDistributionTable = result;
+                }
+            }
         }
-        return combinations;
+        return result;
     }
 
     public List<String> getInputDifferences(String outputDifference) {
+        DifferenceDistributionTable ddt = getDifferenceDistribution();
         int column = Integer.parseInt(outputDifference, 2);
-        return getDifferences(i -> table[i][column] != 0);
+        return getDifferences(i -> ddt.getCount(i, column) != 0);
     }
 
     public List<String> getOutputDifferences(String inputDifference) {
+        DifferenceDistributionTable ddt = getDifferenceDistribution();
         int row = Integer.parseInt(inputDifference, 2);
-        return getDifferences(i -> table[row][i] != 0);
+        return getDifferences(i -> ddt.getCount(row, i) != 0);
     }
 
     private List<String> getDifferences(IntPredicate predicate) {
-        return IntStream.range(0, table.length)
+        return IntStream.range(0, 1 << spn.getSBoxInputSize())
                 .filter(predicate)
-                .mapToObj(i -> valueOf(i, 3))
+                .mapToObj(i -> valueOf(i, spn.getSBoxInputSize()))
                 .collect(Collectors.toList());
     }
 
     public String getLastRoundInputDifferences(String inputDifferenceBlock) {
         int[] bitPermutation = spn.getBitPermutation();
+        int numberOfRounds = spn.getNumberOfRounds();
+
+        String sBoxInputDifference = inputDifferenceBlock;
+        for (int round = 1; round < numberOfRounds; round++) {
+            logger.debug("Round {} input difference: {}", round, sBoxInputDifference);
+            String sBoxOutputDifference = getSBoxOutputDifference(sBoxInputDifference);
+            logger.debug("Round {} output difference: {}", round, sBoxOutputDifference);
+            sBoxInputDifference = permute(sBoxOutputDifference, bitPermutation);
+        }
+        logger.debug("Last round input difference: {}", sBoxInputDifference);
 
-        logger.debug("First round input difference: {}", inputDifferenceBlock);
-        String sBoxOutputDifference = getSBoxOutputDifference(inputDifferenceBlock);
-        logger.debug("First round output difference: {}", sBoxOutputDifference);
-        String sBoxInputDifference = permute(sBoxOutputDifference, bitPermutation);
+        return sBoxInputDifference;
+    }
 
-        logger.debug("Second round input difference: {}", sBoxInputDifference);
-        sBoxOutputDifference = getSBoxOutputDifference(sBoxInputDifference);
-        logger.debug("Second round output difference: {}", sBoxOutputDifference);
+    public List<Trail> findBestCharacteristics(int rounds, int topK) {
+        return tableCache.getTrails("differential", sBox, spn.getSpec(), rounds, topK,
+                () -> searchCharacteristics(rounds, topK));
+    }
 
-        sBoxInputDifference = permute(sBoxOutputDifference, bitPermutation);
-        logger.debug("Third round input difference: {}", sBoxInputDifference);
+    private List<Trail> searchCharacteristics(int rounds, int topK) {
+        double[][] weights = TrailSearch.getDifferentialWeights(getDifferenceDistribution().getSharedCounts(),
+                spn.getSBoxInputSize());
+        TrailSearch search = new TrailSearch(spn.getSpec(), weights);
+        return metrics.timer("differential.trails").time(() -> search.search(rounds, topK));
+    }
 
-        return sBoxInputDifference;
+    public String getLastRoundInputDifference(Trail characteristic) {
+        int blockSize = spn.getBlockSize();
+        long outputDifference = characteristic.getOutput(characteristic.getNumberOfRounds() - 1);
+        return permute(valueOf(outputDifference, blockSize), spn.getBitPermutation());
+    }
+
+    public Map<Integer, Set<String>> analyzeCharacteristics(List<Trail> characteristics,
+                                                            int numberOfPairs,
+                                                            String key) {
+        int blockSize = spn.getBlockSize();
+        Map<Integer, Set<String>> subKeys = new HashMap<>();
+        characteristics.forEach(characteristic -> {
+            String inputDiff = valueOf(characteristic.getInput(0), blockSize);
+            String lastRoundInputDiff = getLastRoundInputDifference(characteristic);
+            logger.debug("Characteristic {}: {} -> {}", characteristic, inputDiff, lastRoundInputDiff);
+            List<TextPair> pairs = generateCiphertextAndPlaintext(numberOfPairs, key, inputDiff);
+            metrics.timer("differential.counting").time(() -> pairs.stream()
+                    .filter(p -> isRightPairCandidate(lastRoundInputDiff, p.getCiphertextPair()))
+                    .forEach(p -> updateSubKeys(subKeys, getSubKeys(lastRoundInputDiff, p.getCiphertextPair()))));
+            metrics.counter("differential.pairs.processed").add(pairs.size());
+        });
+        return subKeys;
+    }
+
+    public long[][] countSubKeys(List<Trail> characteristics, int numberOfPairs, String key) {
+        return countSubKeys(characteristics, numberOfPairs, key, SEED_SOURCE.nextLong());
+    }
+
+    public long[][] countSubKeys(List<Trail> characteristics, int numberOfPairs, String key, long seed) {
+        SpnSpec spec = spn.getSpec();
+        PlaintextGenerator generator = new PlaintextGenerator(spec.getBlockSize(), seed, PlaintextGenerator.Mode.RANDOM);
+        LongUnaryOperator encryption = PlaintextGenerator.encryption(spn, Long.parseUnsignedLong(key, 2));
+        long[][] counters = new long[spec.getNumberOfSBoxes()][1 << spec.getSBoxInputSize()];
+        for (Trail characteristic : characteristics) {
+            DifferentialKeyCounter counter = getKeyCounter(characteristic);
+            // Pairs are generated while counting, so this phase includes the encryptions
+            long[][] characteristicCounters = metrics.timer("differential.counting").time(() -> counter.count(
+                    generator.differencePairs(encryption, characteristic.getInput(0), numberOfPairs)));
+            metrics.counter("cipher.encryptions").add(2L * numberOfPairs);
+            addCounters(counters, characteristicCounters);
+        }
+        return counters;
+    }
+
+    // Same attack with the chosen plaintexts encrypted by an oracle instead of a known key
+    public long[][] countSubKeys(List<Trail> characteristics, int numberOfPairs, EncryptionOracle oracle, long seed) {
+        SpnSpec spec = spn.getSpec();
+        PlaintextGenerator generator = new PlaintextGenerator(spec.getBlockSize(), seed, PlaintextGenerator.Mode.RANDOM);
+        long[][] counters = new long[spec.getNumberOfSBoxes()][1 << spec.getSBoxInputSize()];
+        for (Trail characteristic : characteristics) {
+            DifferentialKeyCounter counter = getKeyCounter(characteristic);
+            DifferencePairSource pairs = metrics.timer("differential.data").time(() ->
+                    generator.differencePairs(oracle, characteristic.getInput(0), numberOfPairs));
+            metrics.counter("oracle.queries").add(2L * numberOfPairs);
+            addCounters(counters, metrics.timer("differential.counting").time(() -> counter.count(pairs)));
+        }
+        return counters;
+    }
+
+    // Chosen plaintext pairs are drawn from the oracle in batches until every counted s-box has a
+    // significant leading guess
+    public OnlineAttackStatus countSubKeysOnline(Trail characteristic, EncryptionOracle oracle, int batchSize,
+                                                 long maxPairs, long seed, Consumer<OnlineAttackStatus> listener) {
+        long lastRoundInputDifference = Long.parseUnsignedLong(getLastRoundInputDifference(characteristic), 2);
+        OnlineDifferentialAttack attack = new OnlineDifferentialAttack(spn.getSpec(), sBox,
+                getDifferenceDistribution(), characteristic.getInput(0), lastRoundInputDifference);
+        PlaintextGenerator generator = new PlaintextGenerator(spn.getBlockSize(), seed, PlaintextGenerator.Mode.RANDOM);
+        OnlineAttackStatus status = attack.run(oracle, generator, batchSize, maxPairs, listener);
+        // Same names as the linear attack: oracle calls and counted pairs
+        metrics.counter("oracle.queries").add(2 * status.getNumberOfPairs());
+        metrics.counter("differential.pairs.processed").add(status.getNumberOfPairs());
+        return status;
+    }
+
+    private DifferentialKeyCounter getKeyCounter(Trail characteristic) {
+        long lastRoundInputDifference = Long.parseUnsignedLong(getLastRoundInputDifference(characteristic), 2);
+        DifferentialKeyCounter counter = new DifferentialKeyCounter(spn.getSpec(), sBox,
+                getDifferenceDistribution(), lastRoundInputDifference);
+        counter.setMetrics(metrics);
+        return counter;
+    }
+
+    private static void addCounters(long[][] counters, long[][] characteristicCounters) {
+        for (int i = 0; i < counters.length; i++) {
+            for (int guess = 0; guess < counters[i].length; guess++) {
+                counters[i][guess] += characteristicCounters[i][guess];
+            }
+        }
+    }
+
+    // Keeps the best guesses of every counted s-box, together with the guesses tied with the last of them
+    public Map<Integer, Set<String>> getBestSubKeys(long[][] counters, int candidatesPerSBox) {
+        int sBoxInputSize = spn.getSBoxInputSize();
+        Map<Integer, Set<String>> subKeys = new HashMap<>();
+        for (int i = 0; i < counters.length; i++) {
+            long[] sorted = counters[i].clone();
+            Arrays.sort(sorted);
+            if (sorted[sorted.length - 1] == 0) {
+                continue;
+            }
+            long threshold = sorted[sorted.length - Math.min(candidatesPerSBox, sorted.length)];
+            Set<String> values = new HashSet<>();
+            for (int guess = 0; guess < counters[i].length; guess++) {
+                if (counters[i][guess] >= threshold && counters[i][guess] > 0) {
+                    values.add(valueOf(guess, sBoxInputSize));
+                }
+            }
+            logger.debug("Sub key counters for block {}: {}", i, Arrays.toString(counters[i]));
+            metrics.counter("differential.subkeys.kept").add(values.size());
+            subKeys.put(i, values);
+        }
+        return subKeys;
+    }
+
+    // Pairs that cannot follow the characteristic through the last s-box layer are discarded
+    private boolean isRightPairCandidate(String lastRoundInputDiff, Pair<String, String> ciphertextPair) {
+        DifferenceDistributionTable ddt = getDifferenceDistribution();
+        int sBoxInputSize = spn.getSBoxInputSize();
+        List<String> inputDiffBlocks = split(lastRoundInputDiff, sBoxInputSize);
+        List<String> outputDiffBlocks = split(xor(ciphertextPair.getFirst(), ciphertextPair.getSecond()),
+                sBoxInputSize);
+        for (int i = 0; i < inputDiffBlocks.size(); i++) {
+            int inputDifference = Integer.parseInt(inputDiffBlocks.get(i), 2);
+            int outputDifference = Integer.parseInt(outputDiffBlocks.get(i), 2);
+            if (ddt.getCount(inputDifference, outputDifference) == 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public List<TextPair> generateCiphertextAndPlaintext(
             int num,
             String key,
             String inputDifferenceBlock) {
+        return generateCiphertextAndPlaintext(num, key, inputDifferenceBlock, SEED_SOURCE.nextLong());
+    }
+
+    public List<TextPair> generateCiphertextAndPlaintext(
+            int num,
+            String key,
+            String inputDifferenceBlock,
+            long seed) {
         int blockSize = spn.getBlockSize();
+        PlaintextGenerator generator = new PlaintextGenerator(blockSize, seed, PlaintextGenerator.Mode.RANDOM);
+        LongUnaryOperator encryption = PlaintextGenerator.encryption(spn, Long.parseUnsignedLong(key, 2));
+        long inputDifference = Long.parseUnsignedLong(inputDifferenceBlock, 2);
         List<TextPair> pairs = new ArrayList<>();
-        while (pairs.size() < num) {
-            String firstPlaintext = random(blockSize);
-            String secondPlaintext = xor(firstPlaintext, inputDifferenceBlock);
-            String firstCiphertext = spn.encrypt(firstPlaintext, key);
-            String secondCiphertext = spn.encrypt(secondPlaintext, key);
-            TextPair textPair = new TextPair();
-            textPair.setPlaintextPair(new Pair<>(firstPlaintext, secondPlaintext));
-            textPair.setCiphertextPair(new Pair<>(firstCiphertext, secondCiphertext));
-            pairs.add(textPair);
-        }
+        metrics.timer("differential.data").time(() -> generator.differencePairs(encryption, inputDifference, num).forEach(
+                (firstPlaintext, firstCiphertext, secondPlaintext, secondCiphertext) -> {
+                    TextPair textPair = new TextPair();
+                    textPair.setPlaintextPair(new Pair<>(valueOf(firstPlaintext, blockSize),
+                            valueOf(secondPlaintext, blockSize)));
+                    textPair.setCiphertextPair(new Pair<>(valueOf(firstCiphertext, blockSize),
+                            valueOf(secondCiphertext, blockSize)));
+                    pairs.add(textPair);
+                }));
+        metrics.counter("cipher.encryptions").add(2L * num);
         return pairs;
     }
 
@@ -119,8 +283,9 @@ public class DifferentialCryptAnalyzer {
             String lastRoundInputDiff = getLastRoundInputDifferences(inputDiff);
             List<TextPair> pairs = generateCiphertextAndPlaintext(numberOfPairs, key, inputDiff);
             pairs.forEach(p -> logger.debug("{}", p));
-            pairs.forEach(p ->
-                    updateSubKeys(subKeys, getSubKeys(lastRoundInputDiff, p.getCiphertextPair())));
+            metrics.timer("differential.counting").time(() -> pairs.forEach(p ->
+                    updateSubKeys(subKeys, getSubKeys(lastRoundInputDiff, p.getCiphertextPair()))));
+            metrics.counter("differential.pairs.processed").add(pairs.size());
         });
         return subKeys;
     }
@@ -151,7 +316,7 @@ public class DifferentialCryptAnalyzer {
                     firstCTBlocks.get(blockNumber), secondCTBlocks.get(blockNumber));
             updateSubKeys(subKeys, blockSubKeys, blockNumber);
         }
-        System.out.println(subKeys);
+        logger.debug("Sub keys {}", subKeys);
         return subKeys;
     }
 
@@ -191,17 +356,22 @@ public class DifferentialCryptAnalyzer {
     }
 
     public Map<String, List<Pair<String, String>>> getOutputPairs(String inputDiff) {
-        Map<String, String> combinations = getCombinationsForDifference(inputDiff);
-        BidiMap<String, String> sBox = spn.getSBox();
+        DifferenceDistributionTable ddt = getDifferenceDistribution();
+        int sBoxInputSize = spn.getSBoxInputSize();
+        int inputDifference = Integer.parseInt(inputDiff, 2);
         Map<String, List<Pair<String, String>>> outPairs = new HashMap<>();
-        combinations.forEach((key, value) -> {
-            String firstOutput = sBox.get(key);
-            String secondOutput = sBox.get(value);
-            String outputDiff = xor(firstOutput, secondOutput);
-            Pair<String, String> outputPair = new Pair<>(firstOutput, secondOutput);
-            outPairs.computeIfAbsent(outputDiff, k -> new ArrayList<>());
-            outPairs.get(outputDiff).add(outputPair);
-        });
+        for (int outputDifference = 0; outputDifference < ddt.size(); outputDifference++) {
+            int[] rightInputs = ddt.getRightInputs(inputDifference, outputDifference);
+            if (rightInputs.length == 0) {
+                continue;
+            }
+            List<Pair<String, String>> pairs = new ArrayList<>();
+            for (int input : rightInputs) {
+                pairs.add(new Pair<>(valueOf(sBox[input], sBoxInputSize),
+                        valueOf(sBox[input ^ inputDifference], sBoxInputSize)));
+            }
+            outPairs.put(valueOf(outputDifference, sBoxInputSize), pairs);
+        }
         return outPairs;
     }
 
@@ -269,8 +439,9 @@ public class DifferentialCryptAnalyzer {
         return new ArrayList<>(result);
     }
 
+    // A copy of the counts, callers may modify it
     public int[][] getDifferenceDistributionTable() {
-        return table;
+        return getDifferenceDistribution().getCounts();
     }
 
     private List<Integer> indicesOf(String value, char c) {
@@ -0,0 +1,105 @@
+package org.suai.crypto.analysis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.data.DifferencePairSource;
+import org.suai.crypto.metrics.MetricsRegistry;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.stream.IntStream;
+
+// Counts last round sub key guesses suggested by every pair instead of intersecting
+// candidate sets, so a few wrong pairs only add noise to the counters
+public class DifferentialKeyCounter {
+    private static final Logger logger = LoggerFactory.getLogger(DifferentialKeyCounter.class);
+
+    private final SpnSpec spec;
+    private final int[] sBox;
+    private final DifferenceDistributionTable ddt;
+    private final long lastRoundInputDifference;
+    private final int[] activeSBoxes;
+    private final long inactiveMask;
+    private MetricsRegistry metrics = MetricsRegistry.getDefault();
+
+    public DifferentialKeyCounter(SpnSpec spec, int[] sBox, DifferenceDistributionTable ddt,
+                                  long lastRoundInputDifference) {
+        this.spec = spec;
+        this.sBox = sBox;
+        this.ddt = ddt;
+        this.lastRoundInputDifference = lastRoundInputDifference;
+        this.activeSBoxes = IntStream.range(0, spec.getNumberOfSBoxes())
+                .filter(i -> getChunk(lastRoundInputDifference, i) != 0)
+                .toArray();
+        long activeMask = 0;
+        for (int i : activeSBoxes) {
+            activeMask |= (long) ((1 << spec.getSBoxInputSize()) - 1) << spec.getSBoxShift(i);
+        }
+        this.inactiveMask = spec.getBlockMask() & ~activeMask;
+    }
+
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    // counters[sBox][guess], rows of the s-boxes inactive in the last round stay zero
+    public long[][] count(DifferencePairSource source) {
+        int parts = Math.max(1, Runtime.getRuntime().availableProcessors());
+        long[][] counters = new long[spec.getNumberOfSBoxes()][1 << spec.getSBoxInputSize()];
+        long rightPairs = source.split(parts).parallelStream()
+                .mapToLong(part -> {
+                    int[][] partCounters = new int[spec.getNumberOfSBoxes()][1 << spec.getSBoxInputSize()];
+                    long[] accepted = new long[1];
+                    part.forEach((firstPlaintext, firstCiphertext, secondPlaintext, secondCiphertext) -> {
+                        if (countPair(firstCiphertext, secondCiphertext, partCounters)) {
+                            accepted[0]++;
+                        }
+                    });
+                    synchronized (counters) {
+                        for (int i : activeSBoxes) {
+                            for (int guess = 0; guess < partCounters[i].length; guess++) {
+                                counters[i][guess] += partCounters[i][guess];
+                            }
+                        }
+                    }
+                    return accepted[0];
+                })
+                .sum();
+        logger.debug("{} of {} pairs passed the filter", rightPairs, source.size());
+        metrics.counter("differential.pairs.processed").add(source.size());
+        metrics.counter("differential.pairs.filtered").add(source.size() - rightPairs);
+        return counters;
+    }
+
+    private boolean countPair(long firstCiphertext, long secondCiphertext, int[][] counters) {
+        long outputDifference = firstCiphertext ^ secondCiphertext;
+        // A right pair has no difference behind the inactive s-boxes
+        if ((outputDifference & inactiveMask) != 0) {
+            return false;
+        }
+        for (int i : activeSBoxes) {
+            if (ddt.getCount(getChunk(lastRoundInputDifference, i), getChunk(outputDifference, i)) == 0) {
+                return false;
+            }
+        }
+        int[] rightInputs = ddt.getSharedRightInputs();
+        for (int i : activeSBoxes) {
+            int inputDifference = getChunk(lastRoundInputDifference, i);
+            int chunkDifference = getChunk(outputDifference, i);
+            int ciphertext = getChunk(firstCiphertext, i);
+            int from = ddt.getRightInputsOffset(inputDifference, chunkDifference);
+            int to = from + ddt.getCount(inputDifference, chunkDifference);
+            for (int j = from; j < to; j++) {
+                counters[i][ciphertext ^ sBox[rightInputs[j]]]++;
+            }
+        }
+        return true;
+    }
+
+    private int getChunk(long block, int i) {
+        return (int) (block >>> spec.getSBoxShift(i)) & ((1 << spec.getSBoxInputSize()) - 1);
+    }
+
+    public int[] getActiveSBoxes() {
+        return activeSBoxes;
+    }
+}
@@ -0,0 +1,71 @@
+package org.suai.crypto.analysis;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class LinearApproximationTableBuilder {
+
+    private LinearApproximationTableBuilder() {}
+
+    // table[a][b] = #{x : parity(a & x) = parity(b & S(x))} - 2^(n-1), masks are packed with the leftmost bit as the highest one
+    public static int[][] build(int[] sBox, int sBoxInputSize) {
+        int size = 1 << sBoxInputSize;
+        if (sBox.length != size) {
+            throw new IllegalArgumentException("S-box must have " + size + " entries");
+        }
+        int[][] table = new int[size][size];
+        int[] spectrum = new int[size];
+        for (int outputMask = 0; outputMask < size; outputMask++) {
+            for (int x = 0; x < size; x++) {
+                spectrum[x] = (Integer.bitCount(sBox[x] & outputMask) & 1) == 0 ? 1 : -1;
+            }
+            walshHadamard(spectrum);
+            for (int inputMask = 0; inputMask < size; inputMask++) {
+                table[inputMask][outputMask] = spectrum[inputMask] / 2;
+            }
+        }
+        return table;
+    }
+
+    public static List<int[][]> buildAll(List<int[]> sBoxes, int sBoxInputSize) {
+        return sBoxes.parallelStream()
+                .map(sBox -> build(sBox, sBoxInputSize))
+                .collect(Collectors.toList());
+    }
+
+    public static void walshHadamard(int[] values) {
+        for (int step = 1; step < values.length; step <<= 1) {
+            for (int block = 0; block < values.length; block += step << 1) {
+                for (int i = block; i < block + step; i++) {
+                    int a = values[i];
+                    int b = values[i + step];
+                    values[i] = a + b;
+                    values[i + step] = a - b;
+                }
+            }
+        }
+    }
+
+    public static void walshHadamard(long[] values) {
+        for (int step = 1; step < values.length; step <<= 1) {
+            for (int block = 0; block < values.length; block += step << 1) {
+                for (int i = block; i < block + step; i++) {
+                    long a = values[i];
+                    long b = values[i + step];
+                    values[i] = a + b;
+                    values[i + step] = a - b;
+                }
+            }
+        }
+    }
+
+    public static int getLinearity(int[][] table) {
+        int linearity = 0;
+        for (int inputMask = 0; inputMask < table.length; inputMask++) {
+            for (int outputMask = 1; outputMask < table[inputMask].length; outputMask++) {
+                linearity = Math.max(linearity, Math.abs(table[inputMask][outputMask]));
+            }
+        }
+        return linearity;
+    }
+}
@@ -1,20 +1,28 @@
 package org.suai.crypto.analysis;
 
-import org.suai.crypto.spn.SubstitutionPermutationNetwork;
+import org.suai.crypto.data.ArrayPairSource;
+import org.suai.crypto.data.PairSource;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.metrics.MetricsRegistry;
+import org.suai.crypto.oracle.EncryptionOracle;
+import org.suai.crypto.spn.BlockCipher;
+import org.suai.crypto.spn.SBoxProvider;
 import org.suai.crypto.util.BinaryString;
+import org.suai.crypto.util.BitEquation;
 import org.suai.crypto.util.EquationElement;
 import org.suai.crypto.util.EquationElementType;
 import org.suai.crypto.util.LinearApproximation;
 
 import com.google.common.base.Splitter;
-import org.apache.commons.collections4.BidiMap;
 import org.apache.commons.collections4.IterableUtils;
+import org.apache.commons.math3.exception.MathArithmeticException;
 import org.apache.commons.math3.fraction.Fraction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -25,53 +33,53 @@ public class LinearCryptAnalyzer {
 
     private static final Logger logger = LoggerFactory.getLogger(LinearCryptAnalyzer.class);
 
-    private final SubstitutionPermutationNetwork spn;
+    private static final SplittableRandom SEED_SOURCE = new SplittableRandom();
 
-    public LinearCryptAnalyzer(SubstitutionPermutationNetwork spn) {
+    private final BlockCipher spn;
+    private MetricsRegistry metrics = MetricsRegistry.getDefault();
+    private SBoxTableCache tableCache = SBoxTableCache.getDefault();
+
+    public LinearCryptAnalyzer(BlockCipher spn) {
         this.spn = spn;
     }
 
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setTableCache(SBoxTableCache tableCache) {
+        this.tableCache = tableCache;
+    }
+
     public int[][] buildApproximationTable() {
-        BidiMap<String, String> sBox = spn.getSBox();
         int sBoxInputSize = spn.getSBoxInputSize();
+        int[][] biases = getBiases();
         int tableSize = (int) (Math.pow(2, sBoxInputSize) - 1);
+        int halfOfInputs = 1 << (sBoxInputSize - 1);
         int[][] table = new int[tableSize][tableSize];
         for (int i = 0; i < tableSize; i++) {
             for (int j = 0; j < tableSize; j++) {
-                int numberOfMatches = 0;
-                String inputMask = BinaryString.valueOf(i + 1, sBoxInputSize);
-                String outputMask = BinaryString.valueOf(j + 1, sBoxInputSize);
-                for (Map.Entry<String, String> entry : sBox.entrySet()) {
-                    String sBoxInput = entry.getKey();
-                    String sBoxOutput = entry.getValue();
-
-                    int inputCombination = getCombinationResult(inputMask, sBoxInput);
-                    int outputCombination = getCombinationResult(outputMask, sBoxOutput);
-
-                    if (inputCombination == outputCombination) {
-                        numberOfMatches++;
-                    }
-                }
-                table[i][j] = numberOfMatches;
+                table[i][j] = biases[i + 1][j + 1] + halfOfInputs;
             }
         }
         return table;
     }
 
-    private int getCombinationResult(String mask, String value) {
-        return IntStream.range(0, mask.length())
-                .map(i -> (int) mask.charAt(i) & (int) value.charAt(i))
-                .reduce(0, (a, b) -> a ^ b);
+    public Map<String, String> generateCiphertextAndPlaintext(int count, String key) {
+        return generateCiphertextAndPlaintext(count, key, SEED_SOURCE.nextLong());
     }
 
-    public Map<String, String> generateCiphertextAndPlaintext(int count, String key) {
-        Map<String, String> pairs = new HashMap<>();
+    public Map<String, String> generateCiphertextAndPlaintext(int count, String key, long seed) {
+        // Plaintexts are drawn without replacement, so the map really holds count pairs
         int blockSize = spn.getBlockSize();
-        for (int i = 0; i < count; i++) {
-            String plaintext = BinaryString.random(blockSize);
-            String ciphertext = spn.encrypt(plaintext, key);
-            pairs.put(plaintext, ciphertext);
-        }
+        PlaintextGenerator generator = new PlaintextGenerator(blockSize, seed, PlaintextGenerator.Mode.DISTINCT);
+        long numberOfPairs = Math.min(count, generator.getMaxCount());
+        Map<String, String> pairs = new LinkedHashMap<>();
+        metrics.timer("linear.data").time(() ->
+                generator.knownPairs(PlaintextGenerator.encryption(spn, Long.parseUnsignedLong(key, 2)), numberOfPairs)
+                        .forEach((plaintext, ciphertext) -> pairs.put(BinaryString.valueOf(plaintext, blockSize),
+                                BinaryString.valueOf(ciphertext, blockSize))));
+        metrics.counter("cipher.encryptions").add(numberOfPairs);
         return pairs;
     }
 
@@ -100,10 +108,24 @@ public class LinearCryptAnalyzer {
 
     public List<LinearApproximation> getKeyEquations(List<LinearApproximation> approximations,
                                                             Map<String, String> pairs) {
+        long[] plaintexts = new long[pairs.size()];
+        long[] ciphertexts = new long[pairs.size()];
+        int index = 0;
+        for (Map.Entry<String, String> entry : pairs.entrySet()) {
+            plaintexts[index] = Long.parseUnsignedLong(entry.getKey(), 2);
+            ciphertexts[index++] = Long.parseUnsignedLong(entry.getValue(), 2);
+        }
+        return getKeyEquations(approximations, new ArrayPairSource(plaintexts, ciphertexts));
+    }
+
+    public List<LinearApproximation> getKeyEquations(List<LinearApproximation> approximations, PairSource pairs) {
+        ApproximationEvaluator evaluator = new ApproximationEvaluator(approximations, spn.getBlockSize());
+        double[] leftPartStats = metrics.timer("linear.counting").time(() -> evaluator.getLeftPartStats(pairs));
+        metrics.counter("linear.pairs.processed").add(pairs.size());
         List<LinearApproximation> keyEquations = new ArrayList<>();
-        for (LinearApproximation approximation : approximations) {
-            double leftPartStats = getApproximationLeftPartStats(approximation, pairs);
-            int leftPartDecision = leftPartStats > 0.5 ? 1 : 0;
+        for (int i = 0; i < approximations.size(); i++) {
+            LinearApproximation approximation = approximations.get(i);
+            int leftPartDecision = leftPartStats[i] > 0.5 ? 1 : 0;
             int rightPartDecision = getRightPartDecision(approximation, leftPartDecision);
             LinearApproximation keyEquation = new LinearApproximation();
             keyEquation.setLeftPart(approximation.getRightPart());
@@ -115,6 +137,121 @@ public class LinearCryptAnalyzer {
         return keyEquations;
     }
 
+    public List<Trail> findBestTrails(int rounds, int topK) {
+        return tableCache.getTrails("linear", getSBoxTable(), spn.getSpec(), rounds, topK,
+                () -> searchTrails(rounds, topK));
+    }
+
+    private List<Trail> searchTrails(int rounds, int topK) {
+        double[][] weights = TrailSearch.getLinearWeights(getBiases(), spn.getSBoxInputSize());
+        TrailSearch search = new TrailSearch(spn.getSpec(), weights);
+        return metrics.timer("linear.trails").time(() -> search.search(rounds, topK));
+    }
+
+    public List<LinearApproximation> findBestApproximations(int topK) {
+        int[][] biases = getBiases();
+        List<LinearApproximation> result = new ArrayList<>();
+        for (Trail trail : findBestTrails(spn.getNumberOfRounds(), topK)) {
+            LinearApproximation approximation = toApproximation(trail, biases);
+            logger.debug("{} -> {}", trail, approximation);
+            result.add(approximation);
+        }
+        return result;
+    }
+
+    public List<SubKeyCandidate> recoverLastRoundKey(Trail trail, PairSource pairs, int topK) {
+        int sBoxInputSize = spn.getSBoxInputSize();
+        int[] sBox = SBoxProvider.toTable(spn.getSBox(), sBoxInputSize);
+        LinearKeyRecovery recovery = new LinearKeyRecovery(spn.getSpec(), sBox, trail);
+        List<SubKeyCandidate> candidates = metrics.timer("linear.counting").time(() -> recovery.recover(pairs, topK));
+        metrics.counter("linear.pairs.processed").add(pairs.size());
+        metrics.counter("linear.subkeys.kept").add(candidates.size());
+        return candidates;
+    }
+
+    // Known plaintexts are drawn from the oracle in batches until the last round key guess is significant
+    public OnlineAttackStatus recoverLastRoundKeyOnline(Trail trail, EncryptionOracle oracle, int batchSize,
+                                                        long maxPairs, long seed,
+                                                        Consumer<OnlineAttackStatus> listener) {
+        OnlineLinearAttack attack = new OnlineLinearAttack(spn.getSpec(), getSBoxTable(), trail);
+        PlaintextGenerator generator = new PlaintextGenerator(spn.getBlockSize(), seed, PlaintextGenerator.Mode.RANDOM);
+        OnlineAttackStatus status = attack.run(oracle, generator, batchSize, maxPairs, listener);
+        metrics.counter("oracle.queries").add(status.getNumberOfPairs());
+        metrics.counter("linear.pairs.processed").add(status.getNumberOfPairs());
+        return status;
+    }
+
+    public LinearApproximation toApproximation(Trail trail) {
+        return toApproximation(trail, getBiases());
+    }
+
+    private LinearApproximation toApproximation(Trail trail, int[][] biases) {
+        int numberOfRounds = spn.getNumberOfRounds();
+        if (trail.getNumberOfRounds() != numberOfRounds) {
+            throw new IllegalArgumentException("Trail must cover all " + numberOfRounds + " rounds");
+        }
+        // The same key is added before every round and after the last one
+        long keyMask = trail.getInput(0) ^ trail.getOutput(numberOfRounds - 1);
+        for (int round = 1; round < numberOfRounds; round++) {
+            keyMask ^= trail.getInput(round);
+        }
+        LinearApproximation approximation = new LinearApproximation();
+        getMaskElements(trail.getInput(0), PLAINTEXT).forEach(approximation::addToLeft);
+        getMaskElements(trail.getOutput(numberOfRounds - 1), CIPHERTEXT).forEach(approximation::addToLeft);
+        getMaskElements(keyMask, KEY).forEach(approximation::addToLeft);
+        approximation.toStandardForm();
+        approximation.setProbability(getTrailProbability(trail, biases));
+        return approximation;
+    }
+
+    private List<EquationElement> getMaskElements(long mask, EquationElementType type) {
+        int blockSize = spn.getBlockSize();
+        return IntStream.range(0, blockSize)
+                .filter(i -> (mask >>> (blockSize - 1 - i) & 1) != 0)
+                .mapToObj(i -> new EquationElement(i + 1, type))
+                .collect(Collectors.toList());
+    }
+
+    private Fraction getTrailProbability(Trail trail, int[][] biases) {
+        // Piling-Up Lemma: bias = 1/2 * product of 2 * (s-box bias)
+        int sBoxInputSize = spn.getSBoxInputSize();
+        int numberOfSBoxes = spn.getSpec().getNumberOfSBoxes();
+        Fraction bias = Fraction.ONE_HALF;
+        double approximateBias = 0.5;
+        boolean exact = true;
+        for (int round = 0; round < trail.getNumberOfRounds(); round++) {
+            for (int sBox = 0; sBox < numberOfSBoxes; sBox++) {
+                int shift = spn.getSpec().getSBoxShift(sBox);
+                int mask = (1 << sBoxInputSize) - 1;
+                int inputMask = (int) (trail.getInput(round) >>> shift) & mask;
+                int outputMask = (int) (trail.getOutput(round) >>> shift) & mask;
+                if (inputMask == 0) {
+                    continue;
+                }
+                int sBoxBias = biases[inputMask][outputMask];
+                approximateBias *= (double) sBoxBias / (1 << (sBoxInputSize - 1));
+                if (exact) {
+                    try {
+                        bias = bias.multiply(new Fraction(sBoxBias, 1 << (sBoxInputSize - 1)));
+                    } catch (MathArithmeticException e) {
+                        exact = false;
+                    }
+                }
+            }
+        }
+        return exact ? Fraction.ONE_HALF.add(bias) : new Fraction(0.5 + approximateBias, Integer.MAX_VALUE);
+    }
+
+    private int[][] getBiases() {
+        int[] sBox = getSBoxTable();
+        return metrics.timer("linear.table").time(() ->
+                tableCache.getLinearApproximationTable(sBox, spn.getSBoxInputSize()));
+    }
+
+    private int[] getSBoxTable() {
+        return SBoxProvider.toTable(spn.getSBox(), spn.getSBoxInputSize());
+    }
+
     public List<LinearApproximation> getSPNApproximations(int[][] table, List<String> inputBlocks) {
         List<LinearApproximation> result = new ArrayList<>();
         for (String inputBlock : inputBlocks) {
@@ -168,10 +305,7 @@ public class LinearCryptAnalyzer {
         }
 
         LinearApproximation resultApproximation = combineApproximations(approximations);
-
-        resultApproximation.simplify();
         logger.debug("Result approximation (simplified): {}", resultApproximation);
-        resultApproximation.toStandardForm();
 
         logger.debug("Calculation result approximation probability by Piling-Up Lemma...");
         Fraction resultProbability = getSPNApproximationProbability(approximations);
@@ -274,54 +408,19 @@ public class LinearCryptAnalyzer {
         return Fraction.ONE_HALF.add(probability);
     }
 
+    // Every U and V variable shows up in exactly two round approximations of a connected trail,
+    // so summing all of them as bit vectors leaves only plaintext, ciphertext and key bits
     private LinearApproximation combineApproximations(Map<Integer, List<LinearApproximation>> approximations) {
-        Map.Entry<Integer, List<LinearApproximation>> candidateForCombine = findApproximationForCombine(approximations);
-        LinearApproximation approximationForCombine = candidateForCombine.getValue().get(0);
-        int roundNumber = candidateForCombine.getKey();
-
-        LinearApproximation resultApproximation = new LinearApproximation(approximationForCombine);
-        List<LinearApproximation> usedApproximations = new ArrayList<>();
-        usedApproximations.add(resultApproximation);
-
-        int iterations = approximations.size() - 1;
-        resultApproximation.moveAllToLeft();
-        for (int i = 0; i < iterations; i++) {
-            List<EquationElement> updatedPart = new ArrayList<>();
-            List<EquationElement> replacedElements = new ArrayList<>();
-            for (EquationElement element : resultApproximation.getLeftPart()) {
-                if (element.getType() == PLAINTEXT ||
-                        element.getType() == CIPHERTEXT ||
-                        element.getType() == KEY) {
-                    continue;
-                }
-
-                int approximationIndex = element.getRoundNumber() < roundNumber ?
-                        element.getRoundNumber(): element.getRoundNumber() + 1;
-
-                List<LinearApproximation> roundApproximations = approximations.get(approximationIndex);
-
-                for (LinearApproximation approximation : roundApproximations) {
-                    List<EquationElement> targetPart = element.getRoundNumber() < roundNumber ?
-                            approximation.getLeftPart() : approximation.getRightPart();
-                    if (targetPart.contains(element) &&
-                            !usedApproximations.contains(approximation)) {
-                        LinearApproximation replacementEquation = approximation.moveToLeft(element);
-                        LinearApproximation temp = new LinearApproximation();
-                        temp.addToLeft(element);
-                        temp = temp.replaceInLeft(replacementEquation);
-                        updatedPart.addAll(temp.getLeftPart());
-                        usedApproximations.add(approximation);
-                        replacedElements.add(element);
-                    }
-                }
+        findApproximationForCombine(approximations);
+        int blockSize = spn.getBlockSize();
+        int numberOfRounds = spn.getNumberOfRounds();
+        BitEquation result = new BitEquation(blockSize, numberOfRounds);
+        for (List<LinearApproximation> roundApproximations : approximations.values()) {
+            for (LinearApproximation approximation : roundApproximations) {
+                result = result.xor(BitEquation.of(approximation, blockSize, numberOfRounds));
             }
-            resultApproximation.getLeftPart()
-                    .stream()
-                    .filter(element -> !replacedElements.contains(element))
-                    .forEach(updatedPart::add);
-            resultApproximation.setLeftPart(updatedPart);
         }
-        return resultApproximation;
+        return result.toApproximation();
     }
 
     private Map.Entry<Integer, List<LinearApproximation>> findApproximationForCombine(
@@ -340,7 +439,7 @@ public class LinearCryptAnalyzer {
             return minIndex;
         }
         int maxIndex = indexOfMax(table[row]);
-        if (table[row][maxIndex] == 8) {
+        if (table[row][maxIndex] == 1 << spn.getSBoxInputSize()) {
             return maxIndex;
         }
         return minIndex;
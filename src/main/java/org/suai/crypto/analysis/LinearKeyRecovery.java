@@ -0,0 +1,173 @@
+package org.suai.crypto.analysis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.data.PairSource;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SBoxProvider;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Matsui's Algorithm 2: an (R-1)-round trail plus a guess of the last round key bits
+// behind its active s-boxes. Pairs are first compressed into a signed histogram over
+// the active ciphertext bits, so ranking all guesses costs O(m * 2^m) for m active bits
+// no matter how many pairs there are.
+public class LinearKeyRecovery {
+    private static final Logger logger = LoggerFactory.getLogger(LinearKeyRecovery.class);
+
+    private static final int MAX_ACTIVE_BITS = 20;
+
+    private final SpnSpec spec;
+    private final long plaintextMask;
+    private final long lastRoundMask;
+    private final int[] activeSBoxes;
+    private final int activeBits;
+    private final long[] signs;
+
+    public LinearKeyRecovery(SpnSpec spec, int[] sBoxTable, Trail trail) {
+        if (trail.getNumberOfRounds() != spec.getNumberOfRounds() - 1) {
+            throw new IllegalArgumentException("Trail must cover " + (spec.getNumberOfRounds() - 1) + " rounds");
+        }
+        this.spec = spec;
+        BitPackedSubstitutionPermutationNetwork cipher = new BitPackedSubstitutionPermutationNetwork(sBoxTable, spec);
+        this.plaintextMask = trail.getInput(0);
+        this.lastRoundMask = cipher.permute(trail.getOutput(trail.getNumberOfRounds() - 1));
+        this.activeSBoxes = IntStream.range(0, spec.getNumberOfSBoxes())
+                .filter(sBox -> getChunk(lastRoundMask, sBox) != 0)
+                .toArray();
+        this.activeBits = activeSBoxes.length * spec.getSBoxInputSize();
+        if (activeBits > MAX_ACTIVE_BITS) {
+            throw new IllegalArgumentException("Too many active ciphertext bits: " + activeBits);
+        }
+        this.signs = buildSigns(SBoxProvider.invert(sBoxTable));
+    }
+
+    // signs[y] = (-1)^(lastRoundMask . S^-1(y)) for the packed active bits y
+    private long[] buildSigns(int[] inverseSBox) {
+        int w = spec.getSBoxInputSize();
+        int chunkMask = (1 << w) - 1;
+        long[] result = new long[1 << activeBits];
+        for (int y = 0; y < result.length; y++) {
+            int parity = 0;
+            for (int i = 0; i < activeSBoxes.length; i++) {
+                int chunk = y >>> (activeSBoxes.length - 1 - i) * w & chunkMask;
+                parity ^= Integer.bitCount(getChunk(lastRoundMask, activeSBoxes[i]) & inverseSBox[chunk]) & 1;
+            }
+            result[y] = parity == 0 ? 1 : -1;
+        }
+        return result;
+    }
+
+    // histogram[x] = sum of (-1)^(plaintextMask . p) over the pairs whose active ciphertext bits are x
+    public long[] compress(PairSource source) {
+        int parts = Math.max(1, Runtime.getRuntime().availableProcessors());
+        return source.split(parts).parallelStream()
+                .map(part -> {
+                    long[] histogram = new long[1 << activeBits];
+                    part.forEach((plaintext, ciphertext) -> {
+                        int index = extractActiveBits(ciphertext);
+                        histogram[index] += (Long.bitCount(plaintext & plaintextMask) & 1) == 0 ? 1 : -1;
+                    });
+                    return histogram;
+                })
+                .reduce(LinearKeyRecovery::merge)
+                .orElseGet(() -> new long[1 << activeBits]);
+    }
+
+    private static long[] merge(long[] first, long[] second) {
+        for (int i = 0; i < first.length; i++) {
+            first[i] += second[i];
+        }
+        return first;
+    }
+
+    // correlations[g] = sum over x of histogram[x] * signs[x ^ g], an XOR convolution done with the
+    // Walsh-Hadamard transform
+    public long[] getCorrelations(long[] histogram) {
+        long[] transformedHistogram = histogram.clone();
+        long[] transformedSigns = signs.clone();
+        LinearApproximationTableBuilder.walshHadamard(transformedHistogram);
+        LinearApproximationTableBuilder.walshHadamard(transformedSigns);
+        for (int i = 0; i < transformedHistogram.length; i++) {
+            transformedHistogram[i] *= transformedSigns[i];
+        }
+        LinearApproximationTableBuilder.walshHadamard(transformedHistogram);
+        for (int i = 0; i < transformedHistogram.length; i++) {
+            transformedHistogram[i] >>= activeBits;
+        }
+        return transformedHistogram;
+    }
+
+    public List<SubKeyCandidate> recover(PairSource source, int topK) {
+        return recover(getCorrelations(compress(source)), source.size(), topK);
+    }
+
+    public List<SubKeyCandidate> recover(long[] correlations, long numberOfPairs, int topK) {
+        long mask = getActiveKeyMask();
+        List<SubKeyCandidate> candidates = new ArrayList<>();
+        for (int guess = 0; guess < correlations.length; guess++) {
+            // The sign only depends on the unknown key parity, so guesses are ranked by |bias|
+            double bias = numberOfPairs == 0 ? 0 : Math.abs(correlations[guess]) / (2.0 * numberOfPairs);
+            candidates.add(new SubKeyCandidate(depositActiveBits(guess), mask, bias));
+        }
+        candidates.sort(Comparator.comparingDouble(SubKeyCandidate::getScore).reversed());
+        List<SubKeyCandidate> result = new ArrayList<>(candidates.subList(0, Math.min(topK, candidates.size())));
+        logger.debug("Best last round sub keys: {}", result);
+        return result;
+    }
+
+    // 1 for a key whose guess scores strictly best, ties count against it
+    public int getKeyRank(long[] correlations, long key) {
+        int right = extractActiveBits(key);
+        long score = Math.abs(correlations[right]);
+        int rank = 1;
+        for (int guess = 0; guess < correlations.length; guess++) {
+            if (guess != right && Math.abs(correlations[guess]) >= score) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    private int extractActiveBits(long block) {
+        int result = 0;
+        for (int sBox : activeSBoxes) {
+            result = result << spec.getSBoxInputSize() | getChunk(block, sBox);
+        }
+        return result;
+    }
+
+    private long depositActiveBits(int value) {
+        int w = spec.getSBoxInputSize();
+        long result = 0;
+        for (int i = 0; i < activeSBoxes.length; i++) {
+            long chunk = value >>> (activeSBoxes.length - 1 - i) * w & ((1 << w) - 1);
+            result |= chunk << spec.getSBoxShift(activeSBoxes[i]);
+        }
+        return result;
+    }
+
+    private int getChunk(long block, int sBox) {
+        return (int) (block >>> spec.getSBoxShift(sBox)) & ((1 << spec.getSBoxInputSize()) - 1);
+    }
+
+    public long getActiveKeyMask() {
+        return depositActiveBits((1 << activeBits) - 1);
+    }
+
+    public long getPlaintextMask() {
+        return plaintextMask;
+    }
+
+    public long getLastRoundMask() {
+        return lastRoundMask;
+    }
+
+    public int getNumberOfActiveBits() {
+        return activeBits;
+    }
+}
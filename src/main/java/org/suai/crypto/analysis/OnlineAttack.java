@@ -0,0 +1,78 @@
+package org.suai.crypto.analysis;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.oracle.EncryptionOracle;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Queries the oracle a batch at a time and stops as soon as the leading guess of every key part is
+// significant. The error probability 1 - confidence is split over all the guesses and over the looks
+// (look t gets a share of 1 / (t (t + 1))), so stopping at the first significant look keeps it, up to
+// the normal approximation of the scores.
+public abstract class OnlineAttack {
+    private static final Logger logger = LoggerFactory.getLogger(OnlineAttack.class);
+
+    private static final NormalDistribution NORMAL = new NormalDistribution(null, 0, 1);
+
+    private double confidence = 0.99;
+    private int rankingSize = 4;
+
+    public void setConfidence(double confidence) {
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1: " + confidence);
+        }
+        this.confidence = confidence;
+    }
+
+    public void setRankingSize(int rankingSize) {
+        this.rankingSize = rankingSize;
+    }
+
+    protected int getRankingSize() {
+        return Math.max(2, rankingSize);
+    }
+
+    public OnlineAttackStatus run(EncryptionOracle oracle, PlaintextGenerator generator, int batchSize,
+                                  long maxPairs, Consumer<OnlineAttackStatus> listener) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (maxPairs <= 0) {
+            throw new IllegalArgumentException("Maximum number of pairs must be positive: " + maxPairs);
+        }
+        long numberOfPairs = 0;
+        int look = 0;
+        OnlineAttackStatus status = null;
+        while (numberOfPairs < maxPairs) {
+            int count = (int) Math.min(batchSize, maxPairs - numberOfPairs);
+            update(oracle, generator, numberOfPairs, count);
+            numberOfPairs += count;
+            look++;
+            status = new OnlineAttackStatus(look, numberOfPairs, estimate(numberOfPairs, getCriticalValue(look)));
+            listener.accept(status);
+            if (status.isSignificant()) {
+                logger.debug("Significant after {} pairs", numberOfPairs);
+                break;
+            }
+        }
+        return status;
+    }
+
+    // Two-sided normal quantile for the share of the error probability of this look
+    double getCriticalValue(int look) {
+        double alpha = (1 - confidence) / getNumberOfCandidates() / ((double) look * (look + 1));
+        return NORMAL.inverseCumulativeProbability(1 - alpha / 2);
+    }
+
+    // Adds count pairs starting at plaintext index from
+    protected abstract void update(EncryptionOracle oracle, PlaintextGenerator generator, long from, int count);
+
+    protected abstract List<OnlineEstimate> estimate(long numberOfPairs, double criticalValue);
+
+    // Guesses over all key parts
+    protected abstract long getNumberOfCandidates();
+}
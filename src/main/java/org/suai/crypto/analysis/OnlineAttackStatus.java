@@ -0,0 +1,50 @@
+package org.suai.crypto.analysis;
+
+import java.util.List;
+
+public class OnlineAttackStatus {
+    private final int look;
+    private final long numberOfPairs;
+    private final List<OnlineEstimate> estimates;
+
+    public OnlineAttackStatus(int look, long numberOfPairs, List<OnlineEstimate> estimates) {
+        this.look = look;
+        this.numberOfPairs = numberOfPairs;
+        this.estimates = estimates;
+    }
+
+    // Number of batches processed so far
+    public int getLook() {
+        return look;
+    }
+
+    public long getNumberOfPairs() {
+        return numberOfPairs;
+    }
+
+    public List<OnlineEstimate> getEstimates() {
+        return estimates;
+    }
+
+    public boolean isSignificant() {
+        return !estimates.isEmpty() && estimates.stream().allMatch(OnlineEstimate::isSignificant);
+    }
+
+    public long getKeyMask() {
+        return estimates.stream().mapToLong(estimate -> estimate.getLeader().getMask()).reduce(0, (a, b) -> a | b);
+    }
+
+    // Leading guesses of all parts together
+    public long getKey() {
+        return estimates.stream().mapToLong(estimate -> estimate.getLeader().getSubKey()).reduce(0, (a, b) -> a | b);
+    }
+
+    public String toString(int blockSize) {
+        StringBuilder result = new StringBuilder(String.format("Look %d, %d pairs%s", look, numberOfPairs,
+                isSignificant() ? ", significant" : ""));
+        for (OnlineEstimate estimate : estimates) {
+            result.append(System.lineSeparator()).append("  ").append(estimate.toString(blockSize));
+        }
+        return result.toString();
+    }
+}
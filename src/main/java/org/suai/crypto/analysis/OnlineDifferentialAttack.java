@@ -0,0 +1,80 @@
+package org.suai.crypto.analysis;
+
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.oracle.EncryptionOracle;
+import org.suai.crypto.spn.SpnSpec;
+import org.suai.crypto.util.Proportions;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Last round key counting on a growing set of chosen plaintext pairs. A pair adds at most one to
+// the counter of a guess, so counter / N is a proportion and gets a Wilson score interval.
+public class OnlineDifferentialAttack extends OnlineAttack {
+    private final SpnSpec spec;
+    private final long inputDifference;
+    private final DifferentialKeyCounter counter;
+    private final long[][] counters;
+
+    public OnlineDifferentialAttack(SpnSpec spec, int[] sBox, DifferenceDistributionTable ddt,
+                                    long inputDifference, long lastRoundInputDifference) {
+        this.spec = spec;
+        this.inputDifference = inputDifference;
+        this.counter = new DifferentialKeyCounter(spec, sBox, ddt, lastRoundInputDifference);
+        this.counters = new long[spec.getNumberOfSBoxes()][1 << spec.getSBoxInputSize()];
+    }
+
+    @Override
+    protected void update(EncryptionOracle oracle, PlaintextGenerator generator, long from, int count) {
+        long[][] batch = counter.count(generator.differencePairs(oracle, inputDifference, from, count));
+        for (int sBox : counter.getActiveSBoxes()) {
+            for (int guess = 0; guess < counters[sBox].length; guess++) {
+                counters[sBox][guess] += batch[sBox][guess];
+            }
+        }
+    }
+
+    @Override
+    protected List<OnlineEstimate> estimate(long numberOfPairs, double criticalValue) {
+        List<OnlineEstimate> estimates = new ArrayList<>();
+        int w = spec.getSBoxInputSize();
+        for (int sBox : counter.getActiveSBoxes()) {
+            long[] sBoxCounters = counters[sBox];
+            int shift = spec.getSBoxShift(sBox);
+            long mask = (long) ((1 << w) - 1) << shift;
+            List<Integer> guesses = IntStream.range(0, sBoxCounters.length).boxed()
+                    .sorted(Comparator.comparingLong((Integer guess) -> sBoxCounters[guess]).reversed())
+                    .limit(getRankingSize())
+                    .collect(Collectors.toList());
+            List<SubKeyCandidate> ranking = new ArrayList<>();
+            double[] lowerBounds = new double[guesses.size()];
+            double[] upperBounds = new double[guesses.size()];
+            for (int i = 0; i < guesses.size(); i++) {
+                int guess = guesses.get(i);
+                double rate = (double) sBoxCounters[guess] / numberOfPairs;
+                ranking.add(new SubKeyCandidate((long) guess << shift, mask, rate));
+                double[] interval = Proportions.getWilsonInterval(rate, numberOfPairs, criticalValue);
+                lowerBounds[i] = interval[0];
+                upperBounds[i] = interval[1];
+            }
+            // Counters are close to Poisson, so their difference deviates by about sqrt(c1 + c2)
+            long leader = sBoxCounters[guesses.get(0)];
+            long runnerUp = sBoxCounters[guesses.get(1)];
+            boolean significant = leader - runnerUp > criticalValue * Math.sqrt(leader + runnerUp);
+            estimates.add(new OnlineEstimate(ranking, lowerBounds, upperBounds, significant));
+        }
+        return estimates;
+    }
+
+    @Override
+    protected long getNumberOfCandidates() {
+        return (long) counter.getActiveSBoxes().length << spec.getSBoxInputSize();
+    }
+
+    public long[][] getCounters() {
+        return counters;
+    }
+}
@@ -0,0 +1,53 @@
+package org.suai.crypto.analysis;
+
+import java.util.List;
+
+// Current ranking of the guesses for one part of the key (a trail or an s-box) with a confidence
+// interval around every score
+public class OnlineEstimate {
+    private final List<SubKeyCandidate> ranking;
+    private final double[] lowerBounds;
+    private final double[] upperBounds;
+    private final boolean significant;
+
+    public OnlineEstimate(List<SubKeyCandidate> ranking, double[] lowerBounds, double[] upperBounds,
+                          boolean significant) {
+        this.ranking = ranking;
+        this.lowerBounds = lowerBounds;
+        this.upperBounds = upperBounds;
+        this.significant = significant;
+    }
+
+    public SubKeyCandidate getLeader() {
+        return ranking.get(0);
+    }
+
+    // The leader beats the runner-up by more than the noise of their difference
+    public boolean isSignificant() {
+        return significant;
+    }
+
+    public List<SubKeyCandidate> getRanking() {
+        return ranking;
+    }
+
+    public double getLowerBound(int rank) {
+        return lowerBounds[rank];
+    }
+
+    public double getUpperBound(int rank) {
+        return upperBounds[rank];
+    }
+
+    public String toString(int blockSize) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < ranking.size(); i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(String.format("%s [%.4f, %.4f]", ranking.get(i).toString(blockSize),
+                    lowerBounds[i], upperBounds[i]));
+        }
+        return result.toString();
+    }
+}
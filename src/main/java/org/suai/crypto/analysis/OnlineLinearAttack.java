@@ -0,0 +1,58 @@
+package org.suai.crypto.analysis;
+
+import org.suai.crypto.data.PairSource;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.oracle.EncryptionOracle;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.Collections;
+import java.util.List;
+
+// Matsui's Algorithm 2 on a growing set of known pairs. Only the compressed histogram is kept, so a
+// look costs one Walsh-Hadamard convolution no matter how many pairs came before.
+public class OnlineLinearAttack extends OnlineAttack {
+    private final LinearKeyRecovery recovery;
+    private final long[] histogram;
+
+    public OnlineLinearAttack(SpnSpec spec, int[] sBoxTable, Trail trail) {
+        this.recovery = new LinearKeyRecovery(spec, sBoxTable, trail);
+        this.histogram = new long[1 << recovery.getNumberOfActiveBits()];
+    }
+
+    @Override
+    protected void update(EncryptionOracle oracle, PlaintextGenerator generator, long from, int count) {
+        PairSource pairs = generator.knownPairs(oracle, from, count);
+        long[] batch = recovery.compress(pairs);
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += batch[i];
+        }
+    }
+
+    @Override
+    protected List<OnlineEstimate> estimate(long numberOfPairs, double criticalValue) {
+        long[] correlations = recovery.getCorrelations(histogram);
+        List<SubKeyCandidate> ranking = recovery.recover(correlations, numberOfPairs, getRankingSize());
+        // Every bias estimate is a mean of numberOfPairs signs / 2, its deviation is at most 1 / (2 sqrt(N))
+        double halfWidth = criticalValue / (2 * Math.sqrt(numberOfPairs));
+        double[] lowerBounds = new double[ranking.size()];
+        double[] upperBounds = new double[ranking.size()];
+        for (int i = 0; i < ranking.size(); i++) {
+            lowerBounds[i] = Math.max(0, ranking.get(i).getScore() - halfWidth);
+            upperBounds[i] = Math.min(0.5, ranking.get(i).getScore() + halfWidth);
+        }
+        // The signs of two guesses agree on about half of the pairs, so the difference of their
+        // biases deviates by about 1 / sqrt(2N)
+        boolean significant = ranking.size() > 1 &&
+                ranking.get(0).getScore() - ranking.get(1).getScore() > criticalValue / Math.sqrt(2.0 * numberOfPairs);
+        return Collections.singletonList(new OnlineEstimate(ranking, lowerBounds, upperBounds, significant));
+    }
+
+    @Override
+    protected long getNumberOfCandidates() {
+        return histogram.length;
+    }
+
+    public LinearKeyRecovery getRecovery() {
+        return recovery;
+    }
+}
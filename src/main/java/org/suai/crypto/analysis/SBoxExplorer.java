@@ -0,0 +1,276 @@
+package org.suai.crypto.analysis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.metrics.MetricsRegistry;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Walks through bijective s-boxes of the network's size and groups them into affine equivalence classes
+// (S and B(S(A(x))) for affine bijections A and B share linearity, uniformity and the table spectra).
+// Trail weights are not shared: the bit permutation doesn't commute with A and B, so the members of one
+// class lead to different trails. Every class is represented by the member with the heaviest trails.
+public class SBoxExplorer {
+    private static final Logger logger = LoggerFactory.getLogger(SBoxExplorer.class);
+
+    // 8! permutations fit into a bit set, 16! do not
+    private static final int MAX_ENUMERATED_INPUT_SIZE = 3;
+
+    private final SpnSpec spec;
+    private final int sBoxInputSize;
+    private final int trailRounds;
+    private final MetricsRegistry metrics;
+
+    // trailRounds = 0 skips the trail search, the trail weights are NaN then
+    public SBoxExplorer(SpnSpec spec, int trailRounds) {
+        this.spec = spec;
+        this.sBoxInputSize = spec.getSBoxInputSize();
+        this.trailRounds = trailRounds;
+        this.metrics = MetricsRegistry.getDefault();
+    }
+
+    // Every bijective s-box is visited: the whole class of the first unvisited one by rank is marked
+    // at once as the orbit of the affine maps around it, and all of its members are examined
+    public List<SBoxProfile> enumerate() {
+        if (sBoxInputSize > MAX_ENUMERATED_INPUT_SIZE) {
+            throw new IllegalArgumentException("Can't enumerate " + sBoxInputSize + "-bit s-boxes, sample them");
+        }
+        int size = 1 << sBoxInputSize;
+        int count = factorial(size);
+        List<int[]> affineMaps = getAffineMaps(sBoxInputSize);
+        BitSet visited = new BitSet(count);
+        List<List<int[]>> classes = new ArrayList<>();
+        for (int rank = visited.nextClearBit(0); rank < count; rank = visited.nextClearBit(rank + 1)) {
+            int[] sBox = unrank(rank, size);
+            BitSet orbit = affineMaps.parallelStream().collect(BitSet::new, (bits, inner) -> {
+                for (int[] outer : affineMaps) {
+                    bits.set(rank(compose(outer, sBox, inner)));
+                }
+            }, BitSet::or);
+            visited.or(orbit);
+            classes.add(orbit.stream().mapToObj(member -> unrank(member, size)).collect(Collectors.toList()));
+        }
+        logger.debug("{} classes of {}-bit s-boxes", classes.size(), sBoxInputSize);
+        return profile(classes, false);
+    }
+
+    // Random bijections, merged when their DDT values and |LAT| values have the same distribution.
+    // Equivalent s-boxes always merge, but two classes with equal spectra merge as well,
+    // so the number of profiles is a lower bound on the number of classes seen. Only the drawn
+    // members of a group are examined, so its trail weights are a lower bound for the group.
+    public List<SBoxProfile> sample(int count, long seed) {
+        int size = 1 << sBoxInputSize;
+        SplittableRandom random = new SplittableRandom(seed);
+        List<int[]> sBoxes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sBoxes.add(randomPermutation(size, random));
+        }
+        List<String> invariants = sBoxes.parallelStream()
+                .map(sBox -> getInvariant(sBox, sBoxInputSize))
+                .collect(Collectors.toList());
+        Map<String, List<int[]>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            groups.computeIfAbsent(invariants.get(i), invariant -> new ArrayList<>()).add(sBoxes.get(i));
+        }
+        logger.debug("{} distinct spectra among {} random {}-bit s-boxes", groups.size(), count, sBoxInputSize);
+        return profile(new ArrayList<>(groups.values()), true);
+    }
+
+    // Enumerated classes are complete, sampled groups only hold the drawn s-boxes
+    private List<SBoxProfile> profile(List<List<int[]>> classes, boolean sampled) {
+        return metrics.timer("sbox.profiles").time(() -> classes.parallelStream()
+                .map(members -> profileClass(members, sampled))
+                .sorted(SBoxProfile.RANKING)
+                .collect(Collectors.toList()));
+    }
+
+    // The member with the heaviest linear trail, then the heaviest characteristic, the earliest one on ties
+    private SBoxProfile profileClass(List<int[]> members, boolean sampled) {
+        long classSize = sampled ? 0 : members.size();
+        long numberOfDraws = sampled ? members.size() : 0;
+        if (trailRounds <= 0) {
+            return profile(members.get(0), Double.NaN, Double.NaN, classSize, numberOfDraws);
+        }
+        // Trails only depend on |LAT| and the DDT, and the affine constants leave both unchanged
+        Map<String, int[]> distinct = new LinkedHashMap<>();
+        for (int[] member : members) {
+            distinct.putIfAbsent(getTableKey(member, sBoxInputSize), member);
+        }
+        List<double[]> weights = distinct.values().parallelStream()
+                .map(member -> new double[]{
+                        getBestWeight(TrailSearch.getLinearWeights(
+                                LinearApproximationTableBuilder.build(member, sBoxInputSize), sBoxInputSize)),
+                        getBestWeight(TrailSearch.getDifferentialWeights(
+                                getDifferenceCounts(member, sBoxInputSize), sBoxInputSize))})
+                .collect(Collectors.toList());
+        int[] best = null;
+        double[] bestWeights = null;
+        int i = 0;
+        for (int[] member : distinct.values()) {
+            double[] memberWeights = weights.get(i++);
+            if (best == null || memberWeights[0] > bestWeights[0]
+                    || (memberWeights[0] == bestWeights[0] && memberWeights[1] > bestWeights[1])) {
+                best = member;
+                bestWeights = memberWeights;
+            }
+        }
+        return profile(best, bestWeights[0], bestWeights[1], classSize, numberOfDraws);
+    }
+
+    private SBoxProfile profile(int[] sBox, double linearTrailWeight, double differentialTrailWeight,
+                                long classSize, long numberOfDraws) {
+        int[][] biases = LinearApproximationTableBuilder.build(sBox, sBoxInputSize);
+        int[][] counts = getDifferenceCounts(sBox, sBoxInputSize);
+        int uniformity = 0;
+        for (int inputDifference = 1; inputDifference < counts.length; inputDifference++) {
+            for (int count : counts[inputDifference]) {
+                uniformity = Math.max(uniformity, count);
+            }
+        }
+        return new SBoxProfile(sBox, sBoxInputSize, LinearApproximationTableBuilder.getLinearity(biases),
+                uniformity, linearTrailWeight, differentialTrailWeight, classSize, numberOfDraws);
+    }
+
+    private double getBestWeight(double[][] weights) {
+        List<Trail> trails = new TrailSearch(spec, weights).search(trailRounds, 1);
+        return trails.isEmpty() ? Double.POSITIVE_INFINITY : trails.get(0).getWeight();
+    }
+
+    // The DDT alone, without the right inputs that DifferenceDistributionTable keeps for key counting
+    static int[][] getDifferenceCounts(int[] sBox, int sBoxInputSize) {
+        int size = 1 << sBoxInputSize;
+        int[][] counts = new int[size][size];
+        for (int inputDifference = 0; inputDifference < size; inputDifference++) {
+            for (int x = 0; x < size; x++) {
+                counts[inputDifference][sBox[x] ^ sBox[x ^ inputDifference]]++;
+            }
+        }
+        return counts;
+    }
+
+    private static String getTableKey(int[] sBox, int sBoxInputSize) {
+        StringBuilder key = new StringBuilder();
+        for (int[] row : LinearApproximationTableBuilder.build(sBox, sBoxInputSize)) {
+            for (int bias : row) {
+                key.append(Math.abs(bias)).append(',');
+            }
+        }
+        return key.append(Arrays.deepToString(getDifferenceCounts(sBox, sBoxInputSize))).toString();
+    }
+
+    // Affine maps permute the rows and columns of both tables and flip LAT signs
+    static String getInvariant(int[] sBox, int sBoxInputSize) {
+        int size = 1 << sBoxInputSize;
+        int[] differences = new int[size + 1];
+        for (int[] row : getDifferenceCounts(sBox, sBoxInputSize)) {
+            for (int count : row) {
+                differences[count]++;
+            }
+        }
+        int[] biases = new int[size / 2 + 1];
+        for (int[] row : LinearApproximationTableBuilder.build(sBox, sBoxInputSize)) {
+            for (int bias : row) {
+                biases[Math.abs(bias)]++;
+            }
+        }
+        return Arrays.toString(differences) + Arrays.toString(biases);
+    }
+
+    // x -> L(x) ^ c for every invertible matrix L, given by the images of the unit vectors, and every constant c
+    static List<int[]> getAffineMaps(int sBoxInputSize) {
+        int size = 1 << sBoxInputSize;
+        List<int[]> maps = new ArrayList<>();
+        int[] columns = new int[sBoxInputSize];
+        for (long choice = 0; choice < 1L << (sBoxInputSize * sBoxInputSize); choice++) {
+            for (int bit = 0; bit < sBoxInputSize; bit++) {
+                columns[bit] = (int) (choice >>> (bit * sBoxInputSize)) & (size - 1);
+            }
+            int[] linear = new int[size];
+            BitSet images = new BitSet(size);
+            for (int x = 0; x < size; x++) {
+                for (int bit = 0; bit < sBoxInputSize; bit++) {
+                    if ((x >>> bit & 1) != 0) {
+                        linear[x] ^= columns[bit];
+                    }
+                }
+                images.set(linear[x]);
+            }
+            if (images.cardinality() != size) {
+                continue;
+            }
+            for (int constant = 0; constant < size; constant++) {
+                int[] map = new int[size];
+                for (int x = 0; x < size; x++) {
+                    map[x] = linear[x] ^ constant;
+                }
+                maps.add(map);
+            }
+        }
+        return maps;
+    }
+
+    private static int[] compose(int[] outer, int[] sBox, int[] inner) {
+        int[] result = new int[sBox.length];
+        for (int x = 0; x < sBox.length; x++) {
+            result[x] = outer[sBox[inner[x]]];
+        }
+        return result;
+    }
+
+    // Lexicographic rank of a permutation (its Lehmer code read as a factorial number)
+    static int rank(int[] permutation) {
+        int rank = 0;
+        for (int i = 0; i < permutation.length; i++) {
+            int smaller = 0;
+            for (int j = i + 1; j < permutation.length; j++) {
+                if (permutation[j] < permutation[i]) {
+                    smaller++;
+                }
+            }
+            rank = rank * (permutation.length - i) + smaller;
+        }
+        return rank;
+    }
+
+    static int[] unrank(int rank, int size) {
+        int[] digits = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            digits[i] = rank % (size - i);
+            rank /= size - i;
+        }
+        List<Integer> remaining = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = remaining.remove(digits[i]);
+        }
+        return permutation;
+    }
+
+    private static int[] randomPermutation(int size, SplittableRandom random) {
+        int[] permutation = IntStream.range(0, size).toArray();
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = value;
+        }
+        return permutation;
+    }
+
+    private static int factorial(int n) {
+        int result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+}
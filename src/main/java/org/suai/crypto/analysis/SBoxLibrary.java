@@ -0,0 +1,101 @@
+package org.suai.crypto.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+// Ranked s-box profiles in a binary file: magic, version, s-box input size and count, then one record
+// per profile in rank order: the s-box values as bytes, linearity, uniformity, both trail weights, the size
+// of the enumerated affine class and the number of random draws in the sampled group (one of the two is 0)
+public class SBoxLibrary {
+    private static final int MAGIC = 0x5342584C; // SBXL
+    // 2: class size and number of draws are stored separately
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    // S-box values are written as bytes
+    private static final int MAX_INPUT_SIZE = Byte.SIZE;
+
+    private SBoxLibrary() {}
+
+    public static void write(Path path, List<SBoxProfile> profiles) throws IOException {
+        int sBoxInputSize = profiles.isEmpty() ? 0 : profiles.get(0).getSBoxInputSize();
+        if (sBoxInputSize > MAX_INPUT_SIZE) {
+            throw new IllegalArgumentException("S-boxes wider than " + MAX_INPUT_SIZE + " bits don't fit into bytes");
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sBoxInputSize);
+            out.writeInt(profiles.size());
+            for (SBoxProfile profile : profiles) {
+                if (profile.getSBoxInputSize() != sBoxInputSize) {
+                    throw new IllegalArgumentException("All s-boxes must have " + sBoxInputSize + "-bit inputs");
+                }
+                for (int value : profile.getSBox()) {
+                    out.writeByte(value);
+                }
+                out.writeInt(profile.getLinearity());
+                out.writeInt(profile.getDifferentialUniformity());
+                out.writeDouble(profile.getLinearTrailWeight());
+                out.writeDouble(profile.getDifferentialTrailWeight());
+                out.writeLong(profile.getClassSize());
+                out.writeLong(profile.getNumberOfDraws());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static List<SBoxProfile> read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an s-box library: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported s-box library version " + version + ": " + path);
+            }
+            int sBoxInputSize = in.readInt();
+            int count = in.readInt();
+            // An empty library is written with input size 0
+            if (sBoxInputSize < 0 || sBoxInputSize > MAX_INPUT_SIZE || (sBoxInputSize == 0 && count != 0)) {
+                throw new IOException("Invalid s-box input size " + sBoxInputSize + ": " + path);
+            }
+            // Compared by division, a corrupt count must not overflow past the check
+            long recordBytes = (1L << sBoxInputSize) + 2 * Integer.BYTES + 2 * Double.BYTES + 2 * Long.BYTES;
+            if (count < 0 || count > (Files.size(path) - HEADER_BYTES) / recordBytes) {
+                throw new IOException(count + " records of " + recordBytes + " bytes don't fit into "
+                        + Files.size(path) + " bytes: " + path);
+            }
+            List<SBoxProfile> profiles = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int[] sBox = new int[1 << sBoxInputSize];
+                BitSet values = new BitSet(sBox.length);
+                for (int x = 0; x < sBox.length; x++) {
+                    sBox[x] = in.readUnsignedByte();
+                    if (sBox[x] >= sBox.length || values.get(sBox[x])) {
+                        throw new IOException("S-box " + i + " is not a permutation: " + path);
+                    }
+                    values.set(sBox[x]);
+                }
+                profiles.add(new SBoxProfile(sBox, sBoxInputSize, in.readInt(), in.readInt(),
+                        in.readDouble(), in.readDouble(), in.readLong(), in.readLong()));
+            }
+            return Collections.unmodifiableList(profiles);
+        }
+    }
+}
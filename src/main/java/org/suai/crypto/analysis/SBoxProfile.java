@@ -0,0 +1,102 @@
+package org.suai.crypto.analysis;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// A group of s-boxes with the same linearity and uniformity: an enumerated affine class of classSize
+// s-boxes, or numberOfDraws sampled s-boxes with equal spectra (the other count is 0). The trail
+// weights belong to getSBox(), the member with the heaviest trails among those examined.
+public class SBoxProfile {
+    // Lower linearity and uniformity first, then heavier best trails (NaN when trails were not searched)
+    public static final Comparator<SBoxProfile> RANKING = Comparator
+            .comparingInt(SBoxProfile::getLinearity)
+            .thenComparingInt(SBoxProfile::getDifferentialUniformity)
+            .thenComparing(SBoxProfile::getLinearTrailWeight, Comparator.reverseOrder())
+            .thenComparing(SBoxProfile::getDifferentialTrailWeight, Comparator.reverseOrder());
+
+    private final int[] sBox;
+    private final int sBoxInputSize;
+    private final int linearity;
+    private final int differentialUniformity;
+    private final double linearTrailWeight;
+    private final double differentialTrailWeight;
+    private final long classSize;
+    private final long numberOfDraws;
+
+    public SBoxProfile(int[] sBox, int sBoxInputSize, int linearity, int differentialUniformity,
+                       double linearTrailWeight, double differentialTrailWeight, long classSize,
+                       long numberOfDraws) {
+        this.sBox = sBox;
+        this.sBoxInputSize = sBoxInputSize;
+        this.linearity = linearity;
+        this.differentialUniformity = differentialUniformity;
+        this.linearTrailWeight = linearTrailWeight;
+        this.differentialTrailWeight = differentialTrailWeight;
+        this.classSize = classSize;
+        this.numberOfDraws = numberOfDraws;
+    }
+
+    public int[] getSBox() {
+        return sBox;
+    }
+
+    public int getSBoxInputSize() {
+        return sBoxInputSize;
+    }
+
+    // Largest |LAT| entry over non-zero output masks
+    public int getLinearity() {
+        return linearity;
+    }
+
+    public int getDifferentialUniformity() {
+        return differentialUniformity;
+    }
+
+    // Weight of the best linear trail through the network with getSBox(), -log2 of its correlation
+    public double getLinearTrailWeight() {
+        return linearTrailWeight;
+    }
+
+    // Weight of the best differential characteristic through the network with getSBox(), -log2 of its probability
+    public double getDifferentialTrailWeight() {
+        return differentialTrailWeight;
+    }
+
+    // Size of the whole affine class, 0 when the group was sampled
+    public long getClassSize() {
+        return classSize;
+    }
+
+    // Random s-boxes that fell into the group, 0 when the class was enumerated
+    public long getNumberOfDraws() {
+        return numberOfDraws;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SBoxProfile that = (SBoxProfile) o;
+        return sBoxInputSize == that.sBoxInputSize &&
+                linearity == that.linearity &&
+                differentialUniformity == that.differentialUniformity &&
+                Double.compare(that.linearTrailWeight, linearTrailWeight) == 0 &&
+                Double.compare(that.differentialTrailWeight, differentialTrailWeight) == 0 &&
+                classSize == that.classSize &&
+                numberOfDraws == that.numberOfDraws &&
+                Arrays.equals(sBox, that.sBox);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(sBox) + Long.hashCode(classSize)) + Long.hashCode(numberOfDraws);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s linearity %d, uniformity %d, trail weights %.2f / %.2f, %s",
+                Arrays.toString(sBox), linearity, differentialUniformity, linearTrailWeight,
+                differentialTrailWeight, numberOfDraws == 0 ? "class of " + classSize : numberOfDraws + " draw(s)");
+    }
+}
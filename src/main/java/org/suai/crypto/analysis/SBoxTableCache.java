@@ -0,0 +1,283 @@
+package org.suai.crypto.analysis;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.spn.SpnSpec;
+import org.suai.crypto.util.LruCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Tables derived from an s-box, keyed by a SHA-256 fingerprint of it. Recently used tables stay in memory,
+// and with a directory every table is also stored on disk, so later runs skip building it.
+// Cached tables are shared and must not be modified.
+public class SBoxTableCache {
+    private static final Logger logger = LoggerFactory.getLogger(SBoxTableCache.class);
+
+    private static final int MAGIC = 0x53425443; // SBTC
+    // 2: trails with equal weights are ordered by their masks
+    private static final int VERSION = 2;
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private static final SBoxTableCache DEFAULT = new SBoxTableCache(DEFAULT_CAPACITY,
+            System.getProperty("spn.cache.dir") == null ? null : Paths.get(System.getProperty("spn.cache.dir")));
+
+    private final LruCache<String, Object> tables;
+    private final Path directory;
+    private final AtomicLong diskHits = new AtomicLong();
+
+    public SBoxTableCache(int capacity) {
+        this(capacity, null);
+    }
+
+    public SBoxTableCache(int capacity, Path directory) {
+        this.tables = new LruCache<>(capacity);
+        this.directory = directory;
+    }
+
+    // Memory only, unless the spn.cache.dir system property names a directory
+    public static SBoxTableCache getDefault() {
+        return DEFAULT;
+    }
+
+    public static String fingerprint(int[] sBox, int sBoxInputSize) {
+        Hasher hasher = Hashing.sha256().newHasher().putInt(sBoxInputSize);
+        for (int value : sBox) {
+            hasher.putInt(value);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static String fingerprint(SpnSpec spec) {
+        Hasher hasher = Hashing.sha256().newHasher()
+                .putInt(spec.getBlockSize())
+                .putInt(spec.getNumberOfRounds())
+                .putInt(spec.getSBoxInputSize());
+        for (int bit : spec.getBitPermutation()) {
+            hasher.putInt(bit);
+        }
+        return hasher.hash().toString().substring(0, 16);
+    }
+
+    public int[][] getLinearApproximationTable(int[] sBox, int sBoxInputSize) {
+        int size = 1 << sBoxInputSize;
+        return get(fingerprint(sBox, sBoxInputSize) + ".lat",
+                in -> readMatrix(in, size), SBoxTableCache::writeMatrix,
+                () -> LinearApproximationTableBuilder.build(sBox, sBoxInputSize));
+    }
+
+    public DifferenceDistributionTable getDifferenceDistributionTable(int[] sBox, int sBoxInputSize) {
+        return get(fingerprint(sBox, sBoxInputSize) + ".ddt",
+                in -> readDifferenceDistributionTable(in, sBoxInputSize),
+                (out, table) -> {
+                    writeMatrix(out, table.getSharedCounts());
+                    writeArray(out, table.getSharedRightInputs());
+                },
+                () -> DifferenceDistributionTable.build(sBox, sBoxInputSize));
+    }
+
+    // Trail search results also depend on the network and on which table the weights came from
+    public List<Trail> getTrails(String kind, int[] sBox, SpnSpec spec, int rounds, int topK,
+                                 Supplier<List<Trail>> search) {
+        TrailSearch.checkArguments(rounds, topK);
+        String name = String.format("%s-%s-%s-%d-%d.trails",
+                fingerprint(sBox, spec.getSBoxInputSize()), kind, fingerprint(spec), rounds, topK);
+        return get(name, in -> readTrails(in, rounds, topK), SBoxTableCache::writeTrails,
+                () -> Collections.unmodifiableList(new ArrayList<>(search.get())));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String name, TableReader<T> reader, TableWriter<T> writer, Supplier<T> builder) {
+        return (T) tables.computeIfAbsent(name, key -> {
+            T table = readFromDisk(name, reader);
+            if (table == null) {
+                table = builder.get();
+                writeToDisk(name, writer, table);
+            }
+            return table;
+        });
+    }
+
+    private <T> T readFromDisk(String name, TableReader<T> reader) {
+        if (directory == null) {
+            return null;
+        }
+        Path path = directory.resolve(name);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.debug("Ignoring {}: unknown format", path);
+                return null;
+            }
+            T table = reader.read(in);
+            diskHits.incrementAndGet();
+            return table;
+        } catch (IOException e) {
+            // A broken file is rebuilt and overwritten
+            logger.debug("Cannot read {}", path, e);
+            return null;
+        }
+    }
+
+    private <T> void writeToDisk(String name, TableWriter<T> writer, T table) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, name, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writer.write(out, table);
+            }
+            // Readers in other processes never see a partially written file
+            Files.move(temporary, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Cannot store {} in {}: {}", name, directory, e.getMessage());
+        }
+    }
+
+    // Lengths are checked before anything is allocated, so a corrupt file is rebuilt instead of failing the run
+    private static int[] readArray(DataInputStream in, int length) throws IOException {
+        checkLength(in.readInt(), length);
+        int[] values = new int[length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeArray(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[][] readMatrix(DataInputStream in, int size) throws IOException {
+        checkLength(in.readInt(), size);
+        int[][] rows = new int[size][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = readArray(in, size);
+        }
+        return rows;
+    }
+
+    private static void checkLength(int length, int expected) throws IOException {
+        if (length != expected) {
+            throw new IOException("Expected " + expected + " entries, found " + length);
+        }
+    }
+
+    // Every row of counts adds up to the s-box size and the right inputs are s-box inputs
+    private static DifferenceDistributionTable readDifferenceDistributionTable(DataInputStream in, int sBoxInputSize)
+            throws IOException {
+        int size = 1 << sBoxInputSize;
+        int[][] counts = readMatrix(in, size);
+        for (int[] row : counts) {
+            int total = 0;
+            for (int count : row) {
+                if (count < 0) {
+                    throw new IOException("Negative count: " + count);
+                }
+                total += count;
+            }
+            checkLength(total, size);
+        }
+        int[] rightInputs = readArray(in, size * size);
+        for (int input : rightInputs) {
+            if (input < 0 || input >= size) {
+                throw new IOException("Not an s-box input: " + input);
+            }
+        }
+        return DifferenceDistributionTable.of(sBoxInputSize, counts, rightInputs);
+    }
+
+    private static void writeMatrix(DataOutputStream out, int[][] rows) throws IOException {
+        out.writeInt(rows.length);
+        for (int[] row : rows) {
+            writeArray(out, row);
+        }
+    }
+
+    private static List<Trail> readTrails(DataInputStream in, int expectedRounds, int topK) throws IOException {
+        int count = in.readInt();
+        int rounds = in.readInt();
+        if (count < 0 || count > topK || (count > 0 && rounds != expectedRounds)) {
+            throw new IOException(String.format("Expected up to %d trails over %d rounds, found %d over %d",
+                    topK, expectedRounds, count, rounds));
+        }
+        List<Trail> trails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double weight = in.readDouble();
+            long[] inputs = new long[rounds];
+            long[] outputs = new long[rounds];
+            for (int round = 0; round < rounds; round++) {
+                inputs[round] = in.readLong();
+                outputs[round] = in.readLong();
+            }
+            trails.add(new Trail(inputs, outputs, weight));
+        }
+        return Collections.unmodifiableList(trails);
+    }
+
+    private static void writeTrails(DataOutputStream out, List<Trail> trails) throws IOException {
+        out.writeInt(trails.size());
+        out.writeInt(trails.isEmpty() ? 0 : trails.get(0).getNumberOfRounds());
+        for (Trail trail : trails) {
+            out.writeDouble(trail.getWeight());
+            for (int round = 0; round < trail.getNumberOfRounds(); round++) {
+                out.writeLong(trail.getInput(round));
+                out.writeLong(trail.getOutput(round));
+            }
+        }
+    }
+
+    public void clear() {
+        tables.clear();
+    }
+
+    public long getHits() {
+        return tables.getHits();
+    }
+
+    public long getMisses() {
+        return tables.getMisses();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @FunctionalInterface
+    private interface TableReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface TableWriter<T> {
+        void write(DataOutputStream out, T table) throws IOException;
+    }
+}
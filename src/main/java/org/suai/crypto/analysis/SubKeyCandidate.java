@@ -0,0 +1,39 @@
+package org.suai.crypto.analysis;
+
+public class SubKeyCandidate {
+    private final long subKey;
+    private final long mask;
+    private final double score;
+
+    public SubKeyCandidate(long subKey, long mask, double score) {
+        this.subKey = subKey;
+        this.mask = mask;
+        this.score = score;
+    }
+
+    // Guessed key bits in their block positions, bits outside of the mask are zero
+    public long getSubKey() {
+        return subKey;
+    }
+
+    public long getMask() {
+        return mask;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public String toString(int blockSize) {
+        StringBuilder bits = new StringBuilder();
+        for (int i = blockSize - 1; i >= 0; i--) {
+            bits.append((mask >>> i & 1) == 0 ? '*' : (char) ('0' + (subKey >>> i & 1)));
+        }
+        return String.format("%s (score = %.4f)", bits, score);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SubKeyCandidate(subKey = %x, mask = %x, score = %.4f)", subKey, mask, score);
+    }
+}
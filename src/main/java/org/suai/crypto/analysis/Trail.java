@@ -0,0 +1,61 @@
+package org.suai.crypto.analysis;
+
+import java.util.Arrays;
+
+public class Trail {
+    private final long[] inputs;
+    private final long[] outputs;
+    private final double weight;
+
+    public Trail(long[] inputs, long[] outputs, double weight) {
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.weight = weight;
+    }
+
+    public int getNumberOfRounds() {
+        return inputs.length;
+    }
+
+    // Mask or difference entering the s-box layer of the given round (0-based)
+    public long getInput(int round) {
+        return inputs[round];
+    }
+
+    public long getOutput(int round) {
+        return outputs[round];
+    }
+
+    public long[] getInputs() {
+        return inputs;
+    }
+
+    public long[] getOutputs() {
+        return outputs;
+    }
+
+    // -log2 of the trail correlation (linear) or probability (differential)
+    public double getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Trail(weight = %.3f, inputs = %s, outputs = %s)", weight,
+                Arrays.toString(Arrays.stream(inputs).mapToObj(Long::toHexString).toArray()),
+                Arrays.toString(Arrays.stream(outputs).mapToObj(Long::toHexString).toArray()));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Trail trail = (Trail) o;
+        return Arrays.equals(inputs, trail.inputs) && Arrays.equals(outputs, trail.outputs);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(inputs) + Arrays.hashCode(outputs);
+    }
+}
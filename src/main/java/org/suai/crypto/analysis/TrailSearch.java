@@ -0,0 +1,299 @@
+package org.suai.crypto.analysis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Branch-and-bound search of the best trails through the s-box layers (Matsui's algorithm).
+// Transition weights are -log2 of a correlation or probability, so trail weights add up.
+public class TrailSearch {
+    private static final Logger logger = LoggerFactory.getLogger(TrailSearch.class);
+
+    private static final double EPSILON = 1e-9;
+    // Equal weights are broken by the masks, so the top trails don't depend on the order the tasks finish in
+    private static final Comparator<Trail> ORDER = Comparator.comparingDouble(Trail::getWeight)
+            .thenComparing(Trail::getInputs, Arrays::compare)
+            .thenComparing(Trail::getOutputs, Arrays::compare);
+
+    private final SpnSpec spec;
+    private final int numberOfSBoxes;
+    private final int[] shifts;
+    private final long[][] permutationTable;
+    private final Transition[][] transitions;
+    private final Transition[] allTransitions;
+    private final double[] minWeights;
+    private final double maxWeight;
+
+    public TrailSearch(SpnSpec spec, double[][] weights) {
+        this(spec, weights, Double.POSITIVE_INFINITY);
+    }
+
+    public TrailSearch(SpnSpec spec, double[][] weights, double maxWeight) {
+        this.spec = spec;
+        this.maxWeight = maxWeight;
+        this.numberOfSBoxes = spec.getNumberOfSBoxes();
+        this.shifts = new int[numberOfSBoxes];
+        for (int i = 0; i < numberOfSBoxes; i++) {
+            shifts[i] = spec.getSBoxShift(i);
+        }
+        int size = 1 << spec.getSBoxInputSize();
+        this.transitions = new Transition[size][];
+        this.minWeights = new double[size];
+        List<Transition> all = new ArrayList<>();
+        for (int input = 1; input < size; input++) {
+            List<Transition> row = new ArrayList<>();
+            for (int output = 1; output < size; output++) {
+                if (Double.isFinite(weights[input][output])) {
+                    row.add(new Transition(input, output, weights[input][output]));
+                }
+            }
+            row.sort(Comparator.comparingDouble(t -> t.weight));
+            transitions[input] = row.toArray(new Transition[0]);
+            minWeights[input] = row.isEmpty() ? Double.POSITIVE_INFINITY : row.get(0).weight;
+            all.addAll(row);
+        }
+        all.sort(Comparator.comparingDouble(t -> t.weight));
+        this.allTransitions = all.toArray(new Transition[0]);
+        this.permutationTable = buildPermutationTable(spec);
+    }
+
+    // Correlation of an s-box approximation is bias / 2^(n-1), the weight is -log2 of its magnitude
+    public static double[][] getLinearWeights(int[][] biases, int sBoxInputSize) {
+        int size = 1 << sBoxInputSize;
+        double[][] weights = new double[size][size];
+        for (int inputMask = 0; inputMask < size; inputMask++) {
+            for (int outputMask = 0; outputMask < size; outputMask++) {
+                int bias = Math.abs(biases[inputMask][outputMask]);
+                weights[inputMask][outputMask] = bias == 0 ? Double.POSITIVE_INFINITY
+                        : sBoxInputSize - 1 - Math.log(bias) / Math.log(2);
+            }
+        }
+        return weights;
+    }
+
+    // -log2 of the probability count / 2^n of an s-box differential
+    public static double[][] getDifferentialWeights(int[][] counts, int sBoxInputSize) {
+        int size = 1 << sBoxInputSize;
+        double[][] weights = new double[size][size];
+        for (int inputDifference = 0; inputDifference < size; inputDifference++) {
+            for (int outputDifference = 0; outputDifference < size; outputDifference++) {
+                int count = counts[inputDifference][outputDifference];
+                weights[inputDifference][outputDifference] = count == 0 ? Double.POSITIVE_INFINITY
+                        : sBoxInputSize - Math.log(count) / Math.log(2);
+            }
+        }
+        return weights;
+    }
+
+    public List<Trail> search(int rounds, int topK) {
+        checkArguments(rounds, topK);
+        // Best weights for fewer rounds bound the rest of every partial trail
+        double[] bounds = new double[rounds];
+        for (int k = 1; k < rounds; k++) {
+            List<Trail> best = search(k, 1, bounds);
+            bounds[k] = best.isEmpty() ? maxWeight : best.get(0).getWeight();
+            logger.debug("Best {}-round trail weight: {}", k, bounds[k]);
+        }
+        List<Trail> result = search(rounds, topK, bounds);
+        logger.debug("Found {} trail(s) over {} rounds", result.size(), rounds);
+        return result;
+    }
+
+    // Without a kept trail there is no threshold, and the search would not be pruned at all
+    static void checkArguments(int rounds, int topK) {
+        if (rounds < 1) {
+            throw new IllegalArgumentException("Number of rounds must be positive: " + rounds);
+        }
+        if (topK < 1) {
+            throw new IllegalArgumentException("Number of trails must be positive: " + topK);
+        }
+    }
+
+    private List<Trail> search(int rounds, int topK, double[] bounds) {
+        TopTrails top = new TopTrails(topK);
+        // Every first-round choice of the first active s-box roots an independent subtree
+        List<Runnable> tasks = new ArrayList<>();
+        for (Transition transition : allTransitions) {
+            for (int sBox = 0; sBox < numberOfSBoxes; sBox++) {
+                int first = sBox;
+                tasks.add(() -> {
+                    Search search = new Search(rounds, bounds, top);
+                    search.extendFirstRound(first + 1,
+                            (long) transition.input << shifts[first],
+                            (long) transition.output << shifts[first],
+                            transition.weight);
+                });
+            }
+        }
+        tasks.parallelStream().forEach(Runnable::run);
+        return top.toList();
+    }
+
+    public long permute(long block) {
+        long result = 0;
+        for (int i = 0; i < numberOfSBoxes; i++) {
+            result |= permutationTable[i][getSBoxValue(block, i)];
+        }
+        return result;
+    }
+
+    public int getSBoxValue(long block, int sBox) {
+        return (int) (block >>> shifts[sBox]) & ((1 << spec.getSBoxInputSize()) - 1);
+    }
+
+    private static long[][] buildPermutationTable(SpnSpec spec) {
+        int blockSize = spec.getBlockSize();
+        int[] bitPermutation = spec.getBitPermutation();
+        int size = 1 << spec.getSBoxInputSize();
+        long[][] table = new long[spec.getNumberOfSBoxes()][size];
+        for (int sBox = 0; sBox < table.length; sBox++) {
+            int shift = spec.getSBoxShift(sBox);
+            for (int value = 0; value < size; value++) {
+                long block = (long) value << shift;
+                long result = 0;
+                for (int i = 0; i < blockSize; i++) {
+                    // String index i is bit (blockSize - 1 - i) of the packed block
+                    if ((block >>> (blockSize - 1 - i) & 1) != 0) {
+                        result |= 1L << (blockSize - 1 - bitPermutation[i]);
+                    }
+                }
+                table[sBox][value] = result;
+            }
+        }
+        return table;
+    }
+
+    private class Search {
+        private final int rounds;
+        private final double[] bounds;
+        private final TopTrails top;
+        private final long[] inputs;
+        private final long[] outputs;
+
+        private Search(int rounds, double[] bounds, TopTrails top) {
+            this.rounds = rounds;
+            this.bounds = bounds;
+            this.top = top;
+            this.inputs = new long[rounds];
+            this.outputs = new long[rounds];
+        }
+
+        private void extendFirstRound(int sBox, long input, long output, double weight) {
+            if (top.isPruned(weight + bounds[rounds - 1])) {
+                return;
+            }
+            if (sBox == numberOfSBoxes) {
+                inputs[0] = input;
+                outputs[0] = output;
+                nextRound(1, weight);
+                return;
+            }
+            // Inactive first, so the first complete trails are sparse and tighten the bound early
+            extendFirstRound(sBox + 1, input, output, weight);
+            for (Transition transition : allTransitions) {
+                if (top.isPruned(weight + transition.weight + bounds[rounds - 1])) {
+                    break;
+                }
+                extendFirstRound(sBox + 1,
+                        input | (long) transition.input << shifts[sBox],
+                        output | (long) transition.output << shifts[sBox],
+                        weight + transition.weight);
+            }
+        }
+
+        private void nextRound(int round, double weight) {
+            if (round == rounds) {
+                top.offer(new Trail(inputs.clone(), outputs.clone(), weight));
+                return;
+            }
+            long input = permute(outputs[round - 1]);
+            inputs[round] = input;
+            double activeBound = 0;
+            for (int sBox = 0; sBox < numberOfSBoxes; sBox++) {
+                activeBound += minWeights[getSBoxValue(input, sBox)];
+            }
+            extendRound(round, 0, 0, weight, activeBound);
+        }
+
+        private void extendRound(int round, int sBox, long output, double weight, double activeBound) {
+            double remainingBound = bounds[rounds - round - 1];
+            if (top.isPruned(weight + activeBound + remainingBound)) {
+                return;
+            }
+            int input = sBox < numberOfSBoxes ? getSBoxValue(inputs[round], sBox) : 0;
+            while (sBox < numberOfSBoxes && input == 0) {
+                sBox++;
+                input = sBox < numberOfSBoxes ? getSBoxValue(inputs[round], sBox) : 0;
+            }
+            if (sBox == numberOfSBoxes) {
+                outputs[round] = output;
+                nextRound(round + 1, weight);
+                return;
+            }
+            double restBound = activeBound - minWeights[input];
+            for (Transition transition : transitions[input]) {
+                double extended = weight + transition.weight;
+                if (top.isPruned(extended + restBound + remainingBound)) {
+                    break;
+                }
+                extendRound(round, sBox + 1, output | (long) transition.output << shifts[sBox], extended, restBound);
+            }
+        }
+    }
+
+    private class TopTrails {
+        private final int capacity;
+        private final PriorityQueue<Trail> trails = new PriorityQueue<>(ORDER.reversed());
+        private volatile double threshold = maxWeight;
+
+        private TopTrails(int capacity) {
+            this.capacity = capacity;
+        }
+
+        // Ties with the worst kept trail are not pruned, they may still win on the masks
+        private boolean isPruned(double weight) {
+            return weight > threshold + EPSILON;
+        }
+
+        private synchronized void offer(Trail trail) {
+            if (isPruned(trail.getWeight())) {
+                return;
+            }
+            if (trails.size() < capacity) {
+                trails.add(trail);
+            } else if (capacity > 0 && ORDER.compare(trail, trails.peek()) < 0) {
+                trails.poll();
+                trails.add(trail);
+            } else {
+                return;
+            }
+            if (trails.size() == capacity) {
+                threshold = trails.peek().getWeight();
+            }
+        }
+
+        private synchronized List<Trail> toList() {
+            List<Trail> result = new ArrayList<>(trails);
+            result.sort(ORDER);
+            return result;
+        }
+    }
+
+    private static class Transition {
+        private final int input;
+        private final int output;
+        private final double weight;
+
+        private Transition(int input, int output, double weight) {
+            this.input = input;
+            this.output = output;
+            this.weight = weight;
+        }
+    }
+}
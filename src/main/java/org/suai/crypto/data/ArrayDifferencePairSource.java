@@ -0,0 +1,61 @@
+package org.suai.crypto.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ArrayDifferencePairSource implements DifferencePairSource {
+    private final long[] plaintexts;
+    private final long[] firstCiphertexts;
+    private final long[] secondCiphertexts;
+    private final long inputDifference;
+    private final int from;
+    private final int to;
+
+    // The second plaintext of pair i is plaintexts[i] ^ inputDifference
+    public ArrayDifferencePairSource(long[] plaintexts, long[] firstCiphertexts, long[] secondCiphertexts,
+                                     long inputDifference) {
+        this(plaintexts, firstCiphertexts, secondCiphertexts, inputDifference, 0, plaintexts.length);
+        if (plaintexts.length != firstCiphertexts.length || plaintexts.length != secondCiphertexts.length) {
+            throw new IllegalArgumentException("Plaintexts and ciphertexts differ in length");
+        }
+    }
+
+    private ArrayDifferencePairSource(long[] plaintexts, long[] firstCiphertexts, long[] secondCiphertexts,
+                                      long inputDifference, int from, int to) {
+        this.plaintexts = plaintexts;
+        this.firstCiphertexts = firstCiphertexts;
+        this.secondCiphertexts = secondCiphertexts;
+        this.inputDifference = inputDifference;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public long size() {
+        return to - from;
+    }
+
+    @Override
+    public long getInputDifference() {
+        return inputDifference;
+    }
+
+    @Override
+    public void forEach(DifferencePairConsumer consumer) {
+        for (int i = from; i < to; i++) {
+            consumer.accept(plaintexts[i], firstCiphertexts[i], plaintexts[i] ^ inputDifference, secondCiphertexts[i]);
+        }
+    }
+
+    @Override
+    public List<DifferencePairSource> split(int parts) {
+        int count = Math.max(1, Math.min(parts, to - from));
+        List<DifferencePairSource> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(new ArrayDifferencePairSource(plaintexts, firstCiphertexts, secondCiphertexts, inputDifference,
+                    from + (int) ((long) (to - from) * i / count),
+                    from + (int) ((long) (to - from) * (i + 1) / count)));
+        }
+        return result;
+    }
+}
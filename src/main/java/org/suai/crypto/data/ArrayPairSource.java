@@ -0,0 +1,57 @@
+package org.suai.crypto.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ArrayPairSource implements PairSource {
+    private final long[] plaintexts;
+    private final long[] ciphertexts;
+    private final int from;
+    private final int to;
+
+    public ArrayPairSource(long[] plaintexts, long[] ciphertexts) {
+        this(plaintexts, ciphertexts, 0, plaintexts.length);
+        if (plaintexts.length != ciphertexts.length) {
+            throw new IllegalArgumentException("Plaintexts and ciphertexts differ in length");
+        }
+    }
+
+    // Only the first size elements of the arrays are used, so the arrays may be reused buffers
+    public ArrayPairSource(long[] plaintexts, long[] ciphertexts, int size) {
+        this(plaintexts, ciphertexts, 0, size);
+        if (size > plaintexts.length || size > ciphertexts.length) {
+            throw new IllegalArgumentException("Size exceeds the arrays: " + size);
+        }
+    }
+
+    private ArrayPairSource(long[] plaintexts, long[] ciphertexts, int from, int to) {
+        this.plaintexts = plaintexts;
+        this.ciphertexts = ciphertexts;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public long size() {
+        return to - from;
+    }
+
+    @Override
+    public void forEach(PairConsumer consumer) {
+        for (int i = from; i < to; i++) {
+            consumer.accept(plaintexts[i], ciphertexts[i]);
+        }
+    }
+
+    @Override
+    public List<PairSource> split(int parts) {
+        int count = Math.max(1, Math.min(parts, to - from));
+        List<PairSource> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(new ArrayPairSource(plaintexts, ciphertexts,
+                    from + (int) ((long) (to - from) * i / count),
+                    from + (int) ((long) (to - from) * (i + 1) / count)));
+        }
+        return result;
+    }
+}
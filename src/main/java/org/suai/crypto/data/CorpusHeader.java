@@ -0,0 +1,125 @@
+package org.suai.crypto.data;
+
+import org.suai.crypto.spn.SpnSpec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class CorpusHeader {
+
+    public static final int SIZE = 128;
+
+    private static final int MAGIC = 0x53504E43; // "SPNC"
+    private static final short VERSION = 1;
+
+    public enum Type {
+        // plaintext, ciphertext
+        KNOWN(2),
+        // plaintext, ciphertext, ciphertext of (plaintext ^ input difference)
+        DIFFERENCE(3);
+
+        private final int blocksPerRecord;
+
+        Type(int blocksPerRecord) {
+            this.blocksPerRecord = blocksPerRecord;
+        }
+
+        public int getBlocksPerRecord() {
+            return blocksPerRecord;
+        }
+    }
+
+    private final Type type;
+    private final SpnSpec spec;
+    private final long inputDifference;
+    private final long count;
+
+    public CorpusHeader(Type type, SpnSpec spec, long inputDifference, long count) {
+        this.type = type;
+        this.spec = spec;
+        this.inputDifference = inputDifference;
+        this.count = count;
+    }
+
+    public CorpusHeader withCount(long count) {
+        return new CorpusHeader(type, spec, inputDifference, count);
+    }
+
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put((byte) type.ordinal());
+        buffer.put((byte) getBlockBytes());
+        buffer.putInt(spec.getBlockSize());
+        buffer.putInt(spec.getNumberOfRounds());
+        buffer.putInt(spec.getSBoxInputSize());
+        buffer.putLong(inputDifference);
+        buffer.putLong(count);
+        for (int target : spec.getBitPermutation()) {
+            buffer.put((byte) target);
+        }
+        while (buffer.position() < SIZE) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    public static CorpusHeader read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a pair corpus");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported corpus version: " + version);
+        }
+        int typeIndex = buffer.get();
+        if (typeIndex < 0 || typeIndex >= Type.values().length) {
+            throw new IOException("Unknown corpus type: " + typeIndex);
+        }
+        Type type = Type.values()[typeIndex];
+        buffer.get();
+        int blockSize = buffer.getInt();
+        // The bit permutation has to fit into the rest of the header
+        if (blockSize < 1 || blockSize > Long.SIZE) {
+            throw new IOException("Invalid corpus block size: " + blockSize);
+        }
+        int numberOfRounds = buffer.getInt();
+        int sBoxInputSize = buffer.getInt();
+        long inputDifference = buffer.getLong();
+        long count = buffer.getLong();
+        int[] bitPermutation = new int[blockSize];
+        for (int i = 0; i < blockSize; i++) {
+            bitPermutation[i] = buffer.get() & 0xFF;
+        }
+        SpnSpec spec;
+        try {
+            spec = new SpnSpec(blockSize, numberOfRounds, sBoxInputSize, bitPermutation);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid corpus network: " + e.getMessage(), e);
+        }
+        return new CorpusHeader(type, spec, inputDifference, count);
+    }
+
+    public int getBlockBytes() {
+        return (spec.getBlockSize() + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    public int getRecordSize() {
+        return type.getBlocksPerRecord() * getBlockBytes();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public SpnSpec getSpec() {
+        return spec;
+    }
+
+    public long getInputDifference() {
+        return inputDifference;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
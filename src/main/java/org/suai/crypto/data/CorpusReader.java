@@ -0,0 +1,168 @@
+package org.suai.crypto.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CorpusReader implements Closeable {
+
+    private final CorpusHeader header;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long recordsPerSegment;
+    private final int recordSize;
+    private final int blockBytes;
+
+    public CorpusReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer headerBuffer = ByteBuffer.allocate(CorpusHeader.SIZE);
+            while (headerBuffer.hasRemaining()) {
+                if (channel.read(headerBuffer) < 0) {
+                    throw new IOException("Corpus header is truncated");
+                }
+            }
+            headerBuffer.flip();
+            this.header = CorpusHeader.read(headerBuffer);
+            this.recordSize = header.getRecordSize();
+            this.blockBytes = header.getBlockBytes();
+            // Compared by division, a corrupt count must not overflow past the check
+            long count = header.getCount();
+            if (count < 0 || count > (channel.size() - CorpusHeader.SIZE) / recordSize) {
+                throw new IOException("Corpus is truncated: " + count + " records of " + recordSize
+                        + " bytes don't fit into " + channel.size() + " bytes");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        // A single mapping is limited to 2 GB, larger corpora are mapped as several segments
+        this.recordsPerSegment = Integer.MAX_VALUE / recordSize;
+        int numberOfSegments = (int) ((header.getCount() + recordsPerSegment - 1) / recordsPerSegment);
+        this.segments = new MappedByteBuffer[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            long first = i * recordsPerSegment;
+            long records = Math.min(recordsPerSegment, header.getCount() - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    CorpusHeader.SIZE + first * recordSize, records * recordSize);
+        }
+    }
+
+    public CorpusHeader getHeader() {
+        return header;
+    }
+
+    public PairSource asPairSource() {
+        checkType(CorpusHeader.Type.KNOWN);
+        return new KnownPairs(0, header.getCount());
+    }
+
+    public DifferencePairSource asDifferencePairSource() {
+        checkType(CorpusHeader.Type.DIFFERENCE);
+        return new DifferencePairs(0, header.getCount());
+    }
+
+    private void checkType(CorpusHeader.Type type) {
+        if (header.getType() != type) {
+            throw new IllegalStateException("Corpus holds " + header.getType() + " pairs");
+        }
+    }
+
+    private long getBlock(ByteBuffer segment, int offset) {
+        long block = 0;
+        for (int i = 0; i < blockBytes; i++) {
+            block = (block << Byte.SIZE) | (segment.get(offset + i) & 0xFF);
+        }
+        return block;
+    }
+
+    private List<long[]> splitRange(long from, long to, int parts) {
+        int count = (int) Math.max(1, Math.min(parts, to - from));
+        List<long[]> ranges = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ranges.add(new long[]{from + (to - from) * i / count, from + (to - from) * (i + 1) / count});
+        }
+        return ranges;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private class KnownPairs implements PairSource {
+        private final long from;
+        private final long to;
+
+        private KnownPairs(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public long size() {
+            return to - from;
+        }
+
+        @Override
+        public void forEach(PairConsumer consumer) {
+            for (long record = from; record < to; record++) {
+                ByteBuffer segment = segments[(int) (record / recordsPerSegment)];
+                int offset = (int) (record % recordsPerSegment) * recordSize;
+                consumer.accept(getBlock(segment, offset), getBlock(segment, offset + blockBytes));
+            }
+        }
+
+        @Override
+        public List<PairSource> split(int parts) {
+            List<PairSource> result = new ArrayList<>();
+            splitRange(from, to, parts).forEach(range -> result.add(new KnownPairs(range[0], range[1])));
+            return result;
+        }
+    }
+
+    private class DifferencePairs implements DifferencePairSource {
+        private final long from;
+        private final long to;
+
+        private DifferencePairs(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public long size() {
+            return to - from;
+        }
+
+        @Override
+        public long getInputDifference() {
+            return header.getInputDifference();
+        }
+
+        @Override
+        public void forEach(DifferencePairConsumer consumer) {
+            long inputDifference = header.getInputDifference();
+            for (long record = from; record < to; record++) {
+                ByteBuffer segment = segments[(int) (record / recordsPerSegment)];
+                int offset = (int) (record % recordsPerSegment) * recordSize;
+                long plaintext = getBlock(segment, offset);
+                consumer.accept(plaintext, getBlock(segment, offset + blockBytes),
+                        plaintext ^ inputDifference, getBlock(segment, offset + 2 * blockBytes));
+            }
+        }
+
+        @Override
+        public List<DifferencePairSource> split(int parts) {
+            List<DifferencePairSource> result = new ArrayList<>();
+            splitRange(from, to, parts).forEach(range -> result.add(new DifferencePairs(range[0], range[1])));
+            return result;
+        }
+    }
+}
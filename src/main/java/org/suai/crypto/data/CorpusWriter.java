@@ -0,0 +1,119 @@
+package org.suai.crypto.data;
+
+import org.suai.crypto.spn.SpnSpec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class CorpusWriter implements PairConsumer, DifferencePairConsumer, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final CorpusHeader header;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int blockBytes;
+    private long count;
+
+    private CorpusWriter(Path path, CorpusHeader header) throws IOException {
+        this.header = header;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE - BUFFER_SIZE % header.getRecordSize());
+        this.blockBytes = header.getBlockBytes();
+        channel.position(CorpusHeader.SIZE);
+    }
+
+    public static CorpusWriter known(Path path, SpnSpec spec) throws IOException {
+        return new CorpusWriter(path, new CorpusHeader(CorpusHeader.Type.KNOWN, spec, 0, 0));
+    }
+
+    public static CorpusWriter difference(Path path, SpnSpec spec, long inputDifference) throws IOException {
+        return new CorpusWriter(path, new CorpusHeader(CorpusHeader.Type.DIFFERENCE, spec, inputDifference, 0));
+    }
+
+    public void write(PairSource source) {
+        source.forEach(this);
+    }
+
+    public void write(DifferencePairSource source) {
+        if (source.getInputDifference() != header.getInputDifference()) {
+            throw new IllegalArgumentException("Input difference doesn't match the corpus header");
+        }
+        source.forEach(this);
+    }
+
+    @Override
+    public void accept(long plaintext, long ciphertext) {
+        checkType(CorpusHeader.Type.KNOWN);
+        ensureCapacity();
+        putBlock(plaintext);
+        putBlock(ciphertext);
+        count++;
+    }
+
+    @Override
+    public void accept(long firstPlaintext, long firstCiphertext, long secondPlaintext, long secondCiphertext) {
+        checkType(CorpusHeader.Type.DIFFERENCE);
+        if ((firstPlaintext ^ secondPlaintext) != header.getInputDifference()) {
+            throw new IllegalArgumentException("Pair doesn't have the corpus input difference");
+        }
+        ensureCapacity();
+        putBlock(firstPlaintext);
+        putBlock(firstCiphertext);
+        putBlock(secondCiphertext);
+        count++;
+    }
+
+    private void checkType(CorpusHeader.Type type) {
+        if (header.getType() != type) {
+            throw new IllegalStateException("Corpus holds " + header.getType() + " pairs");
+        }
+    }
+
+    private void putBlock(long block) {
+        for (int shift = (blockBytes - 1) * Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            buffer.put((byte) (block >>> shift));
+        }
+    }
+
+    private void ensureCapacity() {
+        if (buffer.remaining() < header.getRecordSize()) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer headerBuffer = ByteBuffer.allocate(CorpusHeader.SIZE);
+            header.withCount(count).write(headerBuffer);
+            headerBuffer.flip();
+            channel.write(headerBuffer, 0);
+        } finally {
+            channel.close();
+        }
+    }
+}
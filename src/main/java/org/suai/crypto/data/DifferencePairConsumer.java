@@ -0,0 +1,7 @@
+package org.suai.crypto.data;
+
+@FunctionalInterface
+public interface DifferencePairConsumer {
+
+    void accept(long firstPlaintext, long firstCiphertext, long secondPlaintext, long secondCiphertext);
+}
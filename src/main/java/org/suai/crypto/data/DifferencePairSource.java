@@ -0,0 +1,14 @@
+package org.suai.crypto.data;
+
+import java.util.List;
+
+public interface DifferencePairSource {
+
+    long size();
+
+    long getInputDifference();
+
+    void forEach(DifferencePairConsumer consumer);
+
+    List<DifferencePairSource> split(int parts);
+}
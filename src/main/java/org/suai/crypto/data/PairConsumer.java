@@ -0,0 +1,7 @@
+package org.suai.crypto.data;
+
+@FunctionalInterface
+public interface PairConsumer {
+
+    void accept(long plaintext, long ciphertext);
+}
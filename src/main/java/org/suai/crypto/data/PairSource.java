@@ -0,0 +1,12 @@
+package org.suai.crypto.data;
+
+import java.util.List;
+
+public interface PairSource {
+
+    long size();
+
+    void forEach(PairConsumer consumer);
+
+    List<PairSource> split(int parts);
+}
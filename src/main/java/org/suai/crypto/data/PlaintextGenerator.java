@@ -0,0 +1,230 @@
+package org.suai.crypto.data;
+
+import org.suai.crypto.oracle.EncryptionOracle;
+import org.suai.crypto.spn.BlockCipher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+public class PlaintextGenerator {
+
+    public enum Mode {
+        // Independent uniform plaintexts, duplicates possible
+        RANDOM,
+        // Uniform sample without replacement
+        DISTINCT,
+        // Plaintexts 0, 1, 2, ... for full codebook runs
+        CODEBOOK
+    }
+
+    // Same constants as java.util.SplittableRandom, so RANDOM mode is a counter-based SplitMix64
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final int DISTINCT_ROUNDS = 4;
+
+    private final int blockSize;
+    private final long blockMask;
+    private final long seed;
+    private final Mode mode;
+    private final long[] roundKeys;
+    private final long[] multipliers;
+
+    public PlaintextGenerator(int blockSize, long seed, Mode mode) {
+        this.blockSize = blockSize;
+        this.blockMask = blockSize == Long.SIZE ? -1L : (1L << blockSize) - 1;
+        this.seed = seed;
+        this.mode = mode;
+        this.roundKeys = new long[DISTINCT_ROUNDS];
+        this.multipliers = new long[DISTINCT_ROUNDS];
+        for (int round = 0; round < DISTINCT_ROUNDS; round++) {
+            roundKeys[round] = mix64(seed + (2L * round + 1) * GOLDEN_GAMMA) & blockMask;
+            multipliers[round] = mix64(seed + (2L * round + 2) * GOLDEN_GAMMA) | 1;
+        }
+    }
+
+    public static LongUnaryOperator encryption(BlockCipher cipher, long key) {
+        if (cipher.getBlockSize() < Integer.SIZE) {
+            return plaintext -> cipher.encrypt((int) plaintext, (int) key);
+        }
+        long[] roundKeys = cipher.getSpec().expandKey(key);
+        return plaintext -> cipher.encrypt(plaintext, roundKeys);
+    }
+
+    public long plaintext(long index) {
+        switch (mode) {
+            case RANDOM:
+                return mix64(seed + (index + 1) * GOLDEN_GAMMA) & blockMask;
+            case DISTINCT:
+                return permute(index);
+            default:
+                return index & blockMask;
+        }
+    }
+
+    public PairSource knownPairs(LongUnaryOperator encryption, long count) {
+        checkCount(count);
+        return new KnownPairs(encryption, 0, count);
+    }
+
+    public DifferencePairSource differencePairs(LongUnaryOperator encryption, long inputDifference, long count) {
+        checkCount(count);
+        return new DifferencePairs(encryption, inputDifference & blockMask, 0, count);
+    }
+
+    // Chosen plaintext queries go to the oracle in one request, so a remote oracle can batch them
+    public ArrayPairSource knownPairs(EncryptionOracle oracle, int count) {
+        return knownPairs(oracle, 0, count);
+    }
+
+    // Plaintexts from index from on, so consecutive batches of an online attack don't repeat
+    public ArrayPairSource knownPairs(EncryptionOracle oracle, long from, int count) {
+        checkCount(from + count);
+        long[] plaintexts = new long[count];
+        for (int i = 0; i < count; i++) {
+            plaintexts[i] = plaintext(from + i);
+        }
+        return new ArrayPairSource(plaintexts, oracle.encrypt(plaintexts));
+    }
+
+    public ArrayDifferencePairSource differencePairs(EncryptionOracle oracle, long inputDifference, int count) {
+        return differencePairs(oracle, inputDifference, 0, count);
+    }
+
+    public ArrayDifferencePairSource differencePairs(EncryptionOracle oracle, long inputDifference, long from,
+                                                     int count) {
+        checkCount(from + count);
+        long difference = inputDifference & blockMask;
+        long[] plaintexts = new long[2 * count];
+        for (int i = 0; i < count; i++) {
+            plaintexts[2 * i] = plaintext(from + i);
+            plaintexts[2 * i + 1] = plaintexts[2 * i] ^ difference;
+        }
+        long[] ciphertexts = oracle.encrypt(plaintexts);
+        long[] firstPlaintexts = new long[count];
+        long[] firstCiphertexts = new long[count];
+        long[] secondCiphertexts = new long[count];
+        for (int i = 0; i < count; i++) {
+            firstPlaintexts[i] = plaintexts[2 * i];
+            firstCiphertexts[i] = ciphertexts[2 * i];
+            secondCiphertexts[i] = ciphertexts[2 * i + 1];
+        }
+        return new ArrayDifferencePairSource(firstPlaintexts, firstCiphertexts, secondCiphertexts, difference);
+    }
+
+    public long getMaxCount() {
+        return mode == Mode.RANDOM || blockSize >= Long.SIZE - 1 ? Long.MAX_VALUE : 1L << blockSize;
+    }
+
+    private void checkCount(long count) {
+        if (count < 0 || count > getMaxCount()) {
+            throw new IllegalArgumentException(String.format("Can't draw %d %s plaintexts of %d bits",
+                    count, mode.name().toLowerCase(), blockSize));
+        }
+    }
+
+    private long permute(long index) {
+        // Every step is a bijection on blockSize bits, so distinct indices give distinct plaintexts
+        long x = index & blockMask;
+        int shift = Math.max(1, (blockSize + 1) / 2);
+        for (int round = 0; round < DISTINCT_ROUNDS; round++) {
+            x ^= roundKeys[round];
+            x = (x * multipliers[round]) & blockMask;
+            x ^= x >>> shift;
+        }
+        return x;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long[] splitRange(long from, long to, int parts) {
+        int count = (int) Math.max(1, Math.min(parts, to - from));
+        long[] bounds = new long[count + 1];
+        for (int i = 0; i <= count; i++) {
+            bounds[i] = from + (to - from) * i / count;
+        }
+        return bounds;
+    }
+
+    private class KnownPairs implements PairSource {
+        private final LongUnaryOperator encryption;
+        private final long from;
+        private final long to;
+
+        private KnownPairs(LongUnaryOperator encryption, long from, long to) {
+            this.encryption = encryption;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public long size() {
+            return to - from;
+        }
+
+        @Override
+        public void forEach(PairConsumer consumer) {
+            for (long index = from; index < to; index++) {
+                long plaintext = plaintext(index);
+                consumer.accept(plaintext, encryption.applyAsLong(plaintext));
+            }
+        }
+
+        @Override
+        public List<PairSource> split(int parts) {
+            long[] bounds = splitRange(from, to, parts);
+            List<PairSource> result = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                result.add(new KnownPairs(encryption, bounds[i], bounds[i + 1]));
+            }
+            return result;
+        }
+    }
+
+    private class DifferencePairs implements DifferencePairSource {
+        private final LongUnaryOperator encryption;
+        private final long inputDifference;
+        private final long from;
+        private final long to;
+
+        private DifferencePairs(LongUnaryOperator encryption, long inputDifference, long from, long to) {
+            this.encryption = encryption;
+            this.inputDifference = inputDifference;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public long size() {
+            return to - from;
+        }
+
+        @Override
+        public long getInputDifference() {
+            return inputDifference;
+        }
+
+        @Override
+        public void forEach(DifferencePairConsumer consumer) {
+            for (long index = from; index < to; index++) {
+                long firstPlaintext = plaintext(index);
+                long secondPlaintext = firstPlaintext ^ inputDifference;
+                consumer.accept(firstPlaintext, encryption.applyAsLong(firstPlaintext),
+                        secondPlaintext, encryption.applyAsLong(secondPlaintext));
+            }
+        }
+
+        @Override
+        public List<DifferencePairSource> split(int parts) {
+            long[] bounds = splitRange(from, to, parts);
+            List<DifferencePairSource> result = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                result.add(new DifferencePairs(encryption, inputDifference, bounds[i], bounds[i + 1]));
+            }
+            return result;
+        }
+    }
+}
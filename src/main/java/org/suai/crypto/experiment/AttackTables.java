@@ -0,0 +1,65 @@
+package org.suai.crypto.experiment;
+
+import org.suai.crypto.analysis.DifferentialCryptAnalyzer;
+import org.suai.crypto.analysis.DifferentialKeyCounter;
+import org.suai.crypto.analysis.LinearCryptAnalyzer;
+import org.suai.crypto.analysis.LinearKeyRecovery;
+import org.suai.crypto.analysis.Trail;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Everything an attack needs that depends only on the s-box and the network, built once and
+// shared read-only by all jobs with the same s-box
+class AttackTables {
+    private final BitPackedSubstitutionPermutationNetwork cipher;
+    private final List<LinearKeyRecovery> linearRecoveries;
+    private final List<DifferentialKeyCounter> differentialCounters;
+    private final long[] inputDifferences;
+
+    AttackTables(int[] sBox, SpnSpec spec, int numberOfTrails) {
+        this.cipher = new BitPackedSubstitutionPermutationNetwork(sBox, spec);
+        int rounds = spec.getNumberOfRounds() - 1;
+
+        List<LinearKeyRecovery> recoveries = new ArrayList<>();
+        for (Trail trail : new LinearCryptAnalyzer(cipher).findBestTrails(rounds, numberOfTrails)) {
+            try {
+                recoveries.add(new LinearKeyRecovery(spec, sBox, trail));
+            } catch (IllegalArgumentException e) {
+                // Too many active s-boxes in the last round to guess their key bits
+            }
+        }
+        this.linearRecoveries = Collections.unmodifiableList(recoveries);
+
+        DifferentialCryptAnalyzer analyzer = new DifferentialCryptAnalyzer(cipher);
+        List<Trail> characteristics = analyzer.findBestCharacteristics(rounds, numberOfTrails);
+        List<DifferentialKeyCounter> counters = new ArrayList<>();
+        this.inputDifferences = new long[characteristics.size()];
+        for (int i = 0; i < characteristics.size(); i++) {
+            Trail characteristic = characteristics.get(i);
+            inputDifferences[i] = characteristic.getInput(0);
+            counters.add(new DifferentialKeyCounter(spec, sBox, analyzer.getDifferenceDistribution(),
+                    Long.parseUnsignedLong(analyzer.getLastRoundInputDifference(characteristic), 2)));
+        }
+        this.differentialCounters = Collections.unmodifiableList(counters);
+    }
+
+    BitPackedSubstitutionPermutationNetwork getCipher() {
+        return cipher;
+    }
+
+    List<LinearKeyRecovery> getLinearRecoveries() {
+        return linearRecoveries;
+    }
+
+    List<DifferentialKeyCounter> getDifferentialCounters() {
+        return differentialCounters;
+    }
+
+    long getInputDifference(int characteristic) {
+        return inputDifferences[characteristic];
+    }
+}
@@ -0,0 +1,6 @@
+package org.suai.crypto.experiment;
+
+public enum AttackType {
+    LINEAR,
+    DIFFERENTIAL
+}
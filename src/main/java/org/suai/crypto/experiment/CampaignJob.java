@@ -0,0 +1,101 @@
+package org.suai.crypto.experiment;
+
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class CampaignJob {
+    private final int id;
+    private final String sBoxName;
+    private final int[] sBox;
+    private final SpnSpec spec;
+    private final AttackType attackType;
+    private final long key;
+    private final int numberOfPairs;
+    private final long seed;
+
+    public CampaignJob(int id, String sBoxName, int[] sBox, SpnSpec spec, AttackType attackType,
+                       long key, int numberOfPairs, long seed) {
+        this.id = id;
+        this.sBoxName = sBoxName;
+        this.sBox = sBox;
+        this.spec = spec;
+        this.attackType = attackType;
+        this.key = key;
+        this.numberOfPairs = numberOfPairs;
+        this.seed = seed;
+    }
+
+    // Every combination of s-box, key, pair count and attack; job seeds are derived from the job id
+    public static List<CampaignJob> matrix(Map<String, int[]> sBoxes, SpnSpec spec, long[] keys,
+                                           int[] pairCounts, AttackType... attackTypes) {
+        List<CampaignJob> jobs = new ArrayList<>();
+        for (Map.Entry<String, int[]> sBox : sBoxes.entrySet()) {
+            for (long key : keys) {
+                for (int numberOfPairs : pairCounts) {
+                    for (AttackType attackType : attackTypes) {
+                        int id = jobs.size();
+                        jobs.add(new CampaignJob(id, sBox.getKey(), sBox.getValue(), spec, attackType,
+                                key, numberOfPairs, 0x9E3779B97F4A7C15L * (id + 1)));
+                    }
+                }
+            }
+        }
+        return jobs;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getSBoxName() {
+        return sBoxName;
+    }
+
+    public int[] getSBox() {
+        return sBox;
+    }
+
+    public SpnSpec getSpec() {
+        return spec;
+    }
+
+    public AttackType getAttackType() {
+        return attackType;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public int getNumberOfPairs() {
+        return numberOfPairs;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Job %d (%s, %s, key = %x, pairs = %d)", id, attackType, sBoxName, key, numberOfPairs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CampaignJob that = (CampaignJob) o;
+        return id == that.id && key == that.key && numberOfPairs == that.numberOfPairs && seed == that.seed
+                && sBoxName.equals(that.sBoxName) && Arrays.equals(sBox, that.sBox) && spec.equals(that.spec)
+                && attackType == that.attackType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id) * 31 + Long.hashCode(seed);
+    }
+}
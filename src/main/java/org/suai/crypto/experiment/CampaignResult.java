@@ -0,0 +1,112 @@
+package org.suai.crypto.experiment;
+
+public class CampaignResult {
+
+    public enum Status {
+        SUCCEEDED,
+        FAILED,
+        TIMED_OUT,
+        CANCELLED
+    }
+
+    private final CampaignJob job;
+    private final Status status;
+    private final long attackedMask;
+    private final long recoveredMask;
+    private final long recoveredKey;
+    private final int keyRank;
+    private final long elapsedNanos;
+    private final String error;
+
+    public CampaignResult(CampaignJob job, Status status, long attackedMask, long recoveredMask, long recoveredKey,
+                          int keyRank, long elapsedNanos, String error) {
+        this.job = job;
+        this.status = status;
+        this.attackedMask = attackedMask;
+        this.recoveredMask = recoveredMask;
+        this.recoveredKey = recoveredKey & recoveredMask;
+        this.keyRank = keyRank;
+        this.elapsedNanos = elapsedNanos;
+        this.error = error;
+    }
+
+    public static CampaignResult succeeded(CampaignJob job, long attackedMask, long recoveredMask, long recoveredKey,
+                                           int keyRank, long elapsedNanos) {
+        return new CampaignResult(job, Status.SUCCEEDED, attackedMask, recoveredMask, recoveredKey, keyRank,
+                elapsedNanos, null);
+    }
+
+    public static CampaignResult stopped(CampaignJob job, Status status, long elapsedNanos, String error) {
+        return new CampaignResult(job, status, 0, 0, 0, 0, elapsedNanos, error);
+    }
+
+    // Every attacked key bit was claimed and all of them are right
+    public boolean isKeyRecovered() {
+        return status == Status.SUCCEEDED && attackedMask != 0 && recoveredMask == attackedMask
+                && getNumberOfCorrectBits() == getNumberOfRecoveredBits();
+    }
+
+    // Some attacked bits were left open, e.g. after a tie, but all claimed bits are right
+    public boolean isPartiallyRecovered() {
+        return status == Status.SUCCEEDED && recoveredMask != 0 && !isKeyRecovered()
+                && getNumberOfCorrectBits() == getNumberOfRecoveredBits();
+    }
+
+    public int getNumberOfAttackedBits() {
+        return Long.bitCount(attackedMask);
+    }
+
+    public int getNumberOfRecoveredBits() {
+        return Long.bitCount(recoveredMask);
+    }
+
+    public int getNumberOfCorrectBits() {
+        return Long.bitCount(~(recoveredKey ^ job.getKey()) & recoveredMask);
+    }
+
+    public CampaignJob getJob() {
+        return job;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // Key bits behind the active s-boxes of the last round over all trails or characteristics
+    public long getAttackedMask() {
+        return attackedMask;
+    }
+
+    public long getRecoveredMask() {
+        return recoveredMask;
+    }
+
+    public long getRecoveredKey() {
+        return recoveredKey;
+    }
+
+    // Worst rank of the right sub key over the attacked trails or s-boxes, 1 if it always scored best;
+    // 0 if the job did not finish
+    public int getKeyRank() {
+        return keyRank;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        if (status != Status.SUCCEEDED) {
+            return String.format("%s: %s after %.3f s%s", job, status, elapsedNanos / 1e9,
+                    error == null ? "" : " (" + error + ")");
+        }
+        return String.format("%s: %d of %d recovered bits correct, %d bits attacked, key rank %d in %.3f s", job,
+                getNumberOfCorrectBits(), getNumberOfRecoveredBits(), getNumberOfAttackedBits(), keyRank,
+                elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,318 @@
+package org.suai.crypto.experiment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.analysis.DifferentialKeyCounter;
+import org.suai.crypto.analysis.LinearKeyRecovery;
+import org.suai.crypto.analysis.SubKeyCandidate;
+import org.suai.crypto.data.ArrayPairSource;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+
+// Runs a matrix of attack jobs on a work-stealing pool. Timeouts and cancellation are cooperative:
+// a job checks them between attack phases, so a single phase is never interrupted halfway.
+public class CampaignRunner implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CampaignRunner.class);
+
+    private static final int NUMBER_OF_TRAILS = 4;
+    // How long a job waits for tables another job is building before it looks at its deadline again
+    private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ForkJoinPool pool;
+    private final long timeoutNanos;
+    private final Map<String, CompletableFuture<AttackTables>> tables = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<Scratch> scratches = new ConcurrentLinkedDeque<>();
+    // Cancellation flags of the runs in progress, so a new run never clears the flag of another one
+    private final Set<AtomicBoolean> activeRuns = ConcurrentHashMap.newKeySet();
+
+    public CampaignRunner(int parallelism, Duration timeout) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public CampaignRunner(Duration timeout) {
+        this(Runtime.getRuntime().availableProcessors(), timeout);
+    }
+
+    // Results are passed to the listener as soon as each job finishes and returned in job order at the end
+    public List<CampaignResult> run(List<CampaignJob> jobs, Consumer<CampaignResult> listener) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        activeRuns.add(cancelled);
+        try {
+            List<Future<CampaignResult>> futures = new ArrayList<>();
+            for (CampaignJob job : jobs) {
+                futures.add(pool.submit(() -> {
+                    CampaignResult result = execute(job, cancelled);
+                    synchronized (listener) {
+                        listener.accept(result);
+                    }
+                    return result;
+                }));
+            }
+            List<CampaignResult> results = new ArrayList<>();
+            for (Future<CampaignResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelled.set(true);
+                    throw new IllegalStateException("Campaign was interrupted", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Campaign job failed unexpectedly", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            activeRuns.remove(cancelled);
+        }
+    }
+
+    public List<CampaignResult> run(List<CampaignJob> jobs) {
+        return run(jobs, result -> logger.debug("{}", result));
+    }
+
+    // Jobs of the runs in progress that have not started are skipped, running ones stop at their next phase
+    public void cancel() {
+        activeRuns.forEach(cancelled -> cancelled.set(true));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private CampaignResult execute(CampaignJob job, AtomicBoolean cancelled) {
+        long start = System.nanoTime();
+        Checkpoint checkpoint = new Checkpoint(cancelled, start + timeoutNanos);
+        try {
+            checkpoint.check();
+            AttackTables attackTables = getTables(job.getSBox(), job.getSpec(), checkpoint);
+            checkpoint.check();
+            Recovery recovery = job.getAttackType() == AttackType.LINEAR
+                    ? runLinearAttack(job, attackTables, checkpoint)
+                    : runDifferentialAttack(job, attackTables, checkpoint);
+            return CampaignResult.succeeded(job, recovery.attackedMask, recovery.recoveredMask, recovery.value,
+                    recovery.keyRank, System.nanoTime() - start);
+        } catch (JobStoppedException e) {
+            return CampaignResult.stopped(job, e.status, System.nanoTime() - start, null);
+        } catch (RuntimeException e) {
+            logger.debug("{} failed", job, e);
+            return CampaignResult.stopped(job, CampaignResult.Status.FAILED, System.nanoTime() - start, e.toString());
+        }
+    }
+
+    // The first job that needs the tables builds them outside the map, so the trail search holds no
+    // lock; the other jobs wait for the same future and still stop at their own deadline
+    private AttackTables getTables(int[] sBox, SpnSpec spec, Checkpoint checkpoint) {
+        CompletableFuture<AttackTables> created = new CompletableFuture<>();
+        CompletableFuture<AttackTables> existing = tables.putIfAbsent(Arrays.toString(sBox) + spec, created);
+        if (existing == null) {
+            try {
+                AttackTables attackTables = new AttackTables(sBox, spec, NUMBER_OF_TRAILS);
+                created.complete(attackTables);
+                return attackTables;
+            } catch (RuntimeException | Error e) {
+                // Jobs waiting for the same tables fail with the same error instead of timing out
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+        while (true) {
+            checkpoint.check();
+            try {
+                return existing.get(WAIT_NANOS, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Still building
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JobStoppedException(CampaignResult.Status.CANCELLED);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Attack tables could not be built: " + e.getCause(), e.getCause());
+            }
+        }
+    }
+
+    // Only unambiguous guesses are claimed
+    private Recovery runLinearAttack(CampaignJob job, AttackTables attackTables, Checkpoint checkpoint) {
+        BitPackedSubstitutionPermutationNetwork cipher = attackTables.getCipher();
+        long[] roundKeys = job.getSpec().expandKey(job.getKey());
+        PlaintextGenerator generator = new PlaintextGenerator(job.getSpec().getBlockSize(), job.getSeed(),
+                PlaintextGenerator.Mode.RANDOM);
+        Scratch scratch = borrowScratch(job.getNumberOfPairs());
+        try {
+            for (int i = 0; i < job.getNumberOfPairs(); i++) {
+                long plaintext = generator.plaintext(i);
+                scratch.plaintexts[i] = plaintext;
+                scratch.ciphertexts[i] = cipher.encrypt(plaintext, roundKeys);
+            }
+            ArrayPairSource pairs = new ArrayPairSource(scratch.plaintexts, scratch.ciphertexts, job.getNumberOfPairs());
+            long mask = 0;
+            long value = 0;
+            int keyRank = 1;
+            long attackedMask = 0;
+            for (LinearKeyRecovery recovery : attackTables.getLinearRecoveries()) {
+                checkpoint.check();
+                attackedMask |= recovery.getActiveKeyMask();
+                long[] correlations = recovery.getCorrelations(recovery.compress(pairs));
+                keyRank = Math.max(keyRank, recovery.getKeyRank(correlations, job.getKey()));
+                List<SubKeyCandidate> candidates = recovery.recover(correlations, pairs.size(), 2);
+                SubKeyCandidate best = candidates.get(0);
+                if (candidates.size() > 1 && candidates.get(1).getScore() >= best.getScore()) {
+                    // A tie tells nothing about the key
+                    continue;
+                }
+                // Earlier trails are stronger, so their guesses win on overlapping bits
+                long newBits = best.getMask() & ~mask;
+                value |= best.getSubKey() & newBits;
+                mask |= newBits;
+            }
+            return new Recovery(attackedMask, mask, value, keyRank);
+        } finally {
+            scratches.push(scratch);
+        }
+    }
+
+    private Recovery runDifferentialAttack(CampaignJob job, AttackTables attackTables, Checkpoint checkpoint) {
+        SpnSpec spec = job.getSpec();
+        BitPackedSubstitutionPermutationNetwork cipher = attackTables.getCipher();
+        long[] roundKeys = spec.expandKey(job.getKey());
+        LongUnaryOperator encryption = plaintext -> cipher.encrypt(plaintext, roundKeys);
+        PlaintextGenerator generator = new PlaintextGenerator(spec.getBlockSize(), job.getSeed(),
+                PlaintextGenerator.Mode.RANDOM);
+        long[][] counters = new long[spec.getNumberOfSBoxes()][1 << spec.getSBoxInputSize()];
+        List<DifferentialKeyCounter> differentialCounters = attackTables.getDifferentialCounters();
+        for (int i = 0; i < differentialCounters.size(); i++) {
+            checkpoint.check();
+            long[][] characteristicCounters = differentialCounters.get(i).count(
+                    generator.differencePairs(encryption, attackTables.getInputDifference(i), job.getNumberOfPairs()));
+            for (int sBox = 0; sBox < counters.length; sBox++) {
+                for (int guess = 0; guess < counters[sBox].length; guess++) {
+                    counters[sBox][guess] += characteristicCounters[sBox][guess];
+                }
+            }
+        }
+        long mask = 0;
+        long value = 0;
+        int keyRank = 1;
+        long attackedMask = 0;
+        for (DifferentialKeyCounter counter : differentialCounters) {
+            for (int sBox : counter.getActiveSBoxes()) {
+                keyRank = Math.max(keyRank, getKeyRank(counters[sBox], job.getKey(), spec, sBox));
+                attackedMask |= (long) ((1 << spec.getSBoxInputSize()) - 1) << spec.getSBoxShift(sBox);
+            }
+        }
+        for (int sBox = 0; sBox < counters.length; sBox++) {
+            int best = 0;
+            int ties = 0;
+            for (int guess = 1; guess < counters[sBox].length; guess++) {
+                if (counters[sBox][guess] > counters[sBox][best]) {
+                    best = guess;
+                    ties = 0;
+                } else if (counters[sBox][guess] == counters[sBox][best]) {
+                    ties++;
+                }
+            }
+            if (counters[sBox][best] > 0 && ties == 0) {
+                int shift = spec.getSBoxShift(sBox);
+                mask |= (long) ((1 << spec.getSBoxInputSize()) - 1) << shift;
+                value |= (long) best << shift;
+            }
+        }
+        return new Recovery(attackedMask, mask, value, keyRank);
+    }
+
+    private static int getKeyRank(long[] counters, long key, SpnSpec spec, int sBox) {
+        int right = (int) (key >>> spec.getSBoxShift(sBox)) & ((1 << spec.getSBoxInputSize()) - 1);
+        int rank = 1;
+        for (int guess = 0; guess < counters.length; guess++) {
+            if (guess != right && counters[guess] >= counters[right]) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    // Pair buffers are reused between jobs; a pool instead of a ThreadLocal because a worker
+    // may pick up another job while it waits for its own parallel subtasks
+    private Scratch borrowScratch(int size) {
+        Scratch scratch = scratches.poll();
+        if (scratch == null || scratch.plaintexts.length < size) {
+            scratch = new Scratch(size);
+        }
+        return scratch;
+    }
+
+    private static class Scratch {
+        private final long[] plaintexts;
+        private final long[] ciphertexts;
+
+        private Scratch(int size) {
+            this.plaintexts = new long[size];
+            this.ciphertexts = new long[size];
+        }
+    }
+
+    private static class Recovery {
+        private final long attackedMask;
+        // Key bits with an unambiguous guess and the guessed values
+        private final long recoveredMask;
+        private final long value;
+        private final int keyRank;
+
+        private Recovery(long attackedMask, long recoveredMask, long value, int keyRank) {
+            this.attackedMask = attackedMask;
+            this.recoveredMask = recoveredMask;
+            this.value = value;
+            this.keyRank = keyRank;
+        }
+    }
+
+    private static class Checkpoint {
+        private final AtomicBoolean cancelled;
+        private final long deadline;
+
+        private Checkpoint(AtomicBoolean cancelled, long deadline) {
+            this.cancelled = cancelled;
+            this.deadline = deadline;
+        }
+
+        private void check() {
+            if (cancelled.get()) {
+                throw new JobStoppedException(CampaignResult.Status.CANCELLED);
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw new JobStoppedException(CampaignResult.Status.TIMED_OUT);
+            }
+        }
+    }
+
+    private static class JobStoppedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final CampaignResult.Status status;
+
+        private JobStoppedException(CampaignResult.Status status) {
+            super(status.name(), null, false, false);
+            this.status = status;
+        }
+    }
+}
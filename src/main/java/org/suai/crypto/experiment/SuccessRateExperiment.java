@@ -0,0 +1,94 @@
+package org.suai.crypto.experiment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.SplittableRandom;
+
+// Monte Carlo estimate of the success rate of an attack for a sweep of pair counts. Keys and job
+// seeds all come from one seed, so a sweep gives the same numbers on any number of threads.
+public class SuccessRateExperiment {
+    private static final Logger logger = LoggerFactory.getLogger(SuccessRateExperiment.class);
+
+    private final CampaignRunner runner;
+
+    public SuccessRateExperiment(CampaignRunner runner) {
+        this.runner = runner;
+    }
+
+    public List<SuccessRatePoint> run(String sBoxName, int[] sBox, SpnSpec spec, AttackType attackType,
+                                      int numberOfKeys, int[] pairCounts, long seed) {
+        List<CampaignJob> jobs = createJobs(sBoxName, sBox, spec, attackType, numberOfKeys, pairCounts, seed);
+        logger.debug("Running {} trials of the {} attack", jobs.size(), attackType);
+        List<CampaignResult> results = runner.run(jobs, result -> { });
+        Map<Integer, List<CampaignResult>> byPairs = new LinkedHashMap<>();
+        for (int numberOfPairs : pairCounts) {
+            byPairs.put(numberOfPairs, new ArrayList<>());
+        }
+        results.forEach(result -> byPairs.get(result.getJob().getNumberOfPairs()).add(result));
+        List<SuccessRatePoint> points = new ArrayList<>();
+        byPairs.forEach((numberOfPairs, trials) -> {
+            SuccessRatePoint point = summarize(attackType, numberOfPairs, trials);
+            logger.debug("{}", point);
+            points.add(point);
+        });
+        return points;
+    }
+
+    // The same random keys for every pair count, so the points of a curve differ only in the data
+    static List<CampaignJob> createJobs(String sBoxName, int[] sBox, SpnSpec spec, AttackType attackType,
+                                        int numberOfKeys, int[] pairCounts, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] keys = new long[numberOfKeys];
+        for (int i = 0; i < numberOfKeys; i++) {
+            keys[i] = random.nextLong() & spec.getBlockMask();
+        }
+        List<CampaignJob> jobs = new ArrayList<>();
+        for (int numberOfPairs : pairCounts) {
+            for (long key : keys) {
+                jobs.add(new CampaignJob(jobs.size(), sBoxName, sBox, spec, attackType, key, numberOfPairs,
+                        random.nextLong()));
+            }
+        }
+        return jobs;
+    }
+
+    private static SuccessRatePoint summarize(AttackType attackType, int numberOfPairs, List<CampaignResult> trials) {
+        int successes = 0;
+        int partialRecoveries = 0;
+        int unfinished = 0;
+        long rankSum = 0;
+        long totalNanos = 0;
+        for (CampaignResult trial : trials) {
+            totalNanos += trial.getElapsedNanos();
+            if (trial.getStatus() != CampaignResult.Status.SUCCEEDED) {
+                unfinished++;
+                continue;
+            }
+            rankSum += trial.getKeyRank();
+            if (trial.isKeyRecovered()) {
+                successes++;
+            } else if (trial.isPartiallyRecovered()) {
+                partialRecoveries++;
+            }
+        }
+        int finished = trials.size() - unfinished;
+        double averageKeyRank = finished == 0 ? 0 : (double) rankSum / finished;
+        return new SuccessRatePoint(attackType, numberOfPairs, trials.size(), successes, partialRecoveries,
+                unfinished, averageKeyRank, totalNanos);
+    }
+
+    // The cheapest pair count whose success rate reaches the target
+    public static OptionalInt getMinimumPairs(List<SuccessRatePoint> points, double targetSuccessRate) {
+        return points.stream()
+                .filter(point -> point.getSuccessRate() >= targetSuccessRate)
+                .mapToInt(SuccessRatePoint::getNumberOfPairs)
+                .min();
+    }
+}
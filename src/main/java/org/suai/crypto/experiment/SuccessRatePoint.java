@@ -0,0 +1,89 @@
+package org.suai.crypto.experiment;
+
+import org.suai.crypto.util.Proportions;
+
+public class SuccessRatePoint {
+    private final AttackType attackType;
+    private final int numberOfPairs;
+    private final int trials;
+    private final int successes;
+    private final int partialRecoveries;
+    private final int unfinished;
+    private final double averageKeyRank;
+    private final long totalNanos;
+
+    public SuccessRatePoint(AttackType attackType, int numberOfPairs, int trials, int successes,
+                            int partialRecoveries, int unfinished, double averageKeyRank, long totalNanos) {
+        this.attackType = attackType;
+        this.numberOfPairs = numberOfPairs;
+        this.trials = trials;
+        this.successes = successes;
+        this.partialRecoveries = partialRecoveries;
+        this.unfinished = unfinished;
+        this.averageKeyRank = averageKeyRank;
+        this.totalNanos = totalNanos;
+    }
+
+    public AttackType getAttackType() {
+        return attackType;
+    }
+
+    public int getNumberOfPairs() {
+        return numberOfPairs;
+    }
+
+    public int getTrials() {
+        return trials;
+    }
+
+    // Trials that recovered every attacked key bit
+    public int getSuccesses() {
+        return successes;
+    }
+
+    // Trials whose claimed bits were all right but left some attacked bits open, not counted as successes
+    public int getPartialRecoveries() {
+        return partialRecoveries;
+    }
+
+    // Timed out, cancelled or failed trials, they count as unsuccessful
+    public int getUnfinished() {
+        return unfinished;
+    }
+
+    public double getSuccessRate() {
+        return trials == 0 ? 0 : (double) successes / trials;
+    }
+
+    public double getPartialRecoveryRate() {
+        return trials == 0 ? 0 : (double) partialRecoveries / trials;
+    }
+
+    // 95% Wilson score interval of the success rate
+    public double[] getConfidenceInterval() {
+        return Proportions.getWilsonInterval(getSuccessRate(), trials, 1.96);
+    }
+
+    // Over the finished trials
+    public double getAverageKeyRank() {
+        return averageKeyRank;
+    }
+
+    // Sum of the trial times, not the wall-clock time of the whole sweep
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public double getAverageSeconds() {
+        return trials == 0 ? 0 : totalNanos / 1e9 / trials;
+    }
+
+    @Override
+    public String toString() {
+        double[] interval = getConfidenceInterval();
+        return String.format("%s, %d pairs: success rate %.3f [%.3f, %.3f], partial recovery rate %.3f " +
+                        "over %d trials (%d unfinished), average key rank %.2f, %.4f s per trial", attackType,
+                numberOfPairs, getSuccessRate(), interval[0], interval[1], getPartialRecoveryRate(), trials,
+                unfinished, averageKeyRank, getAverageSeconds());
+    }
+}
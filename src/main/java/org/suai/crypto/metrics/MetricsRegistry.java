@@ -0,0 +1,94 @@
+package org.suai.crypto.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+
+    // Shared by everything that is not given a registry explicitly
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    // Phase timings are histograms of nanoseconds
+    public Histogram timer(String name) {
+        return histogram(name + ".nanos");
+    }
+
+    public void clear() {
+        counters.clear();
+        gauges.clear();
+        histograms.clear();
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            json.append(separator).append("    ").append(quote(entry.getKey())).append(": ")
+                    .append(entry.getValue().get());
+            separator = ",\n";
+        }
+        json.append(counters.isEmpty() ? "},\n" : "\n  },\n").append("  \"gauges\": {");
+        separator = "\n";
+        for (Map.Entry<String, DoubleSupplier> entry : gauges.entrySet()) {
+            json.append(separator).append("    ").append(quote(entry.getKey())).append(": ")
+                    .append(format(entry.getValue().getAsDouble()));
+            separator = ",\n";
+        }
+        json.append(gauges.isEmpty() ? "},\n" : "\n  },\n").append("  \"histograms\": {");
+        separator = "\n";
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            json.append(separator).append("    ").append(quote(entry.getKey())).append(": {")
+                    .append("\"count\": ").append(histogram.getCount())
+                    .append(", \"min\": ").append(histogram.getMin())
+                    .append(", \"mean\": ").append(format(histogram.getMean()))
+                    .append(", \"p50\": ").append(histogram.getValueAtPercentile(50))
+                    .append(", \"p90\": ").append(histogram.getValueAtPercentile(90))
+                    .append(", \"p99\": ").append(histogram.getValueAtPercentile(99))
+                    .append(", \"max\": ").append(histogram.getMax())
+                    .append(", \"sum\": ").append(histogram.getSum())
+                    .append('}');
+            separator = ",\n";
+        }
+        json.append(histograms.isEmpty() ? "}\n}" : "\n  }\n}");
+        return json.toString();
+    }
+
+    public void writeJson(Path path) throws IOException {
+        Files.write(path, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String format(double value) {
+        // JSON has no NaN or infinity
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.6g", value) : "null";
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,22 @@
+package org.suai.crypto.oracle;
+
+import java.io.Closeable;
+
+// Encrypts chosen plaintexts under a key the attacker doesn't know
+public interface EncryptionOracle extends Closeable {
+
+    int getBlockSize();
+
+    // ciphertexts[i] is the encryption of plaintexts[i]
+    long[] encrypt(long[] plaintexts);
+
+    default long encrypt(long plaintext) {
+        return encrypt(new long[]{plaintext})[0];
+    }
+
+    long getNumberOfQueries();
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,44 @@
+package org.suai.crypto.oracle;
+
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.spn.BlockCipher;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.IntStream;
+
+public class LocalEncryptionOracle implements EncryptionOracle {
+
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    private final int blockSize;
+    private final LongUnaryOperator encryption;
+    private final LongAdder queries = new LongAdder();
+
+    public LocalEncryptionOracle(BlockCipher cipher, long key) {
+        this.blockSize = cipher.getBlockSize();
+        this.encryption = PlaintextGenerator.encryption(cipher, key);
+    }
+
+    @Override
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    @Override
+    public long[] encrypt(long[] plaintexts) {
+        long[] ciphertexts = new long[plaintexts.length];
+        IntStream indices = IntStream.range(0, plaintexts.length);
+        if (plaintexts.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> ciphertexts[i] = encryption.applyAsLong(plaintexts[i]));
+        queries.add(plaintexts.length);
+        return ciphertexts;
+    }
+
+    @Override
+    public long getNumberOfQueries() {
+        return queries.sum();
+    }
+}
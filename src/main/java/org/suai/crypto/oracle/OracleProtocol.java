@@ -0,0 +1,74 @@
+package org.suai.crypto.oracle;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Wire format, all integers big-endian:
+//   handshake   client: magic, version (short)   server: magic, version (short), block size (int)
+//   request     count (int), count plaintexts of blockBytes bytes each
+//   response    count (int), count ciphertexts of blockBytes bytes each
+// Requests are answered in order, so a client may send the next batches before reading the answers.
+final class OracleProtocol {
+
+    static final int MAGIC = 0x53504E4F; // "SPNO"
+    static final short VERSION = 1;
+    static final int MAX_BATCH = 1 << 16;
+
+    private OracleProtocol() {
+    }
+
+    static int getBlockBytes(int blockSize) {
+        return (blockSize + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    static void writeHandshake(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+        output.flush();
+    }
+
+    static void readHandshake(DataInputStream input) throws IOException {
+        int magic = input.readInt();
+        short version = input.readShort();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException(String.format("Unsupported oracle protocol: magic %x, version %d", magic, version));
+        }
+    }
+
+    static void writeBlocks(DataOutputStream output, long[] blocks, int from, int to, int blockBytes)
+            throws IOException {
+        byte[] frame = new byte[(to - from) * blockBytes];
+        int position = 0;
+        for (int i = from; i < to; i++) {
+            for (int shift = (blockBytes - 1) * Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                frame[position++] = (byte) (blocks[i] >>> shift);
+            }
+        }
+        output.writeInt(to - from);
+        output.write(frame);
+    }
+
+    // Reads the body of a frame whose count has already been read
+    static void readBlocks(DataInputStream input, long[] blocks, int offset, int count, int blockBytes)
+            throws IOException {
+        byte[] frame = new byte[count * blockBytes];
+        input.readFully(frame);
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            long block = 0;
+            for (int j = 0; j < blockBytes; j++) {
+                block = block << Byte.SIZE | frame[position++] & 0xFF;
+            }
+            blocks[offset + i] = block;
+        }
+    }
+
+    static int readCount(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        if (count < 0 || count > MAX_BATCH) {
+            throw new IOException("Invalid batch size: " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,126 @@
+package org.suai.crypto.oracle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Serves an oracle on a local socket, one thread per connection
+public class OracleServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(OracleServer.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final EncryptionOracle oracle;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    private OracleServer(EncryptionOracle oracle, ServerSocket serverSocket) {
+        this.oracle = oracle;
+        this.serverSocket = serverSocket;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "oracle-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Port 0 picks a free port, see getPort
+    public static OracleServer start(EncryptionOracle oracle, int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        OracleServer server = new OracleServer(oracle, serverSocket);
+        server.executor.execute(server::acceptConnections);
+        logger.debug("Oracle server listening on port {}", server.getPort());
+        return server;
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Failed to accept an oracle connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        int blockBytes = OracleProtocol.getBlockBytes(oracle.getBlockSize());
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+             DataOutputStream output = new DataOutputStream(
+                     new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE))) {
+            socket.setTcpNoDelay(true);
+            OracleProtocol.readHandshake(input);
+            OracleProtocol.writeHandshake(output);
+            output.writeInt(oracle.getBlockSize());
+            output.flush();
+            while (true) {
+                int count;
+                try {
+                    count = OracleProtocol.readCount(input);
+                } catch (EOFException e) {
+                    return;
+                }
+                long[] plaintexts = new long[count];
+                OracleProtocol.readBlocks(input, plaintexts, 0, count, blockBytes);
+                long[] ciphertexts = oracle.encrypt(plaintexts);
+                OracleProtocol.writeBlocks(output, ciphertexts, 0, count, blockBytes);
+                // Answers of pipelined requests are flushed together once the client stops sending
+                if (input.available() == 0) {
+                    output.flush();
+                }
+            }
+        } catch (SocketException e) {
+            logger.debug("Oracle connection closed: {}", e.getMessage());
+        } catch (IOException e) {
+            logger.warn("Oracle connection failed", e);
+        } finally {
+            connections.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close an oracle connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.suai.crypto.oracle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// Client of an OracleServer. A request is cut into batches that a sender thread writes while the
+// caller reads the answers, so the round trip latency is paid once per request, not once per batch.
+// A request that fails halfway leaves frames in flight, so the connection is closed and later calls throw.
+public class RemoteEncryptionOracle implements EncryptionOracle {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_BATCH_SIZE = 1 << 12;
+
+    private final Socket socket;
+    private final DataInputStream input;
+    private final DataOutputStream output;
+    private final int blockSize;
+    private final int blockBytes;
+    private final int batchSize;
+    private final ExecutorService sender;
+    private final LongAdder queries = new LongAdder();
+    private IOException failure;
+
+    public RemoteEncryptionOracle(String host, int port, int batchSize) throws IOException {
+        if (batchSize < 1 || batchSize > OracleProtocol.MAX_BATCH) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + OracleProtocol.MAX_BATCH);
+        }
+        this.socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port));
+        socket.setTcpNoDelay(true);
+        this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+        this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+        try {
+            OracleProtocol.writeHandshake(output);
+            OracleProtocol.readHandshake(input);
+            this.blockSize = input.readInt();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        this.blockBytes = OracleProtocol.getBlockBytes(blockSize);
+        this.batchSize = batchSize;
+        this.sender = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oracle-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public RemoteEncryptionOracle(String host, int port) throws IOException {
+        this(host, port, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    @Override
+    public synchronized long[] encrypt(long[] plaintexts) {
+        if (failure != null) {
+            throw new IllegalStateException("Oracle connection was closed after a failed request", failure);
+        }
+        long[] ciphertexts = new long[plaintexts.length];
+        Future<?> sending = sender.submit(() -> {
+            for (int from = 0; from < plaintexts.length; from += batchSize) {
+                OracleProtocol.writeBlocks(output, plaintexts, from, Math.min(plaintexts.length, from + batchSize),
+                        blockBytes);
+            }
+            output.flush();
+            return null;
+        });
+        try {
+            for (int from = 0; from < plaintexts.length; from += batchSize) {
+                int expected = Math.min(plaintexts.length - from, batchSize);
+                int count = OracleProtocol.readCount(input);
+                if (count != expected) {
+                    throw new IOException("Expected " + expected + " ciphertexts, got " + count);
+                }
+                OracleProtocol.readBlocks(input, ciphertexts, from, count, blockBytes);
+            }
+            sending.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(fail(e, sending));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException(fail((IOException) cause, sending));
+            }
+            fail(new IOException("Failed to send plaintexts", cause), sending);
+            throw new IllegalStateException("Failed to send plaintexts", cause);
+        } catch (InterruptedException e) {
+            fail(new InterruptedIOException("Interrupted while waiting for the oracle"), sending);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the oracle", e);
+        }
+        queries.add(plaintexts.length);
+        return ciphertexts;
+    }
+
+    private IOException fail(IOException e, Future<?> sending) {
+        failure = e;
+        sending.cancel(true);
+        try {
+            socket.close();
+        } catch (IOException closing) {
+            e.addSuppressed(closing);
+        }
+        return e;
+    }
+
+    @Override
+    public long getNumberOfQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public void close() {
+        sender.shutdownNow();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.suai.crypto.search;
+
+import org.suai.crypto.util.LinearApproximation;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+
+// The affine solution space of the accepted key equations. Keys are enumerated coset by coset:
+// the first coset trusts every equation, the next ones flip the constants of the subsets of
+// equations with the smallest total flip cost, and within a coset the free bits take every value.
+public class Gf2Solution {
+
+    private final int keySize;
+    private final List<Row> rows;
+    private final double[] flipCosts;
+    private final int flippable;
+    private final List<LinearApproximation> accepted;
+    private final List<LinearApproximation> conflicts;
+    private final int[] freeBits;
+
+    Gf2Solution(int keySize, List<Row> rows, double[] flipCosts,
+                List<LinearApproximation> accepted, List<LinearApproximation> conflicts) {
+        this.keySize = keySize;
+        this.rows = rows;
+        this.flipCosts = flipCosts;
+        this.accepted = accepted;
+        this.conflicts = conflicts;
+        // Costs are ascending, certain equations (infinite cost) at the end are never flipped
+        int count = 0;
+        while (count < flipCosts.length && count < Long.SIZE && !Double.isInfinite(flipCosts[count])) {
+            count++;
+        }
+        this.flippable = count;
+        long pivots = rows.stream().mapToLong(Row::getPivotBit).reduce(0, (a, b) -> a | b);
+        this.freeBits = new int[keySize - rows.size()];
+        int index = 0;
+        for (int bit = 0; bit < keySize; bit++) {
+            if ((pivots >>> bit & 1) == 0) {
+                freeBits[index++] = bit;
+            }
+        }
+    }
+
+    // Solution for the given set of flipped equations (bit i flips the i-th accepted equation)
+    // and the value of the free bits
+    public long getKey(long flips, long freeValue) {
+        long key = 0;
+        for (int i = 0; i < freeBits.length; i++) {
+            key |= (freeValue >>> i & 1) << freeBits[i];
+        }
+        long free = key;
+        for (Row row : rows) {
+            long parity = Long.bitCount(row.getMask() & free) + Long.bitCount(row.getCombination() & flips);
+            if (((parity & 1) == 1) != row.getConstant()) {
+                key |= row.getPivotBit();
+            }
+        }
+        return key;
+    }
+
+    public boolean satisfies(long key) {
+        for (Row row : rows) {
+            if (((Long.bitCount(row.getMask() & key) & 1) == 1) != row.getConstant()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The most likely keys first; the whole key space is covered if the iterator is drained
+    public PrimitiveIterator.OfLong iterator() {
+        if (freeBits.length >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Solution space is too large to enumerate: 2^" + freeBits.length);
+        }
+        return new CandidateIterator();
+    }
+
+    // All the keys satisfying every accepted equation
+    public long size() {
+        return freeBits.length >= Long.SIZE - 1 ? Long.MAX_VALUE : 1L << freeBits.length;
+    }
+
+    public int getRank() {
+        return rows.size();
+    }
+
+    public int getNumberOfFreeBits() {
+        return freeBits.length;
+    }
+
+    public int getKeySize() {
+        return keySize;
+    }
+
+    // From the least to the most biased one, the same order as the flip bits of getKey
+    public List<LinearApproximation> getAcceptedEquations() {
+        return accepted;
+    }
+
+    public List<LinearApproximation> getConflicts() {
+        return conflicts;
+    }
+
+    public boolean isConsistent() {
+        return conflicts.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Gf2Solution(rank = %d, free bits = %d, conflicts = %d)",
+                rows.size(), freeBits.length, conflicts.size());
+    }
+
+    private class CandidateIterator implements PrimitiveIterator.OfLong {
+        // Subsets in the order of their cost: every subset has at most two successors, one
+        // adding the next equation and one moving its last equation to the next one
+        private final PriorityQueue<FlipSet> queue =
+                new PriorityQueue<>(Comparator.comparingDouble(FlipSet::getCost));
+        private FlipSet current;
+        private long freeValue;
+
+        private CandidateIterator() {
+            current = new FlipSet(0, 0, -1);
+            addSuccessors(current);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        public long nextLong() {
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            long key = getKey(current.flips, freeValue);
+            if (++freeValue == size()) {
+                freeValue = 0;
+                current = queue.poll();
+                if (current != null) {
+                    addSuccessors(current);
+                }
+            }
+            return key;
+        }
+
+        private void addSuccessors(FlipSet set) {
+            int next = set.last + 1;
+            if (next >= flippable) {
+                return;
+            }
+            queue.add(new FlipSet(set.cost + flipCosts[next], set.flips | 1L << next, next));
+            if (set.last >= 0) {
+                queue.add(new FlipSet(set.cost - flipCosts[set.last] + flipCosts[next],
+                        set.flips & ~(1L << set.last) | 1L << next, next));
+            }
+        }
+    }
+
+    private static class FlipSet {
+        private final double cost;
+        private final long flips;
+        private final int last;
+
+        private FlipSet(double cost, long flips, int last) {
+            this.cost = cost;
+            this.flips = flips;
+            this.last = last;
+        }
+
+        private double getCost() {
+            return cost;
+        }
+    }
+
+    static class Row {
+        private final long mask;
+        private final boolean constant;
+        private final long combination;
+        private final long pivotBit;
+
+        Row(long mask, boolean constant, long combination, long pivotBit) {
+            this.mask = mask;
+            this.constant = constant;
+            this.combination = combination;
+            this.pivotBit = pivotBit;
+        }
+
+        Row add(Row other) {
+            return new Row(mask ^ other.mask, constant ^ other.constant, combination ^ other.combination, pivotBit);
+        }
+
+        // The mask includes the pivot bit, all the other bits are free
+        long getMask() {
+            return mask;
+        }
+
+        boolean getConstant() {
+            return constant;
+        }
+
+        // Accepted equations summed into this row
+        long getCombination() {
+            return combination;
+        }
+
+        long getPivotBit() {
+            return pivotBit;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.suai.crypto.search;
+
+import org.apache.commons.math3.fraction.Fraction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.util.BitEquation;
+import org.suai.crypto.util.LinearApproximation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Gaussian elimination over GF(2) for key equations K(i) + ... = 0/1. Equations are added from
+// the most to the least biased one, so an equation contradicting the stronger ones is the one
+// reported as a conflict and left out.
+public class Gf2Solver {
+    private static final Logger logger = LoggerFactory.getLogger(Gf2Solver.class);
+
+    private final int keySize;
+
+    public Gf2Solver(int keySize) {
+        if (keySize < 1 || keySize > Long.SIZE) {
+            throw new IllegalArgumentException("Key size must be between 1 and 64 bits: " + keySize);
+        }
+        this.keySize = keySize;
+    }
+
+    public Gf2Solution solve(List<LinearApproximation> keyEquations) {
+        List<LinearApproximation> ranked = new ArrayList<>(keyEquations);
+        ranked.sort(Comparator.comparingDouble(Gf2Solver::getBias).reversed());
+
+        // Rows are kept in reduced echelon form: no pivot bit appears in any other row
+        List<Gf2Solution.Row> rows = new ArrayList<>();
+        List<LinearApproximation> accepted = new ArrayList<>();
+        List<LinearApproximation> conflicts = new ArrayList<>();
+        for (LinearApproximation equation : ranked) {
+            double bias = getBias(equation);
+            if (bias == 0) {
+                continue;
+            }
+            BitEquation bits = BitEquation.of(equation, keySize, 0);
+            if (bits.getPlaintextMask() != 0 || bits.getCiphertextMask() != 0) {
+                throw new IllegalArgumentException("Not a key equation: " + equation);
+            }
+            long mask = bits.getKeyMask();
+            boolean constant = bits.getConstant();
+            long combination = rows.size() < Long.SIZE ? 1L << accepted.size() : 0;
+            for (Gf2Solution.Row row : rows) {
+                if ((mask & row.getPivotBit()) != 0) {
+                    mask ^= row.getMask();
+                    constant ^= row.getConstant();
+                    combination ^= row.getCombination();
+                }
+            }
+            if (mask == 0) {
+                if (constant) {
+                    conflicts.add(equation);
+                }
+                continue;
+            }
+            Gf2Solution.Row pivotRow = new Gf2Solution.Row(mask, constant, combination, Long.highestOneBit(mask));
+            for (int i = 0; i < rows.size(); i++) {
+                if ((rows.get(i).getMask() & pivotRow.getPivotBit()) != 0) {
+                    rows.set(i, rows.get(i).add(pivotRow));
+                }
+            }
+            rows.add(pivotRow);
+            accepted.add(equation);
+        }
+        logger.debug("Rank {} from {} equations, {} conflict(s)", rows.size(), keyEquations.size(), conflicts.size());
+        // Flips are enumerated from the cheapest one, so the accepted equations are renumbered
+        // from the least to the most biased one
+        int rank = rows.size();
+        Collections.reverse(accepted);
+        for (int i = 0; i < rank; i++) {
+            Gf2Solution.Row row = rows.get(i);
+            long combination = Long.reverse(row.getCombination()) >>> (Long.SIZE - rank);
+            rows.set(i, new Gf2Solution.Row(row.getMask(), row.getConstant(), combination, row.getPivotBit()));
+        }
+        double[] flipCosts = accepted.stream().mapToDouble(equation -> getFlipCost(getBias(equation))).toArray();
+        return new Gf2Solution(keySize, rows, flipCosts, accepted, conflicts);
+    }
+
+    static double getBias(LinearApproximation equation) {
+        Fraction probability = equation.getProbability();
+        return probability == null ? 0 : Math.abs(probability.doubleValue() - 0.5);
+    }
+
+    // Log-likelihood lost by assuming the equation holds with the other constant
+    static double getFlipCost(double bias) {
+        return bias >= 0.5 ? Double.POSITIVE_INFINITY : Math.log((0.5 + bias) / (0.5 - bias));
+    }
+}
@@ -0,0 +1,144 @@
+package org.suai.crypto.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+public class KeySearchEngine {
+    private static final Logger logger = LoggerFactory.getLogger(KeySearchEngine.class);
+
+    private static final long LEAF_SIZE = 1 << 12;
+
+    private final ForkJoinPool pool;
+
+    public KeySearchEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public KeySearchEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public KeySearchResult search(KeySpace space, KeyVerifier verifier, boolean stopAtFirst) {
+        return search(Collections.singletonList(space), verifier, stopAtFirst);
+    }
+
+    public KeySearchResult search(List<KeySpace> spaces, KeyVerifier verifier, boolean stopAtFirst) {
+        long totalSize = spaces.stream().mapToLong(KeySpace::size).sum();
+        logger.debug("Searching {} key spaces, {} keys in total", spaces.size(), totalSize);
+        ConcurrentLinkedQueue<Long> found = new ConcurrentLinkedQueue<>();
+        LongAdder tested = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        long start = System.nanoTime();
+        for (KeySpace space : spaces) {
+            if (stop.get()) {
+                break;
+            }
+            pool.invoke(new SearchTask(space, 0, space.size(), verifier, found, tested, stop, stopAtFirst));
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        List<Long> keys = new ArrayList<>(found);
+        Collections.sort(keys);
+        KeySearchResult result = new KeySearchResult(keys, tested.sum(), elapsedNanos);
+        logger.debug("{}", result);
+        return result;
+    }
+
+    // Candidates are tested a block at a time in the order they come, e.g. the most likely keys
+    // of a Gf2Solution first, and the found keys keep that order
+    public KeySearchResult search(PrimitiveIterator.OfLong candidates, long maxKeys, KeyVerifier verifier,
+                                  boolean stopAtFirst) {
+        List<Long> keys = new ArrayList<>();
+        long tested = 0;
+        long[] block = new long[(int) LEAF_SIZE];
+        long start = System.nanoTime();
+        while (candidates.hasNext() && tested < maxKeys && !(stopAtFirst && !keys.isEmpty())) {
+            int size = 0;
+            while (size < block.length && candidates.hasNext() && tested + size < maxKeys) {
+                block[size++] = candidates.nextLong();
+            }
+            int count = size;
+            int lanes = (count + Long.SIZE - 1) / Long.SIZE;
+            long[] accepted = new long[lanes];
+            pool.submit(() -> IntStream.range(0, lanes).parallel().forEach(chunk -> {
+                long[] chunkKeys = Arrays.copyOfRange(block, chunk * Long.SIZE, (chunk + 1) * Long.SIZE);
+                accepted[chunk] = verifier.test(chunkKeys, Math.min(Long.SIZE, count - chunk * Long.SIZE));
+            })).join();
+            for (int chunk = 0; chunk < lanes; chunk++) {
+                for (long mask = accepted[chunk]; mask != 0; mask &= mask - 1) {
+                    keys.add(block[chunk * Long.SIZE + Long.numberOfTrailingZeros(mask)]);
+                }
+            }
+            tested += count;
+        }
+        KeySearchResult result = new KeySearchResult(keys, tested, System.nanoTime() - start);
+        logger.debug("{}", result);
+        return result;
+    }
+
+    private static class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final KeySpace space;
+        private final long from;
+        private final long to;
+        private final KeyVerifier verifier;
+        private final ConcurrentLinkedQueue<Long> found;
+        private final LongAdder tested;
+        private final AtomicBoolean stop;
+        private final boolean stopAtFirst;
+
+        private SearchTask(KeySpace space, long from, long to, KeyVerifier verifier,
+                           ConcurrentLinkedQueue<Long> found, LongAdder tested,
+                           AtomicBoolean stop, boolean stopAtFirst) {
+            this.space = space;
+            this.from = from;
+            this.to = to;
+            this.verifier = verifier;
+            this.found = found;
+            this.tested = tested;
+            this.stop = stop;
+            this.stopAtFirst = stopAtFirst;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new SearchTask(space, from, middle, verifier, found, tested, stop, stopAtFirst),
+                        new SearchTask(space, middle, to, verifier, found, tested, stop, stopAtFirst));
+                return;
+            }
+            long[] keys = new long[Long.SIZE];
+            long index = from;
+            while (index < to && !stop.get()) {
+                int count = (int) Math.min(keys.length, to - index);
+                for (int lane = 0; lane < count; lane++) {
+                    keys[lane] = space.get(index + lane);
+                }
+                long accepted = verifier.test(keys, count);
+                while (accepted != 0) {
+                    int lane = Long.numberOfTrailingZeros(accepted);
+                    found.add(keys[lane]);
+                    accepted &= accepted - 1;
+                    if (stopAtFirst) {
+                        stop.set(true);
+                    }
+                }
+                tested.add(count);
+                index += count;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.suai.crypto.search;
+
+import java.util.List;
+
+public class KeySearchResult {
+    private final List<Long> keys;
+    private final long keysTested;
+    private final long elapsedNanos;
+
+    public KeySearchResult(List<Long> keys, long keysTested, long elapsedNanos) {
+        this.keys = keys;
+        this.keysTested = keysTested;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<Long> getKeys() {
+        return keys;
+    }
+
+    public long getKeysTested() {
+        return keysTested;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getKeysPerSecond() {
+        return elapsedNanos == 0 ? 0 : keysTested * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Found %d key(s) after testing %d keys in %.3f s (%.0f keys/s)",
+                keys.size(), keysTested, elapsedNanos / 1e9, getKeysPerSecond());
+    }
+}
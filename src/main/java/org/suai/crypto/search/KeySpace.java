@@ -0,0 +1,91 @@
+package org.suai.crypto.search;
+
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class KeySpace {
+
+    private final int keySize;
+    private final long fixedMask;
+    private final long fixedValue;
+    private final int[] freeBits;
+
+    public KeySpace(int keySize, long fixedMask, long fixedValue) {
+        if (keySize < 1 || keySize > Long.SIZE) {
+            throw new IllegalArgumentException("Key size must be between 1 and 64 bits: " + keySize);
+        }
+        long keyMask = keySize == Long.SIZE ? -1L : (1L << keySize) - 1;
+        this.keySize = keySize;
+        this.fixedMask = fixedMask & keyMask;
+        this.fixedValue = fixedValue & this.fixedMask;
+        this.freeBits = new int[keySize - Long.bitCount(this.fixedMask)];
+        int index = 0;
+        for (int bit = 0; bit < keySize; bit++) {
+            if ((this.fixedMask >>> bit & 1) == 0) {
+                freeBits[index++] = bit;
+            }
+        }
+        if (freeBits.length >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Key space is too large to enumerate: 2^" + freeBits.length);
+        }
+    }
+
+    public static KeySpace full(int keySize) {
+        return new KeySpace(keySize, 0, 0);
+    }
+
+    public static List<KeySpace> fromSubKeys(SpnSpec spec, Map<Integer, Set<String>> subKeys) {
+        // Every combination of candidate sub keys fixes the bits of its s-boxes
+        List<KeySpace> spaces = Collections.singletonList(full(spec.getBlockSize()));
+        for (Map.Entry<Integer, Set<String>> entry : subKeys.entrySet()) {
+            int shift = spec.getSBoxShift(entry.getKey());
+            long blockMask = ((1L << spec.getSBoxInputSize()) - 1) << shift;
+            List<KeySpace> refined = new ArrayList<>();
+            for (KeySpace space : spaces) {
+                for (String subKey : entry.getValue()) {
+                    long value = Long.parseUnsignedLong(subKey, 2) << shift;
+                    refined.add(new KeySpace(space.keySize,
+                            space.fixedMask | blockMask,
+                            space.fixedValue | value));
+                }
+            }
+            spaces = refined;
+        }
+        return spaces;
+    }
+
+    public long get(long index) {
+        long key = fixedValue;
+        for (int i = 0; i < freeBits.length; i++) {
+            key |= (index >>> i & 1) << freeBits[i];
+        }
+        return key;
+    }
+
+    public long size() {
+        return 1L << freeBits.length;
+    }
+
+    public int getKeySize() {
+        return keySize;
+    }
+
+    public long getFixedMask() {
+        return fixedMask;
+    }
+
+    public long getFixedValue() {
+        return fixedValue;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KeySpace(size = 2^%d, fixed = %s/%s)", freeBits.length,
+                Long.toBinaryString(fixedValue), Long.toBinaryString(fixedMask));
+    }
+}
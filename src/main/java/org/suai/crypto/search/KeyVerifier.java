@@ -0,0 +1,67 @@
+package org.suai.crypto.search;
+
+import org.suai.crypto.spn.BitslicedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.BlockCipher;
+
+import java.util.Arrays;
+
+@FunctionalInterface
+public interface KeyVerifier {
+
+    boolean test(long key);
+
+    default long test(long[] keys, int count) {
+        long accepted = 0;
+        for (int lane = 0; lane < count; lane++) {
+            if (test(keys[lane])) {
+                accepted |= 1L << lane;
+            }
+        }
+        return accepted;
+    }
+
+    // Goes through the round key path, so a caching cipher doesn't build a codebook for every candidate
+    static KeyVerifier knownPairs(BlockCipher cipher, long[] plaintexts, long[] ciphertexts) {
+        return key -> {
+            long[] roundKeys = cipher.getSpec().expandKey(key);
+            for (int i = 0; i < plaintexts.length; i++) {
+                if (cipher.encrypt(plaintexts[i], roundKeys) != ciphertexts[i]) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    static KeyVerifier knownPairs(BitslicedSubstitutionPermutationNetwork cipher,
+                                  long[] plaintexts, long[] ciphertexts) {
+        int blockSize = cipher.getSpec().getBlockSize();
+        long[][] plaintextPlanes = new long[plaintexts.length][];
+        long[][] ciphertextPlanes = new long[plaintexts.length][];
+        for (int i = 0; i < plaintexts.length; i++) {
+            plaintextPlanes[i] = cipher.broadcast(plaintexts[i]);
+            ciphertextPlanes[i] = cipher.broadcast(ciphertexts[i]);
+        }
+        return new KeyVerifier() {
+            @Override
+            public boolean test(long key) {
+                return test(new long[]{key}, 1) != 0;
+            }
+
+            @Override
+            public long test(long[] keys, int count) {
+                long alive = count == Long.SIZE ? -1L : (1L << count) - 1;
+                long[] keyPlanes = cipher.toPlanes(count == keys.length ? keys : Arrays.copyOf(keys, count));
+                for (int i = 0; i < plaintexts.length && alive != 0; i++) {
+                    long[] encrypted = cipher.encrypt(plaintextPlanes[i], keyPlanes);
+                    long mismatch = 0;
+                    for (int bit = 0; bit < blockSize; bit++) {
+                        mismatch |= encrypted[bit] ^ ciphertextPlanes[i][bit];
+                    }
+                    alive &= ~mismatch;
+                }
+                return alive;
+            }
+        };
+    }
+}
@@ -0,0 +1,385 @@
+package org.suai.crypto.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.suai.crypto.metrics.MetricsRegistry;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+// Known plaintext meet-in-the-middle attack on a network with independent round keys. Round keys
+// 0 .. split - 1 are guessed from the plaintext side, the rest from the ciphertext side, and both sides
+// meet in the state right before round key split is added, so the work is 2^(split n) + 2^((r + 1 - split) n)
+// instead of their product. The middle states of the first pairs are packed into one long signature;
+// the forward signatures go into an in-memory hash table and the backward ones are streamed against it.
+// A forward side larger than maxTableEntries is partitioned on disk by signature hash together with the
+// backward side, and the partitions are joined one at a time (a grace hash join). A partition that is
+// still too large is split again on the next bits of the hash, so no table exceeds maxTableEntries.
+public class MeetInTheMiddleAttack {
+    private static final Logger logger = LoggerFactory.getLogger(MeetInTheMiddleAttack.class);
+
+    private static final int DEFAULT_MAX_TABLE_ENTRIES = 1 << 22;
+    private static final int MAX_TABLE_ENTRIES = 1 << 28;
+    // All partitions of one split are open for writing at once
+    private static final int MAX_PARTITION_BITS = 10;
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int CHUNK_SIZE = 1 << 10;
+    private static final int RECORD_BYTES = 2 * Long.BYTES;
+
+    private final BitPackedSubstitutionPermutationNetwork cipher;
+    private final SpnSpec spec;
+    private final int split;
+    private final int blockSize;
+    private final long blockMask;
+    private final long forwardKeys;
+    private final long backwardKeys;
+    private final MetricsRegistry metrics;
+    private int maxTableEntries = DEFAULT_MAX_TABLE_ENTRIES;
+    private Path temporaryDirectory;
+
+    public MeetInTheMiddleAttack(BitPackedSubstitutionPermutationNetwork cipher, int split) {
+        this.cipher = cipher;
+        this.spec = cipher.getSpec();
+        if (split < 1 || split >= spec.getNumberOfRounds()) {
+            throw new IllegalArgumentException("Split round must be between 1 and " + (spec.getNumberOfRounds() - 1) + ": " + split);
+        }
+        this.split = split;
+        this.blockSize = spec.getBlockSize();
+        this.blockMask = spec.getBlockMask();
+        int forwardBits = split * blockSize;
+        int backwardBits = (spec.getNumberOfRoundKeys() - split) * blockSize;
+        if (forwardBits >= Long.SIZE - 1 || backwardBits >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Too many key bits on one side: " + forwardBits + " / " + backwardBits);
+        }
+        this.forwardKeys = 1L << forwardBits;
+        this.backwardKeys = 1L << backwardBits;
+        this.metrics = MetricsRegistry.getDefault();
+    }
+
+    public void setMaxTableEntries(int maxTableEntries) {
+        if (maxTableEntries < 1 || maxTableEntries > MAX_TABLE_ENTRIES) {
+            throw new IllegalArgumentException("Table size must be between 1 and " + MAX_TABLE_ENTRIES + ": " + maxTableEntries);
+        }
+        this.maxTableEntries = maxTableEntries;
+    }
+
+    // Partitions go to the default temporary directory unless another one is set
+    public void setTemporaryDirectory(Path temporaryDirectory) {
+        this.temporaryDirectory = temporaryDirectory;
+    }
+
+    public MeetInTheMiddleResult attack(long[] plaintexts, long[] ciphertexts) throws IOException {
+        if (plaintexts.length == 0 || plaintexts.length != ciphertexts.length) {
+            throw new IllegalArgumentException("Need the same positive number of plaintexts and ciphertexts");
+        }
+        // Candidates that match on the signature pairs are checked against all of them
+        int signaturePairs = Math.min(plaintexts.length, Long.SIZE / blockSize);
+        if (plaintexts.length <= spec.getNumberOfRoundKeys()) {
+            logger.warn("{} pairs can't single out a key of {} round keys", plaintexts.length, spec.getNumberOfRoundKeys());
+        }
+        SignatureFunction forward = (index, roundKeys) -> {
+            setForwardKeys(index, roundKeys);
+            long signature = 0;
+            for (int i = 0; i < signaturePairs; i++) {
+                signature = signature << blockSize | cipher.encryptRounds(plaintexts[i], roundKeys, split);
+            }
+            return signature;
+        };
+        SignatureFunction backward = (index, roundKeys) -> {
+            setBackwardKeys(index, roundKeys);
+            long signature = 0;
+            for (int i = 0; i < signaturePairs; i++) {
+                signature = signature << blockSize | cipher.decryptRounds(ciphertexts[i], roundKeys, split);
+            }
+            return signature;
+        };
+        Join join = new Join(plaintexts, ciphertexts);
+        long start = System.nanoTime();
+        if (forwardKeys <= maxTableEntries) {
+            joinInMemory(forward, backward, join);
+        } else {
+            joinOnDisk(forward, backward, join);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        metrics.timer("mitm.attack").record(elapsedNanos);
+        List<long[]> keys = new ArrayList<>(join.keys);
+        keys.sort(Arrays::compare);
+        MeetInTheMiddleResult result = new MeetInTheMiddleResult(keys, forwardKeys, backwardKeys,
+                join.matches.sum(), join.partitions, join.largestTable, elapsedNanos);
+        logger.debug("{}", result);
+        return result;
+    }
+
+    private void joinInMemory(SignatureFunction forward, SignatureFunction backward, Join join) {
+        join.addTable(forwardKeys);
+        SignatureTable table = new SignatureTable((int) forwardKeys);
+        for (long from = 0; from < forwardKeys; from += BLOCK_SIZE) {
+            long[] signatures = getSignatures(forward, from, (int) Math.min(BLOCK_SIZE, forwardKeys - from));
+            for (int i = 0; i < signatures.length; i++) {
+                table.put(signatures[i], from + i);
+            }
+        }
+        for (long from = 0; from < backwardKeys; from += BLOCK_SIZE) {
+            long[] signatures = getSignatures(backward, from, (int) Math.min(BLOCK_SIZE, backwardKeys - from));
+            long base = from;
+            join.probe(table, signatures, i -> base + i);
+        }
+    }
+
+    private int getPartitionBits(long entries, int usedBits) {
+        // Twice as many partitions as the bound strictly needs leaves room for uneven ones
+        long needed = (entries + maxTableEntries - 1) / maxTableEntries * 2;
+        int bits = Long.SIZE - Long.numberOfLeadingZeros(needed - 1);
+        return Math.min(Math.min(bits, MAX_PARTITION_BITS), Integer.SIZE - usedBits);
+    }
+
+    private void joinOnDisk(SignatureFunction forward, SignatureFunction backward, Join join) throws IOException {
+        Path directory = temporaryDirectory == null ? Files.createTempDirectory("mitm")
+                : Files.createTempDirectory(temporaryDirectory, "mitm");
+        int bits = getPartitionBits(forwardKeys, 0);
+        Path[] forwardFiles = getPartitionFiles(directory.resolve("forward"), 1 << bits);
+        Path[] backwardFiles = getPartitionFiles(directory.resolve("backward"), 1 << bits);
+        try {
+            logger.debug("Partitioning {} forward and {} backward signatures into {} files in {}",
+                    forwardKeys, backwardKeys, forwardFiles.length, directory);
+            writePartitions(forward, forwardKeys, forwardFiles, 0);
+            writePartitions(backward, backwardKeys, backwardFiles, 0);
+            for (int partition = 0; partition < forwardFiles.length; partition++) {
+                joinPartition(forwardFiles[partition], backwardFiles[partition], join, bits);
+            }
+        } finally {
+            deleteAll(forwardFiles);
+            deleteAll(backwardFiles);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // prefix-0, prefix-1, ... next to prefix
+    private static Path[] getPartitionFiles(Path prefix, int partitions) {
+        Path[] files = new Path[partitions];
+        for (int partition = 0; partition < partitions; partition++) {
+            files[partition] = prefix.resolveSibling(prefix.getFileName() + "-" + partition);
+        }
+        return files;
+    }
+
+    private static void deleteAll(Path[] files) throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void writePartitions(SignatureFunction function, long numberOfKeys, Path[] files,
+                                 int usedBits) throws IOException {
+        try (PartitionWriter writer = new PartitionWriter(files, usedBits)) {
+            for (long from = 0; from < numberOfKeys; from += BLOCK_SIZE) {
+                long[] signatures = getSignatures(function, from, (int) Math.min(BLOCK_SIZE, numberOfKeys - from));
+                for (int i = 0; i < signatures.length; i++) {
+                    writer.write(signatures[i], from + i);
+                }
+            }
+        }
+    }
+
+    // Records of one partition spread over the next bits of the hash
+    private static void splitPartition(Path file, Path[] files, int usedBits) throws IOException {
+        long remaining = Files.size(file) / RECORD_BYTES;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+             PartitionWriter writer = new PartitionWriter(files, usedBits)) {
+            for (long i = 0; i < remaining; i++) {
+                writer.write(input.readLong(), input.readLong());
+            }
+        }
+    }
+
+    // usedBits of the hash are the same for every record in both files
+    private void joinPartition(Path forwardFile, Path backwardFile, Join join, int usedBits) throws IOException {
+        long size = Files.size(forwardFile) / RECORD_BYTES;
+        if (size > maxTableEntries) {
+            int bits = getPartitionBits(size, usedBits);
+            if (bits == 0) {
+                throw new IllegalStateException(size + " forward signatures in " + forwardFile
+                        + " share their hash, more pairs would tell them apart");
+            }
+            Path[] forwardFiles = getPartitionFiles(forwardFile, 1 << bits);
+            Path[] backwardFiles = getPartitionFiles(backwardFile, 1 << bits);
+            try {
+                splitPartition(forwardFile, forwardFiles, usedBits);
+                splitPartition(backwardFile, backwardFiles, usedBits);
+                Files.delete(forwardFile);
+                Files.delete(backwardFile);
+                for (int partition = 0; partition < forwardFiles.length; partition++) {
+                    joinPartition(forwardFiles[partition], backwardFiles[partition], join, usedBits + bits);
+                }
+            } finally {
+                deleteAll(forwardFiles);
+                deleteAll(backwardFiles);
+            }
+            return;
+        }
+        join.addTable(size);
+        SignatureTable table = new SignatureTable((int) size);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(forwardFile)))) {
+            for (long i = 0; i < size; i++) {
+                table.put(input.readLong(), input.readLong());
+            }
+        }
+        long remaining = Files.size(backwardFile) / RECORD_BYTES;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(backwardFile)))) {
+            while (remaining > 0) {
+                int count = (int) Math.min(BLOCK_SIZE, remaining);
+                long[] signatures = new long[count];
+                long[] indices = new long[count];
+                for (int i = 0; i < count; i++) {
+                    signatures[i] = input.readLong();
+                    indices[i] = input.readLong();
+                }
+                join.probe(table, signatures, i -> indices[i]);
+                remaining -= count;
+            }
+        }
+    }
+
+    // Signatures of the key indices from .. from + count - 1, computed in parallel chunks
+    private long[] getSignatures(SignatureFunction function, long from, int count) {
+        long[] signatures = new long[count];
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            long[] roundKeys = new long[spec.getNumberOfRoundKeys()];
+            int end = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                signatures[i] = function.apply(from + i, roundKeys);
+            }
+        });
+        return signatures;
+    }
+
+    private void setForwardKeys(long index, long[] roundKeys) {
+        for (int round = 0; round < split; round++) {
+            roundKeys[round] = index >>> (round * blockSize) & blockMask;
+        }
+    }
+
+    private void setBackwardKeys(long index, long[] roundKeys) {
+        for (int round = split; round < roundKeys.length; round++) {
+            roundKeys[round] = index >>> ((round - split) * blockSize) & blockMask;
+        }
+    }
+
+    // Matches of backward signatures against a forward table, verified on all the pairs
+    private class Join {
+        private final long[] plaintexts;
+        private final long[] ciphertexts;
+        private final ConcurrentLinkedQueue<long[]> keys = new ConcurrentLinkedQueue<>();
+        private final LongAdder matches = new LongAdder();
+        // Tables are built one at a time
+        private int partitions;
+        private long largestTable;
+
+        Join(long[] plaintexts, long[] ciphertexts) {
+            this.plaintexts = plaintexts;
+            this.ciphertexts = ciphertexts;
+        }
+
+        void addTable(long size) {
+            partitions++;
+            largestTable = Math.max(largestTable, size);
+        }
+
+        void probe(SignatureTable table, long[] signatures, IndexFunction backwardIndices) {
+            int chunks = (signatures.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int end = Math.min(signatures.length, (chunk + 1) * CHUNK_SIZE);
+                for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                    long backwardIndex = backwardIndices.get(i);
+                    table.forEach(signatures[i], forwardIndex -> {
+                        matches.increment();
+                        long[] roundKeys = new long[spec.getNumberOfRoundKeys()];
+                        setForwardKeys(forwardIndex, roundKeys);
+                        setBackwardKeys(backwardIndex, roundKeys);
+                        if (isConsistent(roundKeys)) {
+                            keys.add(roundKeys);
+                        }
+                    });
+                }
+            });
+        }
+
+        private boolean isConsistent(long[] roundKeys) {
+            for (int i = 0; i < plaintexts.length; i++) {
+                if (cipher.encrypt(plaintexts[i], roundKeys) != ciphertexts[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // One output per partition, chosen by the hash bits right after the usedBits top ones
+    private static class PartitionWriter implements Closeable {
+        private final DataOutputStream[] outputs;
+        private final int usedBits;
+        private final int partitionBits;
+
+        PartitionWriter(Path[] files, int usedBits) throws IOException {
+            this.outputs = new DataOutputStream[files.length];
+            this.usedBits = usedBits;
+            this.partitionBits = Integer.numberOfTrailingZeros(files.length);
+            try {
+                for (int partition = 0; partition < files.length; partition++) {
+                    outputs[partition] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(files[partition])));
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void write(long signature, long index) throws IOException {
+            DataOutputStream output = outputs[SignatureTable.hash(signature) << usedBits >>> (Integer.SIZE - partitionBits)];
+            output.writeLong(signature);
+            output.writeLong(index);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (DataOutputStream output : outputs) {
+                if (output != null) {
+                    try {
+                        output.close();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface SignatureFunction {
+        long apply(long index, long[] roundKeys);
+    }
+
+    @FunctionalInterface
+    private interface IndexFunction {
+        long get(int i);
+    }
+}
@@ -0,0 +1,63 @@
+package org.suai.crypto.search;
+
+import java.util.List;
+
+public class MeetInTheMiddleResult {
+    private final List<long[]> keys;
+    private final long forwardKeys;
+    private final long backwardKeys;
+    private final long matches;
+    private final int partitions;
+    private final long largestTable;
+    private final long elapsedNanos;
+
+    public MeetInTheMiddleResult(List<long[]> keys, long forwardKeys, long backwardKeys, long matches,
+                                 int partitions, long largestTable, long elapsedNanos) {
+        this.keys = keys;
+        this.forwardKeys = forwardKeys;
+        this.backwardKeys = backwardKeys;
+        this.matches = matches;
+        this.partitions = partitions;
+        this.largestTable = largestTable;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Round keys consistent with all the pairs
+    public List<long[]> getKeys() {
+        return keys;
+    }
+
+    public long getForwardKeys() {
+        return forwardKeys;
+    }
+
+    public long getBackwardKeys() {
+        return backwardKeys;
+    }
+
+    // Forward and backward guesses with equal signatures, before checking the remaining pairs
+    public long getMatches() {
+        return matches;
+    }
+
+    // 1 when the forward table fit into memory
+    public int getPartitions() {
+        return partitions;
+    }
+
+    // Forward signatures in the largest table held in memory, at most maxTableEntries
+    public long getLargestTable() {
+        return largestTable;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Found %d key(s) from %d forward and %d backward guesses "
+                        + "(%d matches, %d partition(s) of at most %d) in %.3f s",
+                keys.size(), forwardKeys, backwardKeys, matches, partitions, largestTable, elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,62 @@
+package org.suai.crypto.search;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// Open addressing multimap from a signature to non-negative values on two primitive arrays.
+// Equal signatures take separate slots, a lookup walks the probe sequence up to the first empty slot.
+class SignatureTable {
+    private static final long EMPTY = -1;
+
+    private final long[] signatures;
+    private final long[] values;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+
+    SignatureTable(int expectedSize) {
+        // Load factor at most 1/2 keeps the probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        this.signatures = new long[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+        this.maxSize = capacity / 2;
+        Arrays.fill(values, EMPTY);
+    }
+
+    void put(long signature, long value) {
+        if (size == maxSize) {
+            throw new IllegalStateException("Signature table is full: " + size);
+        }
+        int slot = hash(signature) & mask;
+        while (values[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        signatures[slot] = signature;
+        values[slot] = value;
+        size++;
+    }
+
+    void forEach(long signature, LongConsumer action) {
+        for (int slot = hash(signature) & mask; values[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (signatures[slot] == signature) {
+                action.accept(values[slot]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Final mix of MurmurHash3, the same bits also choose the disk partition, from the other end
+    static int hash(long signature) {
+        long h = signature;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
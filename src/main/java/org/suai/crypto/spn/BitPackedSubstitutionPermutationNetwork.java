@@ -0,0 +1,209 @@
+package org.suai.crypto.spn;
+
+import org.apache.commons.collections4.BidiMap;
+
+import static org.suai.crypto.util.BinaryString.valueOf;
+
+public class BitPackedSubstitutionPermutationNetwork implements BlockCipher {
+
+    private final SpnSpec spec;
+    private final BidiMap<String, String> sBox;
+    private final int[] sBoxTable;
+    private final int[] inverseSBoxTable;
+    private final int sBoxMask;
+    private final int[] shifts;
+    // Bit i of the permuted block is taken from bit permutationSources[i] of the input block
+    private final int[] permutationSources;
+    private final int[] inversePermutationSources;
+    // S-box followed by the bit permutation, one table per s-box position
+    private final long[][] substitutionPermutationTable;
+    // Inverse s-box followed by the inverse bit permutation, one table per s-box position
+    private final long[][] inverseSubstitutionPermutationTable;
+
+    public BitPackedSubstitutionPermutationNetwork(BidiMap<String, String> sBox) {
+        this(sBox, SpnSpec.DEFAULT);
+    }
+
+    public BitPackedSubstitutionPermutationNetwork(BidiMap<String, String> sBox, SpnSpec spec) {
+        this(sBox, SBoxProvider.toTable(sBox, spec.getSBoxInputSize()), spec);
+    }
+
+    public BitPackedSubstitutionPermutationNetwork(int[] sBoxTable, SpnSpec spec) {
+        this(SBoxProvider.toBidiMap(sBoxTable, spec.getSBoxInputSize()), sBoxTable, spec);
+    }
+
+    private BitPackedSubstitutionPermutationNetwork(BidiMap<String, String> sBox, int[] sBoxTable, SpnSpec spec) {
+        if (sBoxTable.length != 1 << spec.getSBoxInputSize()) {
+            throw new IllegalArgumentException("S-box doesn't match " + spec);
+        }
+        this.spec = spec;
+        this.sBox = sBox;
+        this.sBoxTable = sBoxTable.clone();
+        this.inverseSBoxTable = SBoxProvider.invert(sBoxTable);
+        this.sBoxMask = (1 << spec.getSBoxInputSize()) - 1;
+        this.shifts = new int[spec.getNumberOfSBoxes()];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = spec.getSBoxShift(i);
+        }
+        this.permutationSources = getPermutationSources(spec.getBitPermutation());
+        this.inversePermutationSources = getPermutationSources(spec.getInverseBitPermutation());
+        this.substitutionPermutationTable = buildTable(this.sBoxTable, permutationSources);
+        this.inverseSubstitutionPermutationTable = buildTable(inverseSBoxTable, inversePermutationSources);
+    }
+
+    @Override
+    public long encrypt(long plaintext, long[] roundKeys) {
+        int numberOfRounds = spec.getNumberOfRounds();
+        long state = plaintext ^ roundKeys[0];
+        for (int round = 1; round < numberOfRounds; round++) {
+            state = lookup(state, substitutionPermutationTable) ^ roundKeys[round];
+        }
+        return substitute(state, sBoxTable) ^ roundKeys[numberOfRounds];
+    }
+
+    @Override
+    public long decrypt(long ciphertext, long[] roundKeys) {
+        // P^-1(S^-1(x) ^ k) = P^-1(S^-1(x)) ^ P^-1(k), so the inverse permutation is folded into the table
+        int numberOfRounds = spec.getNumberOfRounds();
+        long state = ciphertext ^ roundKeys[numberOfRounds];
+        for (int round = numberOfRounds - 1; round >= 1; round--) {
+            state = lookup(state, inverseSubstitutionPermutationTable) ^ permute(roundKeys[round], inversePermutationSources);
+        }
+        return substitute(state, inverseSBoxTable) ^ roundKeys[0];
+    }
+
+    // State right before round key [rounds] is added, only round keys 0 .. rounds - 1 are used
+    public long encryptRounds(long plaintext, long[] roundKeys, int rounds) {
+        checkMiddleRound(rounds);
+        long state = plaintext ^ roundKeys[0];
+        for (int round = 1; round < rounds; round++) {
+            state = lookup(state, substitutionPermutationTable) ^ roundKeys[round];
+        }
+        return lookup(state, substitutionPermutationTable);
+    }
+
+    // The same state reached from the ciphertext, only round keys rounds .. numberOfRounds are used
+    public long decryptRounds(long ciphertext, long[] roundKeys, int rounds) {
+        checkMiddleRound(rounds);
+        int numberOfRounds = spec.getNumberOfRounds();
+        long state = ciphertext ^ roundKeys[numberOfRounds];
+        for (int round = numberOfRounds - 1; round > rounds; round--) {
+            state = lookup(state, inverseSubstitutionPermutationTable) ^ permute(roundKeys[round], inversePermutationSources);
+        }
+        return substitute(state, inverseSBoxTable) ^ roundKeys[rounds];
+    }
+
+    private void checkMiddleRound(int rounds) {
+        if (rounds < 1 || rounds >= spec.getNumberOfRounds()) {
+            throw new IllegalArgumentException("Round must be between 1 and " + (spec.getNumberOfRounds() - 1) + ": " + rounds);
+        }
+    }
+
+    @Override
+    public int encrypt(int plaintext, int key) {
+        spec.checkIntBlock();
+        int numberOfRounds = spec.getNumberOfRounds();
+        long roundKey = Integer.toUnsignedLong(key);
+        long state = Integer.toUnsignedLong(plaintext) ^ roundKey;
+        for (int round = 1; round < numberOfRounds; round++) {
+            state = lookup(state, substitutionPermutationTable) ^ roundKey;
+        }
+        return (int) (substitute(state, sBoxTable) ^ roundKey);
+    }
+
+    @Override
+    public int decrypt(int ciphertext, int key) {
+        spec.checkIntBlock();
+        int numberOfRounds = spec.getNumberOfRounds();
+        long roundKey = Integer.toUnsignedLong(key);
+        long permutedKey = permute(roundKey, inversePermutationSources);
+        long state = Integer.toUnsignedLong(ciphertext) ^ roundKey;
+        for (int round = 1; round < numberOfRounds; round++) {
+            state = lookup(state, inverseSubstitutionPermutationTable) ^ permutedKey;
+        }
+        return (int) (substitute(state, inverseSBoxTable) ^ roundKey);
+    }
+
+    // Strings may be up to 64 bits wide, so they go through the round key path
+    @Override
+    public String encrypt(String plaintext, String key) {
+        long ciphertext = encrypt(Long.parseUnsignedLong(plaintext, 2), spec.expandKey(Long.parseUnsignedLong(key, 2)));
+        return valueOf(ciphertext, spec.getBlockSize());
+    }
+
+    @Override
+    public String decrypt(String ciphertext, String key) {
+        long plaintext = decrypt(Long.parseUnsignedLong(ciphertext, 2), spec.expandKey(Long.parseUnsignedLong(key, 2)));
+        return valueOf(plaintext, spec.getBlockSize());
+    }
+
+    public long substitute(long block, int[] table) {
+        long result = 0;
+        for (int shift : shifts) {
+            result |= (long) table[(int) (block >>> shift) & sBoxMask] << shift;
+        }
+        return result;
+    }
+
+    public long permute(long block) {
+        return permute(block, permutationSources);
+    }
+
+    public long inversePermute(long block) {
+        return permute(block, inversePermutationSources);
+    }
+
+    private long lookup(long block, long[][] table) {
+        long result = 0;
+        for (int i = 0; i < shifts.length; i++) {
+            result |= table[i][(int) (block >>> shifts[i]) & sBoxMask];
+        }
+        return result;
+    }
+
+    private long[][] buildTable(int[] table, int[] sources) {
+        long[][] result = new long[shifts.length][table.length];
+        for (int i = 0; i < shifts.length; i++) {
+            for (int input = 0; input < table.length; input++) {
+                result[i][input] = permute((long) table[input] << shifts[i], sources);
+            }
+        }
+        return result;
+    }
+
+    private static long permute(long block, int[] sources) {
+        long result = 0;
+        for (int i = 0; i < sources.length; i++) {
+            result |= ((block >>> sources[i]) & 1) << i;
+        }
+        return result;
+    }
+
+    private int[] getPermutationSources(int[] bitPermutation) {
+        // String index i is bit (blockSize - 1 - i) of the packed block
+        int blockSize = spec.getBlockSize();
+        int[] sources = new int[blockSize];
+        for (int i = 0; i < blockSize; i++) {
+            sources[blockSize - 1 - bitPermutation[i]] = blockSize - 1 - i;
+        }
+        return sources;
+    }
+
+    public int[] getSBoxTable() {
+        return sBoxTable;
+    }
+
+    public int[] getInverseSBoxTable() {
+        return inverseSBoxTable;
+    }
+
+    @Override
+    public BidiMap<String, String> getSBox() {
+        return sBox;
+    }
+
+    @Override
+    public SpnSpec getSpec() {
+        return spec;
+    }
+}
@@ -0,0 +1,185 @@
+package org.suai.crypto.spn;
+
+import org.apache.commons.collections4.BidiMap;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+public class BitslicedSubstitutionPermutationNetwork {
+
+    // Plane i holds bit i (string order) of every block, lane j of a plane belongs to block j
+    public static final int LANES = Long.SIZE;
+
+    private final SpnSpec spec;
+    private final int[][] sBoxMonomials;
+    private final int[][] inverseSBoxMonomials;
+    private final int[] identityWires;
+
+    public BitslicedSubstitutionPermutationNetwork(BidiMap<String, String> sBox) {
+        this(SBoxProvider.toTable(sBox, SpnSpec.DEFAULT.getSBoxInputSize()), SpnSpec.DEFAULT);
+    }
+
+    public BitslicedSubstitutionPermutationNetwork(int[] sBoxTable, SpnSpec spec) {
+        this.spec = spec;
+        this.sBoxMonomials = getAlgebraicNormalForm(sBoxTable);
+        this.inverseSBoxMonomials = getAlgebraicNormalForm(SBoxProvider.invert(sBoxTable));
+        this.identityWires = IntStream.range(0, spec.getBlockSize()).toArray();
+    }
+
+    public long[] encrypt(long[] plaintextPlanes, long[] keyPlanes) {
+        return encrypt(plaintextPlanes, repeat(keyPlanes));
+    }
+
+    public long[] encrypt(long[] plaintextPlanes, long[][] roundKeyPlanes) {
+        int numberOfRounds = spec.getNumberOfRounds();
+        long[] state = new long[spec.getBlockSize()];
+        long[] next = new long[spec.getBlockSize()];
+        xor(plaintextPlanes, roundKeyPlanes[0], state);
+        for (int round = 1; round < numberOfRounds; round++) {
+            substitute(state, identityWires, next, spec.getBitPermutation(), sBoxMonomials);
+            xor(next, roundKeyPlanes[round], state);
+        }
+        substitute(state, identityWires, next, identityWires, sBoxMonomials);
+        xor(next, roundKeyPlanes[numberOfRounds], state);
+        return state;
+    }
+
+    public long[] decrypt(long[] ciphertextPlanes, long[] keyPlanes) {
+        return decrypt(ciphertextPlanes, repeat(keyPlanes));
+    }
+
+    public long[] decrypt(long[] ciphertextPlanes, long[][] roundKeyPlanes) {
+        int numberOfRounds = spec.getNumberOfRounds();
+        long[] state = new long[spec.getBlockSize()];
+        long[] next = new long[spec.getBlockSize()];
+        xor(ciphertextPlanes, roundKeyPlanes[numberOfRounds], state);
+        substitute(state, identityWires, next, identityWires, inverseSBoxMonomials);
+        for (int round = numberOfRounds - 1; round >= 1; round--) {
+            xor(next, roundKeyPlanes[round], state);
+            // Reading the planes through the permutation undoes it without moving any bits
+            substitute(state, spec.getBitPermutation(), next, identityWires, inverseSBoxMonomials);
+        }
+        xor(next, roundKeyPlanes[0], state);
+        return state;
+    }
+
+    private long[][] repeat(long[] keyPlanes) {
+        long[][] roundKeyPlanes = new long[spec.getNumberOfRoundKeys()][];
+        Arrays.fill(roundKeyPlanes, keyPlanes);
+        return roundKeyPlanes;
+    }
+
+    public int[] encrypt(int[] plaintexts, int key) {
+        return fromPlanes(encrypt(toPlanes(plaintexts), broadcast(key)), plaintexts.length);
+    }
+
+    public int[] decrypt(int[] ciphertexts, int key) {
+        return fromPlanes(decrypt(toPlanes(ciphertexts), broadcast(key)), ciphertexts.length);
+    }
+
+    public int[] encryptUnderKeys(int plaintext, int[] keys) {
+        return fromPlanes(encrypt(broadcast(plaintext), toPlanes(keys)), keys.length);
+    }
+
+    private void substitute(long[] input, int[] inputWires,
+                            long[] output, int[] outputWires,
+                            int[][] monomials) {
+        int sBoxInputSize = spec.getSBoxInputSize();
+        int size = 1 << sBoxInputSize;
+        long[] products = new long[size];
+        for (int offset = 0; offset < spec.getBlockSize(); offset += sBoxInputSize) {
+            // products[m] is the AND of the s-box input bits selected by monomial m
+            products[0] = -1L;
+            for (int m = 1; m < size; m++) {
+                int variable = Integer.numberOfTrailingZeros(m);
+                long bit = input[inputWires[offset + sBoxInputSize - 1 - variable]];
+                products[m] = products[m & (m - 1)] & bit;
+            }
+            for (int j = 0; j < sBoxInputSize; j++) {
+                long value = 0;
+                for (int m : monomials[j]) {
+                    value ^= products[m];
+                }
+                // Writing into permuted planes makes the bit permutation free
+                output[outputWires[offset + j]] = value;
+            }
+        }
+    }
+
+    private static void xor(long[] first, long[] second, long[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = first[i] ^ second[i];
+        }
+    }
+
+    private int[][] getAlgebraicNormalForm(int[] table) {
+        // Moebius transform of every output bit; monomials[j] lists the input monomials of output bit j
+        int sBoxInputSize = spec.getSBoxInputSize();
+        int[][] monomials = new int[sBoxInputSize][];
+        for (int j = 0; j < sBoxInputSize; j++) {
+            int shift = sBoxInputSize - 1 - j;
+            int[] coefficients = new int[table.length];
+            for (int x = 0; x < table.length; x++) {
+                coefficients[x] = (table[x] >>> shift) & 1;
+            }
+            for (int step = 1; step < table.length; step <<= 1) {
+                for (int x = 0; x < table.length; x++) {
+                    if ((x & step) != 0) {
+                        coefficients[x] ^= coefficients[x ^ step];
+                    }
+                }
+            }
+            monomials[j] = IntStream.range(0, table.length)
+                    .filter(m -> coefficients[m] == 1)
+                    .toArray();
+        }
+        return monomials;
+    }
+
+    public long[] toPlanes(int[] blocks) {
+        return toPlanes(Arrays.stream(blocks).asLongStream().toArray());
+    }
+
+    public long[] toPlanes(long[] blocks) {
+        if (blocks.length > LANES) {
+            throw new IllegalArgumentException("At most " + LANES + " blocks fit into one batch");
+        }
+        int blockSize = spec.getBlockSize();
+        long[] planes = new long[blockSize];
+        for (int lane = 0; lane < blocks.length; lane++) {
+            for (int i = 0; i < blockSize; i++) {
+                planes[i] |= ((blocks[lane] >>> (blockSize - 1 - i)) & 1) << lane;
+            }
+        }
+        return planes;
+    }
+
+    public int[] fromPlanes(long[] planes, int count) {
+        return Arrays.stream(fromLongPlanes(planes, count)).mapToInt(block -> (int) block).toArray();
+    }
+
+    public long[] fromLongPlanes(long[] planes, int count) {
+        long[] blocks = new long[count];
+        for (int lane = 0; lane < count; lane++) {
+            long block = 0;
+            for (long plane : planes) {
+                block = (block << 1) | ((plane >>> lane) & 1);
+            }
+            blocks[lane] = block;
+        }
+        return blocks;
+    }
+
+    public long[] broadcast(long block) {
+        int blockSize = spec.getBlockSize();
+        long[] planes = new long[blockSize];
+        for (int i = 0; i < blockSize; i++) {
+            planes[i] = ((block >>> (blockSize - 1 - i)) & 1) == 0 ? 0L : -1L;
+        }
+        return planes;
+    }
+
+    public SpnSpec getSpec() {
+        return spec;
+    }
+}
@@ -0,0 +1,38 @@
+package org.suai.crypto.spn;
+
+import org.apache.commons.collections4.BidiMap;
+
+public interface BlockCipher {
+
+    String encrypt(String plaintext, String key);
+
+    String decrypt(String ciphertext, String key);
+
+    int encrypt(int plaintext, int key);
+
+    int decrypt(int ciphertext, int key);
+
+    long encrypt(long plaintext, long[] roundKeys);
+
+    long decrypt(long ciphertext, long[] roundKeys);
+
+    BidiMap<String, String> getSBox();
+
+    SpnSpec getSpec();
+
+    default int getBlockSize() {
+        return getSpec().getBlockSize();
+    }
+
+    default int getNumberOfRounds() {
+        return getSpec().getNumberOfRounds();
+    }
+
+    default int getSBoxInputSize() {
+        return getSpec().getSBoxInputSize();
+    }
+
+    default int[] getBitPermutation() {
+        return getSpec().getBitPermutation();
+    }
+}
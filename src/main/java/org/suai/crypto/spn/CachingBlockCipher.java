@@ -0,0 +1,87 @@
+package org.suai.crypto.spn;
+
+import org.apache.commons.collections4.BidiMap;
+
+import static org.suai.crypto.util.BinaryString.valueOf;
+
+public class CachingBlockCipher implements BlockCipher {
+
+    private final BlockCipher cipher;
+    private final CodebookCache cache;
+    private final int[] sBoxTable;
+    // Wider blocks have no codebook and are encrypted by the underlying cipher
+    private final boolean usesCodebooks;
+    // Most callers encrypt many blocks in a row under the same key
+    private volatile Codebook lastCodebook;
+
+    public CachingBlockCipher(BlockCipher cipher, CodebookCache cache) {
+        this.cipher = cipher;
+        this.cache = cache;
+        this.sBoxTable = SBoxProvider.toTable(cipher.getSBox(), cipher.getSBoxInputSize());
+        this.usesCodebooks = cipher.getBlockSize() <= Codebook.MAX_BLOCK_SIZE;
+    }
+
+    public Codebook getCodebook(int key) {
+        Codebook codebook = lastCodebook;
+        if (codebook == null || codebook.getKey() != key) {
+            codebook = cache.get(cipher, sBoxTable, key);
+            lastCodebook = codebook;
+        }
+        return codebook;
+    }
+
+    @Override
+    public int encrypt(int plaintext, int key) {
+        if (!usesCodebooks) {
+            return cipher.encrypt(plaintext, key);
+        }
+        return getCodebook(key).encrypt(plaintext);
+    }
+
+    @Override
+    public int decrypt(int ciphertext, int key) {
+        if (!usesCodebooks) {
+            return cipher.decrypt(ciphertext, key);
+        }
+        return getCodebook(key).decrypt(ciphertext);
+    }
+
+    @Override
+    public String encrypt(String plaintext, String key) {
+        if (!usesCodebooks) {
+            return cipher.encrypt(plaintext, key);
+        }
+        int ciphertext = encrypt(Integer.parseInt(plaintext, 2), Integer.parseInt(key, 2));
+        return valueOf(ciphertext, getBlockSize());
+    }
+
+    @Override
+    public String decrypt(String ciphertext, String key) {
+        if (!usesCodebooks) {
+            return cipher.decrypt(ciphertext, key);
+        }
+        int plaintext = decrypt(Integer.parseInt(ciphertext, 2), Integer.parseInt(key, 2));
+        return valueOf(plaintext, getBlockSize());
+    }
+
+    @Override
+    public long encrypt(long plaintext, long[] roundKeys) {
+        // Codebooks are built for a single key, independent round keys go to the underlying cipher
+        return cipher.encrypt(plaintext, roundKeys);
+    }
+
+    @Override
+    public long decrypt(long ciphertext, long[] roundKeys) {
+        return cipher.decrypt(ciphertext, roundKeys);
+    }
+
+    @Override
+    public BidiMap<String, String> getSBox() {
+        return cipher.getSBox();
+    }
+
+    @Override
+    public SpnSpec getSpec() {
+        return cipher.getSpec();
+    }
+}
@@ -0,0 +1,48 @@
+package org.suai.crypto.spn;
+
+public class Codebook {
+
+    public static final int MAX_BLOCK_SIZE = 24;
+
+    private final int key;
+    private final int[] encryptionTable;
+    private final int[] decryptionTable;
+
+    private Codebook(int key, int[] encryptionTable, int[] decryptionTable) {
+        this.key = key;
+        this.encryptionTable = encryptionTable;
+        this.decryptionTable = decryptionTable;
+    }
+
+    public static Codebook build(BlockCipher cipher, int key) {
+        int blockSize = cipher.getBlockSize();
+        if (blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block is too large for a full codebook: " + blockSize);
+        }
+        int size = 1 << blockSize;
+        int[] encryptionTable = new int[size];
+        int[] decryptionTable = new int[size];
+        for (int plaintext = 0; plaintext < size; plaintext++) {
+            int ciphertext = cipher.encrypt(plaintext, key);
+            encryptionTable[plaintext] = ciphertext;
+            decryptionTable[ciphertext] = plaintext;
+        }
+        return new Codebook(key, encryptionTable, decryptionTable);
+    }
+
+    public int encrypt(int plaintext) {
+        return encryptionTable[plaintext];
+    }
+
+    public int decrypt(int ciphertext) {
+        return decryptionTable[ciphertext];
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public int size() {
+        return encryptionTable.length;
+    }
+}
@@ -0,0 +1,61 @@
+package org.suai.crypto.spn;
+
+import org.suai.crypto.util.LruCache;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public class CodebookCache {
+
+    private final LruCache<CodebookKey, Codebook> codebooks;
+
+    public CodebookCache(int capacity) {
+        this.codebooks = new LruCache<>(capacity);
+    }
+
+    public Codebook get(BlockCipher cipher, int[] sBoxTable, int key) {
+        CodebookKey cacheKey = new CodebookKey(sBoxTable, cipher.getSpec(), key);
+        return codebooks.computeIfAbsent(cacheKey, k -> Codebook.build(cipher, key));
+    }
+
+    public int size() {
+        return codebooks.size();
+    }
+
+    public long getHits() {
+        return codebooks.getHits();
+    }
+
+    public long getMisses() {
+        return codebooks.getMisses();
+    }
+
+    private static final class CodebookKey {
+        private final int[] sBoxTable;
+        private final SpnSpec spec;
+        private final int key;
+        private final int hash;
+
+        private CodebookKey(int[] sBoxTable, SpnSpec spec, int key) {
+            this.sBoxTable = sBoxTable;
+            this.spec = spec;
+            this.key = key;
+            this.hash = 31 * Objects.hash(spec, key) + Arrays.hashCode(sBoxTable);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CodebookKey that = (CodebookKey) o;
+            return key == that.key &&
+                    spec.equals(that.spec) &&
+                    Arrays.equals(sBoxTable, that.sBoxTable);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
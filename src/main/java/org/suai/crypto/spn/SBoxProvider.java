@@ -3,16 +3,36 @@ package org.suai.crypto.spn;
 import org.apache.commons.collections4.BidiMap;
 import org.apache.commons.collections4.bidimap.DualHashBidiMap;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.suai.crypto.util.BinaryString.valueOf;
 
 public class SBoxProvider {
     public static BidiMap<String, String> readFromFile(File file, int binaryLength) throws IOException {
-        List<String> lines = Files.readAllLines(file.toPath());
+        return parse(Files.readAllLines(file.toPath()), binaryLength);
+    }
+
+    public static BidiMap<String, String> readFromResource(String name, int binaryLength) throws IOException {
+        InputStream stream = SBoxProvider.class.getClassLoader().getResourceAsStream(name);
+        if (stream == null) {
+            throw new FileNotFoundException("No such resource: " + name);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return parse(reader.lines().collect(Collectors.toList()), binaryLength);
+        }
+    }
+
+    private static BidiMap<String, String> parse(List<String> lines, int binaryLength) {
         BidiMap<String, String> sBox = new DualHashBidiMap<>();
         lines.stream().map(line -> line.split(" ")).forEach(s -> {
             int input = Integer.parseInt(s[0]);
@@ -21,4 +41,28 @@ public class SBoxProvider {
         });
         return sBox;
     }
+
+    public static int[] toTable(BidiMap<String, String> sBox, int binaryLength) {
+        int[] table = new int[1 << binaryLength];
+        for (Map.Entry<String, String> entry : sBox.entrySet()) {
+            table[Integer.parseInt(entry.getKey(), 2)] = Integer.parseInt(entry.getValue(), 2);
+        }
+        return table;
+    }
+
+    public static BidiMap<String, String> toBidiMap(int[] table, int binaryLength) {
+        BidiMap<String, String> sBox = new DualHashBidiMap<>();
+        for (int input = 0; input < table.length; input++) {
+            sBox.put(valueOf(input, binaryLength), valueOf(table[input], binaryLength));
+        }
+        return sBox;
+    }
+
+    public static int[] invert(int[] table) {
+        int[] inverse = new int[table.length];
+        for (int input = 0; input < table.length; input++) {
+            inverse[table[input]] = input;
+        }
+        return inverse;
+    }
 }
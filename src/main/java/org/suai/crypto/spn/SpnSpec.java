@@ -0,0 +1,125 @@
+package org.suai.crypto.spn;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public final class SpnSpec {
+
+    public static final SpnSpec DEFAULT = new SpnSpec(9, 3, 3, new int[]{0, 3, 6, 1, 4, 7, 2, 5, 8});
+
+    private final int blockSize;
+    private final int numberOfRounds;
+    private final int sBoxInputSize;
+    private final int[] bitPermutation;
+    private final int[] inverseBitPermutation;
+
+    public SpnSpec(int blockSize, int numberOfRounds, int sBoxInputSize, int[] bitPermutation) {
+        if (blockSize < 1 || blockSize > Long.SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and 64 bits: " + blockSize);
+        }
+        if (sBoxInputSize < 1 || sBoxInputSize > 16 || blockSize % sBoxInputSize != 0) {
+            throw new IllegalArgumentException("S-box size must divide block size: " + sBoxInputSize);
+        }
+        if (numberOfRounds < 1) {
+            throw new IllegalArgumentException("Number of rounds must be positive: " + numberOfRounds);
+        }
+        if (bitPermutation.length != blockSize) {
+            throw new IllegalArgumentException("Bit permutation must cover the whole block");
+        }
+        this.blockSize = blockSize;
+        this.numberOfRounds = numberOfRounds;
+        this.sBoxInputSize = sBoxInputSize;
+        this.bitPermutation = bitPermutation.clone();
+        this.inverseBitPermutation = new int[blockSize];
+        Arrays.fill(inverseBitPermutation, -1);
+        for (int i = 0; i < blockSize; i++) {
+            if (inverseBitPermutation[bitPermutation[i]] != -1) {
+                throw new IllegalArgumentException("Not a permutation: " + Arrays.toString(bitPermutation));
+            }
+            inverseBitPermutation[bitPermutation[i]] = i;
+        }
+    }
+
+    public static SpnSpec of(int blockSize, int numberOfRounds, int sBoxInputSize) {
+        // PRESENT-like spreading: bit i goes to i * (number of s-boxes) mod (blockSize - 1),
+        // which for 9 bits and 3-bit s-boxes is exactly the default permutation
+        int[] bitPermutation = new int[blockSize];
+        int numberOfSBoxes = blockSize / sBoxInputSize;
+        for (int i = 0; i < blockSize - 1; i++) {
+            bitPermutation[i] = i * numberOfSBoxes % (blockSize - 1);
+        }
+        bitPermutation[blockSize - 1] = blockSize - 1;
+        return new SpnSpec(blockSize, numberOfRounds, sBoxInputSize, bitPermutation);
+    }
+
+    public long[] expandKey(long key) {
+        long[] roundKeys = new long[getNumberOfRoundKeys()];
+        Arrays.fill(roundKeys, key);
+        return roundKeys;
+    }
+
+    // The int overloads of BlockCipher hold a whole block in a non-negative int
+    public void checkIntBlock() {
+        if (blockSize >= Integer.SIZE) {
+            throw new IllegalArgumentException(blockSize + "-bit blocks don't fit into an int, use round keys");
+        }
+    }
+
+    public long getBlockMask() {
+        return blockSize == Long.SIZE ? -1L : (1L << blockSize) - 1;
+    }
+
+    public int getSBoxShift(int sBoxIndex) {
+        return blockSize - (sBoxIndex + 1) * sBoxInputSize;
+    }
+
+    public int getNumberOfSBoxes() {
+        return blockSize / sBoxInputSize;
+    }
+
+    public int getNumberOfRoundKeys() {
+        return numberOfRounds + 1;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getNumberOfRounds() {
+        return numberOfRounds;
+    }
+
+    public int getSBoxInputSize() {
+        return sBoxInputSize;
+    }
+
+    public int[] getBitPermutation() {
+        return bitPermutation;
+    }
+
+    public int[] getInverseBitPermutation() {
+        return inverseBitPermutation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SpnSpec that = (SpnSpec) o;
+        return blockSize == that.blockSize &&
+                numberOfRounds == that.numberOfRounds &&
+                sBoxInputSize == that.sBoxInputSize &&
+                Arrays.equals(bitPermutation, that.bitPermutation);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hash(blockSize, numberOfRounds, sBoxInputSize) + Arrays.hashCode(bitPermutation);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SPN(block = %d, rounds = %d, s-box = %d, permutation = %s)",
+                blockSize, numberOfRounds, sBoxInputSize, Arrays.toString(bitPermutation));
+    }
+}
@@ -4,52 +4,101 @@ import com.google.common.base.Splitter;
 import org.apache.commons.collections4.BidiMap;
 import org.suai.crypto.util.BinaryString;
 
-public class SubstitutionPermutationNetwork {
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
-    private static final int BLOCK_SIZE = 9;
-    private static final int NUMBER_OF_ROUNDS = 3;
-    private static final int S_BOX_INPUT_SIZE = 3;
-    private static final int[] BIT_PERMUTATION = {0, 3, 6, 1, 4, 7, 2, 5, 8};
+import static org.suai.crypto.util.BinaryString.valueOf;
 
+public class SubstitutionPermutationNetwork implements BlockCipher {
+
+    private final SpnSpec spec;
     private BidiMap<String, String> sBox;
 
     public SubstitutionPermutationNetwork(BidiMap<String, String> sBox) {
+        this(sBox, SpnSpec.DEFAULT);
+    }
+
+    public SubstitutionPermutationNetwork(BidiMap<String, String> sBox, SpnSpec spec) {
         this.sBox = sBox;
+        this.spec = spec;
     }
 
+    @Override
     public String encrypt(String plaintext, String key) {
-        String sBoxInput = BinaryString.xor(plaintext, key);
+        return encrypt(plaintext, Collections.nCopies(spec.getNumberOfRoundKeys(), key));
+    }
+
+    public String encrypt(String plaintext, List<String> roundKeys) {
+        int numberOfRounds = spec.getNumberOfRounds();
+        String block = plaintext;
+        for (int round = 1; round < numberOfRounds; round++) {
+            String sBoxInput = BinaryString.xor(block, roundKeys.get(round - 1));
+            String sBoxOutput = applySBox(sBoxInput);
+            block = BinaryString.permute(sBoxOutput, spec.getBitPermutation());
+        }
+        String sBoxInput = BinaryString.xor(block, roundKeys.get(numberOfRounds - 1));
         String sBoxOutput = applySBox(sBoxInput);
-        String permutationOutput = BinaryString.permute(sBoxOutput, BIT_PERMUTATION);
+        return BinaryString.xor(sBoxOutput, roundKeys.get(numberOfRounds));
+    }
 
-        sBoxInput = BinaryString.xor(permutationOutput, key);
-        sBoxOutput = applySBox(sBoxInput);
-        permutationOutput = BinaryString.permute(sBoxOutput, BIT_PERMUTATION);
+    @Override
+    public String decrypt(String ciphertext, String key) {
+        return decrypt(ciphertext, Collections.nCopies(spec.getNumberOfRoundKeys(), key));
+    }
 
-        sBoxInput = BinaryString.xor(permutationOutput, key);
-        sBoxOutput = applySBox(sBoxInput);
-        sBoxInput = BinaryString.xor(sBoxOutput, key);
-        return sBoxInput;
+    public String decrypt(String ciphertext, List<String> roundKeys) {
+        int numberOfRounds = spec.getNumberOfRounds();
+        String sBoxOutput = BinaryString.xor(ciphertext, roundKeys.get(numberOfRounds));
+        String block = applyInverseSBox(sBoxOutput);
+        for (int round = numberOfRounds - 1; round >= 1; round--) {
+            String permutationOutput = BinaryString.xor(block, roundKeys.get(round));
+            sBoxOutput = BinaryString.permute(permutationOutput, spec.getInverseBitPermutation());
+            block = applyInverseSBox(sBoxOutput);
+        }
+        return BinaryString.xor(block, roundKeys.get(0));
     }
 
-    public String decrypt(String ciphertext, String key) {
-        String sBoxInput = BinaryString.xor(ciphertext, key);
-        String sBoxOutput = applyInverseSBox(sBoxInput);
-        String permutationInput = BinaryString.xor(sBoxOutput, key);
+    @Override
+    public int encrypt(int plaintext, int key) {
+        spec.checkIntBlock();
+        int blockSize = spec.getBlockSize();
+        String ciphertext = encrypt(valueOf(plaintext, blockSize), valueOf(key, blockSize));
+        return Integer.parseInt(ciphertext, 2);
+    }
 
-        sBoxInput = BinaryString.permute(permutationInput, BIT_PERMUTATION);
-        sBoxOutput = applyInverseSBox(sBoxInput);
-        permutationInput = BinaryString.xor(sBoxOutput, key);
+    @Override
+    public int decrypt(int ciphertext, int key) {
+        spec.checkIntBlock();
+        int blockSize = spec.getBlockSize();
+        String plaintext = decrypt(valueOf(ciphertext, blockSize), valueOf(key, blockSize));
+        return Integer.parseInt(plaintext, 2);
+    }
+
+    @Override
+    public long encrypt(long plaintext, long[] roundKeys) {
+        int blockSize = spec.getBlockSize();
+        String ciphertext = encrypt(valueOf(plaintext, blockSize), toStrings(roundKeys));
+        return Long.parseUnsignedLong(ciphertext, 2);
+    }
 
-        sBoxInput = BinaryString.permute(permutationInput, BIT_PERMUTATION);
-        sBoxOutput = applyInverseSBox(sBoxInput);
-        permutationInput = BinaryString.xor(sBoxOutput, key);
-        return permutationInput;
+    @Override
+    public long decrypt(long ciphertext, long[] roundKeys) {
+        int blockSize = spec.getBlockSize();
+        String plaintext = decrypt(valueOf(ciphertext, blockSize), toStrings(roundKeys));
+        return Long.parseUnsignedLong(plaintext, 2);
+    }
+
+    private List<String> toStrings(long[] roundKeys) {
+        return Arrays.stream(roundKeys)
+                .mapToObj(key -> valueOf(key, spec.getBlockSize()))
+                .collect(Collectors.toList());
     }
 
     private String applySBox(String block) {
         StringBuilder result = new StringBuilder();
-        for (String input : Splitter.fixedLength(S_BOX_INPUT_SIZE).split(block)) {
+        for (String input : Splitter.fixedLength(spec.getSBoxInputSize()).split(block)) {
             result.append(sBox.get(input));
         }
         return result.toString();
@@ -57,12 +106,13 @@ public class SubstitutionPermutationNetwork {
 
     private String applyInverseSBox(String block) {
         StringBuilder result = new StringBuilder();
-        for (String input : Splitter.fixedLength(S_BOX_INPUT_SIZE).split(block)) {
+        for (String input : Splitter.fixedLength(spec.getSBoxInputSize()).split(block)) {
             result.append(sBox.getKey(input));
         }
         return result.toString();
     }
 
+    @Override
     public BidiMap<String, String> getSBox() {
         return sBox;
     }
@@ -71,19 +121,8 @@ public class SubstitutionPermutationNetwork {
         this.sBox = sBox;
     }
 
-    public int getBlockSize() {
-        return BLOCK_SIZE;
-    }
-
-    public int getNumberOfRounds() {
-        return NUMBER_OF_ROUNDS;
-    }
-
-    public int getSBoxInputSize() {
-        return S_BOX_INPUT_SIZE;
-    }
-
-    public int[] getBitPermutation() {
-        return BIT_PERMUTATION;
+    @Override
+    public SpnSpec getSpec() {
+        return spec;
     }
 }
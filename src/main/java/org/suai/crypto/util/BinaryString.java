@@ -14,6 +14,8 @@ import static java.lang.Character.getNumericValue;
 
 public class BinaryString {
 
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     private BinaryString() {}
 
     public static String xor(String first, String second) {
@@ -32,6 +34,10 @@ public class BinaryString {
         return Strings.padStart(Integer.toBinaryString(value), length, '0');
     }
 
+    public static String valueOf(long value, int length) {
+        return Strings.padStart(Long.toBinaryString(value), length, '0');
+    }
+
     public static String permute(String block, int[] bitPermutation) {
         char[] result = new char[block.length()];
         IntStream.range(0, block.length())
@@ -44,10 +50,11 @@ public class BinaryString {
     }
 
     public static String random(int length) {
-        SecureRandom random = new SecureRandom();
-        return IntStream.range(0, length)
-                .mapToObj(i -> String.valueOf(Math.abs(random.nextInt() % 2)))
-                .collect(Collectors.joining());
+        char[] result = new char[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = RANDOM.nextBoolean() ? '1' : '0';
+        }
+        return String.valueOf(result);
     }
 
     public static List<String> split(String block, int length) {
@@ -0,0 +1,218 @@
+package org.suai.crypto.util;
+
+import org.apache.commons.math3.exception.MathArithmeticException;
+import org.apache.commons.math3.fraction.Fraction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import static org.suai.crypto.util.EquationElementType.*;
+
+// A linear equation over GF(2) as bit masks: every variable is one bit, so adding two equations
+// is XOR and duplicate variables cancel by themselves. Bit number b (1-based, leftmost first) is
+// mask bit blockSize - b; S-box input and output masks are indexed by round number.
+public final class BitEquation {
+    private final int blockSize;
+    private final long plaintext;
+    private final long ciphertext;
+    private final long key;
+    private final long[] sBoxInputs;
+    private final long[] sBoxOutputs;
+    private final boolean constant;
+    private final Fraction probability;
+
+    public BitEquation(int blockSize, int numberOfRounds) {
+        this(blockSize, 0, 0, 0, new long[numberOfRounds + 1], new long[numberOfRounds + 1], false, Fraction.ONE);
+    }
+
+    private BitEquation(int blockSize, long plaintext, long ciphertext, long key,
+                        long[] sBoxInputs, long[] sBoxOutputs, boolean constant, Fraction probability) {
+        this.blockSize = blockSize;
+        this.plaintext = plaintext;
+        this.ciphertext = ciphertext;
+        this.key = key;
+        this.sBoxInputs = sBoxInputs;
+        this.sBoxOutputs = sBoxOutputs;
+        this.constant = constant;
+        this.probability = probability;
+    }
+
+    // Both parts are moved to one side, so the equation reads: sum of all variables = constant
+    public static BitEquation of(LinearApproximation approximation, int blockSize, int numberOfRounds) {
+        long[] masks = new long[3];
+        long[] sBoxInputs = new long[numberOfRounds + 1];
+        long[] sBoxOutputs = new long[numberOfRounds + 1];
+        boolean constant = false;
+        List<EquationElement> elements = new ArrayList<>(approximation.getLeftPart());
+        elements.addAll(approximation.getRightPart());
+        for (EquationElement element : elements) {
+            long bit = element.getType() == ZERO || element.getType() == ONE ? 0
+                    : 1L << (blockSize - element.getBitNumber());
+            switch (element.getType()) {
+                case PLAINTEXT:
+                    masks[0] ^= bit;
+                    break;
+                case CIPHERTEXT:
+                    masks[1] ^= bit;
+                    break;
+                case KEY:
+                    masks[2] ^= bit;
+                    break;
+                case S_BOX_INPUT:
+                    sBoxInputs[element.getRoundNumber()] ^= bit;
+                    break;
+                case S_BOX_OUTPUT:
+                    sBoxOutputs[element.getRoundNumber()] ^= bit;
+                    break;
+                case ONE:
+                    constant = !constant;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new BitEquation(blockSize, masks[0], masks[1], masks[2], sBoxInputs, sBoxOutputs, constant,
+                approximation.getProbability());
+    }
+
+    public static BitEquation ofMasks(int blockSize, int numberOfRounds, long plaintext, long ciphertext, long key,
+                                      boolean constant, Fraction probability) {
+        return new BitEquation(blockSize, plaintext, ciphertext, key, new long[numberOfRounds + 1],
+                new long[numberOfRounds + 1], constant, probability);
+    }
+
+    // Sum of both equations; the probability follows the Piling-Up Lemma
+    public BitEquation xor(BitEquation other) {
+        if (blockSize != other.blockSize || sBoxInputs.length != other.sBoxInputs.length) {
+            throw new IllegalArgumentException("Equations are over different networks");
+        }
+        long[] inputs = new long[sBoxInputs.length];
+        long[] outputs = new long[sBoxOutputs.length];
+        for (int round = 0; round < inputs.length; round++) {
+            inputs[round] = sBoxInputs[round] ^ other.sBoxInputs[round];
+            outputs[round] = sBoxOutputs[round] ^ other.sBoxOutputs[round];
+        }
+        return new BitEquation(blockSize, plaintext ^ other.plaintext, ciphertext ^ other.ciphertext,
+                key ^ other.key, inputs, outputs, constant ^ other.constant,
+                pilingUp(probability, other.probability));
+    }
+
+    private static Fraction pilingUp(Fraction first, Fraction second) {
+        if (first == null || second == null) {
+            return null;
+        }
+        try {
+            Fraction bias = first.subtract(Fraction.ONE_HALF).multiply(second.subtract(Fraction.ONE_HALF));
+            return Fraction.ONE_HALF.add(bias.multiply(2));
+        } catch (MathArithmeticException e) {
+            double bias = (first.doubleValue() - 0.5) * (second.doubleValue() - 0.5);
+            return new Fraction(0.5 + 2 * bias, Integer.MAX_VALUE);
+        }
+    }
+
+    public BitEquation withProbability(Fraction probability) {
+        return new BitEquation(blockSize, plaintext, ciphertext, key, sBoxInputs, sBoxOutputs, constant, probability);
+    }
+
+    public boolean hasIntermediateVariables() {
+        return Arrays.stream(sBoxInputs).anyMatch(mask -> mask != 0) ||
+                Arrays.stream(sBoxOutputs).anyMatch(mask -> mask != 0);
+    }
+
+    // Standard form: plaintext and ciphertext bits on the left, everything else on the right
+    public LinearApproximation toApproximation() {
+        List<EquationElement> left = new ArrayList<>();
+        List<EquationElement> right = new ArrayList<>();
+        addElements(left, plaintext, 0, PLAINTEXT);
+        addElements(left, ciphertext, 0, CIPHERTEXT);
+        addElements(right, key, 0, KEY);
+        for (int round = 0; round < sBoxInputs.length; round++) {
+            addElements(right, sBoxInputs[round], round, S_BOX_INPUT);
+        }
+        for (int round = 0; round < sBoxOutputs.length; round++) {
+            addElements(right, sBoxOutputs[round], round, S_BOX_OUTPUT);
+        }
+        left.sort(Comparator.comparing(EquationElement::getBitNumber));
+        right.sort(Comparator.comparing(EquationElement::getBitNumber));
+        if (constant) {
+            right.add(new EquationElement(ONE));
+        }
+        return new LinearApproximation(left, right, probability);
+    }
+
+    private void addElements(List<EquationElement> elements, long mask, int round, EquationElementType type) {
+        for (int bitNumber = 1; bitNumber <= blockSize; bitNumber++) {
+            if ((mask >>> (blockSize - bitNumber) & 1) != 0) {
+                elements.add(type == S_BOX_INPUT || type == S_BOX_OUTPUT
+                        ? new EquationElement(round, bitNumber, type)
+                        : new EquationElement(bitNumber, type));
+            }
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getNumberOfRounds() {
+        return sBoxInputs.length - 1;
+    }
+
+    public long getPlaintextMask() {
+        return plaintext;
+    }
+
+    public long getCiphertextMask() {
+        return ciphertext;
+    }
+
+    public long getKeyMask() {
+        return key;
+    }
+
+    public long getSBoxInputMask(int round) {
+        return sBoxInputs[round];
+    }
+
+    public long getSBoxOutputMask(int round) {
+        return sBoxOutputs[round];
+    }
+
+    public boolean getConstant() {
+        return constant;
+    }
+
+    public Fraction getProbability() {
+        return probability;
+    }
+
+    @Override
+    public String toString() {
+        return toApproximation().toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BitEquation that = (BitEquation) o;
+        return blockSize == that.blockSize &&
+                plaintext == that.plaintext &&
+                ciphertext == that.ciphertext &&
+                key == that.key &&
+                constant == that.constant &&
+                Arrays.equals(sBoxInputs, that.sBoxInputs) &&
+                Arrays.equals(sBoxOutputs, that.sBoxOutputs) &&
+                Objects.equals(probability, that.probability);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(blockSize, plaintext, ciphertext, key, constant, probability);
+        result = 31 * result + Arrays.hashCode(sBoxInputs);
+        return 31 * result + Arrays.hashCode(sBoxOutputs);
+    }
+}
@@ -0,0 +1,71 @@
+package org.suai.crypto.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+public class LruCache<K, V> {
+
+    private final int capacity;
+    private final Map<K, V> entries;
+    private long hits;
+    private long misses;
+
+    public LruCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.capacity;
+            }
+        };
+    }
+
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits++;
+                return value;
+            }
+            misses++;
+        }
+        // Loading happens outside the lock, so two threads may occasionally build the same value
+        V value = loader.apply(key);
+        synchronized (this) {
+            V existing = entries.putIfAbsent(key, value);
+            return existing != null ? existing : value;
+        }
+    }
+
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,17 @@
+package org.suai.crypto.util;
+
+public class Proportions {
+
+    private Proportions() {}
+
+    // Wilson score interval of a proportion observed over trials, z is the two-sided normal quantile
+    public static double[] getWilsonInterval(double rate, long trials, double z) {
+        if (trials == 0) {
+            return new double[]{0, 1};
+        }
+        double denominator = 1 + z * z / trials;
+        double center = (rate + z * z / (2.0 * trials)) / denominator;
+        double halfWidth = z * Math.sqrt(rate * (1 - rate) / trials + z * z / (4.0 * trials * trials)) / denominator;
+        return new double[]{Math.max(0, center - halfWidth), Math.min(1, center + halfWidth)};
+    }
+}
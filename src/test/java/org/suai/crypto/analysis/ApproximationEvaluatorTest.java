@@ -0,0 +1,90 @@
+package org.suai.crypto.analysis;
+
+import org.apache.commons.math3.fraction.Fraction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.data.ArrayPairSource;
+import org.suai.crypto.data.PairSource;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+import org.suai.crypto.util.EquationElement;
+import org.suai.crypto.util.EquationElementType;
+import org.suai.crypto.util.LinearApproximation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+class ApproximationEvaluatorTest {
+
+    private static final int[] S_BOX = {6, 0, 5, 1, 7, 3, 4, 2};
+
+    private LinearCryptAnalyzer analyzer;
+    private List<LinearApproximation> approximations;
+    private Map<String, String> pairs;
+    private PairSource pairSource;
+
+    @BeforeEach
+    void setUp() {
+        analyzer = new LinearCryptAnalyzer(new BitPackedSubstitutionPermutationNetwork(S_BOX, SpnSpec.DEFAULT));
+        approximations = analyzer.findBestApproximations(8);
+        pairs = analyzer.generateCiphertextAndPlaintext(300, "101100111", 11);
+        long[] plaintexts = pairs.keySet().stream().mapToLong(p -> Long.parseLong(p, 2)).toArray();
+        long[] ciphertexts = pairs.values().stream().mapToLong(c -> Long.parseLong(c, 2)).toArray();
+        pairSource = new ArrayPairSource(plaintexts, ciphertexts);
+    }
+
+    @Test
+    void testSinglePassMatchesStringEvaluation() {
+        Assertions.assertEquals(8, approximations.size());
+        ApproximationEvaluator evaluator = new ApproximationEvaluator(approximations, 9);
+        double[] stats = evaluator.getLeftPartStats(pairSource);
+        for (int i = 0; i < approximations.size(); i++) {
+            LinearApproximation approximation = approximations.get(i);
+            Assertions.assertEquals(analyzer.getApproximationLeftPartStats(approximation, pairs), stats[i], 0.0);
+            CompiledApproximation compiled = new CompiledApproximation(approximation, 9);
+            long ones = pairs.entrySet().stream()
+                    .filter(pair -> compiled.evaluate(Long.parseLong(pair.getKey(), 2),
+                            Long.parseLong(pair.getValue(), 2)) == 1)
+                    .count();
+            Assertions.assertEquals(evaluator.countOnes(pairSource)[i], ones);
+        }
+    }
+
+    @Test
+    void testKeyEquationsMatchPerApproximationDecisions() {
+        // Key equations as they were derived one approximation at a time
+        List<LinearApproximation> expected = new ArrayList<>();
+        for (LinearApproximation approximation : approximations) {
+            int leftPartDecision = analyzer.getApproximationLeftPartStats(approximation, pairs) > 0.5 ? 1 : 0;
+            int rightPartDecision = approximation.getProbability().compareTo(Fraction.ONE_HALF) > 0
+                    ? leftPartDecision : leftPartDecision ^ 1;
+            LinearApproximation keyEquation = new LinearApproximation();
+            keyEquation.setLeftPart(approximation.getRightPart());
+            keyEquation.addToRight(new EquationElement(rightPartDecision == 1
+                    ? EquationElementType.ONE : EquationElementType.ZERO));
+            keyEquation.setProbability(approximation.getProbability());
+            expected.add(keyEquation);
+        }
+        Assertions.assertEquals(expected, analyzer.getKeyEquations(approximations, pairs));
+        Assertions.assertEquals(expected, analyzer.getKeyEquations(approximations, pairSource));
+    }
+
+    @Test
+    void testSixtyFourBitBlocks() {
+        int[] sBox = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+        LinearCryptAnalyzer wide = new LinearCryptAnalyzer(
+                new BitPackedSubstitutionPermutationNetwork(sBox, SpnSpec.of(64, 1, 4)));
+        // The top bit is set in the key, the masks and about half of the blocks
+        Trail trail = new Trail(new long[]{0x8000000000000001L}, new long[]{0xB00000000000000DL}, 0);
+        List<LinearApproximation> wideApproximations = List.of(wide.toApproximation(trail));
+        Map<String, String> widePairs = wide.generateCiphertextAndPlaintext(200, "11" + "0".repeat(61) + "1", 5);
+        long[] plaintexts = widePairs.keySet().stream().mapToLong(p -> Long.parseUnsignedLong(p, 2)).toArray();
+        long[] ciphertexts = widePairs.values().stream().mapToLong(c -> Long.parseUnsignedLong(c, 2)).toArray();
+        Assertions.assertTrue(Arrays.stream(plaintexts).anyMatch(plaintext -> plaintext < 0));
+        Assertions.assertEquals(wide.getKeyEquations(wideApproximations, new ArrayPairSource(plaintexts, ciphertexts)),
+                wide.getKeyEquations(wideApproximations, widePairs));
+    }
+}
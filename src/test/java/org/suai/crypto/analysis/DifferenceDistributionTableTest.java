@@ -0,0 +1,51 @@
+package org.suai.crypto.analysis;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+class DifferenceDistributionTableTest {
+
+    private static final int[] HEYS_S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+    private static final int[] S_BOX_7 = {6, 0, 5, 1, 7, 3, 4, 2};
+
+    @Test
+    void testCountsAndRightInputsMatchDirectCount() {
+        assertMatchesDirectCount(HEYS_S_BOX, 4, 8);
+        assertMatchesDirectCount(S_BOX_7, 3, 8);
+    }
+
+    @Test
+    void testRestoredTableKeepsRightInputs() {
+        DifferenceDistributionTable ddt = DifferenceDistributionTable.build(HEYS_S_BOX, 4);
+        DifferenceDistributionTable restored = DifferenceDistributionTable.of(4, ddt.getCounts(), ddt.getRightInputs());
+        for (int a = 0; a < 16; a++) {
+            for (int b = 0; b < 16; b++) {
+                Assertions.assertEquals(ddt.getRightInputsOffset(a, b), restored.getRightInputsOffset(a, b));
+                Assertions.assertArrayEquals(ddt.getRightInputs(a, b), restored.getRightInputs(a, b));
+            }
+        }
+    }
+
+    private static void assertMatchesDirectCount(int[] sBox, int sBoxInputSize, int uniformity) {
+        DifferenceDistributionTable ddt = DifferenceDistributionTable.build(sBox, sBoxInputSize);
+        int size = 1 << sBoxInputSize;
+        Assertions.assertEquals(size, ddt.size());
+        for (int a = 0; a < size; a++) {
+            for (int b = 0; b < size; b++) {
+                int inputDifference = a;
+                int outputDifference = b;
+                // Right inputs are listed in increasing order
+                int[] expected = IntStream.range(0, size)
+                        .filter(x -> (sBox[x] ^ sBox[x ^ inputDifference]) == outputDifference)
+                        .toArray();
+                Assertions.assertEquals(expected.length, ddt.getCount(a, b));
+                Assertions.assertEquals(expected.length, ddt.getCounts()[a][b]);
+                Assertions.assertArrayEquals(expected, ddt.getRightInputs(a, b), "a=" + a + " b=" + b);
+            }
+        }
+        Assertions.assertEquals(size, ddt.getCount(0, 0));
+        Assertions.assertEquals(uniformity, ddt.getDifferentialUniformity());
+    }
+}
@@ -0,0 +1,128 @@
+package org.suai.crypto.analysis;
+
+import org.apache.commons.math3.util.Pair;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.data.ArrayDifferencePairSource;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+import org.suai.crypto.util.BinaryString;
+import org.suai.crypto.util.TextPair;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class DifferentialKeyCounterTest {
+
+    private static final int[] S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+    private static final String KEY = "1011011111100001";
+
+    private SpnSpec spec;
+    private DifferentialCryptAnalyzer analyzer;
+    private Trail characteristic;
+    private List<TextPair> pairs;
+
+    @BeforeEach
+    void setUp() {
+        spec = SpnSpec.of(16, 4, 4);
+        analyzer = new DifferentialCryptAnalyzer(new BitPackedSubstitutionPermutationNetwork(S_BOX, spec));
+        characteristic = analyzer.findBestCharacteristics(spec.getNumberOfRounds() - 1, 1).get(0);
+        String inputDifference = BinaryString.valueOf(characteristic.getInput(0), spec.getBlockSize());
+        pairs = analyzer.generateCiphertextAndPlaintext(2000, KEY, inputDifference, 7);
+    }
+
+    @Test
+    void testCountersMatchCandidateSets() {
+        String lastRoundInputDifference = analyzer.getLastRoundInputDifference(characteristic);
+        DifferentialKeyCounter counter = new DifferentialKeyCounter(spec, S_BOX, analyzer.getDifferenceDistribution(),
+                Long.parseLong(lastRoundInputDifference, 2));
+        long[][] counters = counter.count(toSource(pairs, characteristic.getInput(0)));
+
+        // Candidate sets of every pair as the string based analysis derived them
+        long[][] expected = new long[spec.getNumberOfSBoxes()][16];
+        Map<Integer, Set<String>> intersection = new HashMap<>();
+        int rightPairs = 0;
+        for (TextPair pair : pairs) {
+            Map<Integer, Set<String>> subKeys = getSubKeys(lastRoundInputDifference, pair.getCiphertextPair());
+            if (subKeys == null) {
+                continue;
+            }
+            rightPairs++;
+            subKeys.forEach((i, values) -> {
+                values.forEach(value -> expected[i][Integer.parseInt(value, 2)]++);
+                intersection.computeIfAbsent(i, key -> new HashSet<>(values)).retainAll(values);
+            });
+        }
+        Assertions.assertTrue(rightPairs > 0);
+        Assertions.assertArrayEquals(expected, counters);
+
+        // Intersecting the candidate sets keeps exactly the guesses suggested by every right pair
+        for (int i : counter.getActiveSBoxes()) {
+            Set<String> fullCount = new HashSet<>();
+            for (int guess = 0; guess < 16; guess++) {
+                if (counters[i][guess] == rightPairs) {
+                    fullCount.add(BinaryString.valueOf(guess, 4));
+                }
+            }
+            Assertions.assertEquals(intersection.get(i), fullCount);
+        }
+        // The key is expanded to every round, so the last round sub keys are its chunks
+        Map<Integer, Set<String>> best = analyzer.getBestSubKeys(counters, 1);
+        for (int i : counter.getActiveSBoxes()) {
+            Assertions.assertEquals(Set.of(KEY.substring(4 * i, 4 * i + 4)), best.get(i));
+        }
+    }
+
+    @Test
+    void testSixtyFourBitBlocks() {
+        SpnSpec wideSpec = SpnSpec.of(64, 2, 4);
+        BitPackedSubstitutionPermutationNetwork spn = new BitPackedSubstitutionPermutationNetwork(S_BOX, wideSpec);
+        DifferentialCryptAnalyzer wide = new DifferentialCryptAnalyzer(spn);
+        // The top bit is set in the key, the input difference and the last round input difference
+        String key = "11" + "0".repeat(61) + "1";
+        String inputDifference = "1011" + "0".repeat(60);
+        for (TextPair pair : wide.generateCiphertextAndPlaintext(50, key, inputDifference, 3)) {
+            String first = pair.getPlaintextPair().getFirst();
+            Assertions.assertEquals(inputDifference, BinaryString.xor(first, pair.getPlaintextPair().getSecond()));
+            Assertions.assertEquals(spn.encrypt(first, key), pair.getCiphertextPair().getFirst());
+        }
+        Trail wideCharacteristic = new Trail(new long[]{0xB000000000000000L}, new long[]{0x2000000000000000L}, 2);
+        long[][] counters = wide.countSubKeys(List.of(wideCharacteristic), 200, key, 3);
+        Assertions.assertEquals(wideSpec.getNumberOfSBoxes(), counters.length);
+    }
+
+    // Null when some s-box cannot produce the ciphertext difference
+    private Map<Integer, Set<String>> getSubKeys(String lastRoundInputDifference, Pair<String, String> ciphertexts) {
+        List<String> inputBlocks = BinaryString.split(lastRoundInputDifference, 4);
+        List<String> firstBlocks = BinaryString.split(ciphertexts.getFirst(), 4);
+        List<String> secondBlocks = BinaryString.split(ciphertexts.getSecond(), 4);
+        Map<Integer, Set<String>> subKeys = new HashMap<>();
+        for (int i = 0; i < inputBlocks.size(); i++) {
+            String outputDifference = BinaryString.xor(firstBlocks.get(i), secondBlocks.get(i));
+            List<Pair<String, String>> outputPairs = analyzer.getOutputPairs(inputBlocks.get(i)).get(outputDifference);
+            if (outputPairs == null) {
+                return null;
+            }
+            if (!BinaryString.isZero(inputBlocks.get(i))) {
+                subKeys.put(i, analyzer.getSubKeyValues(outputPairs, firstBlocks.get(i), secondBlocks.get(i)));
+            }
+        }
+        return subKeys;
+    }
+
+    private static ArrayDifferencePairSource toSource(List<TextPair> pairs, long inputDifference) {
+        long[] plaintexts = new long[pairs.size()];
+        long[] firstCiphertexts = new long[pairs.size()];
+        long[] secondCiphertexts = new long[pairs.size()];
+        for (int i = 0; i < pairs.size(); i++) {
+            plaintexts[i] = Long.parseLong(pairs.get(i).getPlaintextPair().getFirst(), 2);
+            firstCiphertexts[i] = Long.parseLong(pairs.get(i).getCiphertextPair().getFirst(), 2);
+            secondCiphertexts[i] = Long.parseLong(pairs.get(i).getCiphertextPair().getSecond(), 2);
+        }
+        return new ArrayDifferencePairSource(plaintexts, firstCiphertexts, secondCiphertexts, inputDifference);
+    }
+}
@@ -0,0 +1,77 @@
+package org.suai.crypto.analysis;
+
+import org.apache.commons.collections4.BidiMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SBoxProvider;
+import org.suai.crypto.spn.SpnSpec;
+import org.suai.crypto.util.BinaryString;
+
+import java.io.IOException;
+import java.util.Map;
+
+class LinearApproximationTableBuilderTest {
+
+    @Test
+    void testThreeBitTablesMatchStringCount() throws IOException {
+        // Both 3-bit s-boxes have a linear structure, some masks hold with probability 1
+        assertMatchesStringCount("sbox-7.txt", SpnSpec.DEFAULT, 4);
+        assertMatchesStringCount("sbox-9.txt", SpnSpec.DEFAULT, 4);
+    }
+
+    @Test
+    void testHeysTableMatchesStringCount() throws IOException {
+        assertMatchesStringCount("sbox-heys.txt", SpnSpec.of(16, 4, 4), 6);
+    }
+
+    @Test
+    void testLinearityIgnoresZeroOutputMask() {
+        // The identity keeps every single bit, so a mask pair a = b holds for all inputs
+        int[][] table = LinearApproximationTableBuilder.build(new int[]{0, 1, 2, 3, 4, 5, 6, 7}, 3);
+        Assertions.assertEquals(4, table[0][0]);
+        Assertions.assertEquals(4, table[5][5]);
+        Assertions.assertEquals(0, table[5][3]);
+        Assertions.assertEquals(4, LinearApproximationTableBuilder.getLinearity(table));
+    }
+
+    private static void assertMatchesStringCount(String resource, SpnSpec spec, int linearity) throws IOException {
+        int sBoxInputSize = spec.getSBoxInputSize();
+        BidiMap<String, String> sBox = SBoxProvider.readFromResource(resource, sBoxInputSize);
+        int[][] table = LinearApproximationTableBuilder.build(SBoxProvider.toTable(sBox, sBoxInputSize), sBoxInputSize);
+        int size = 1 << sBoxInputSize;
+        int[][] matches = new int[size - 1][size - 1];
+        for (int a = 0; a < size; a++) {
+            for (int b = 0; b < size; b++) {
+                int expected = getMatches(sBox, BinaryString.valueOf(a, sBoxInputSize),
+                        BinaryString.valueOf(b, sBoxInputSize)) - size / 2;
+                Assertions.assertEquals(expected, table[a][b], resource + " a=" + a + " b=" + b);
+                if (a > 0 && b > 0) {
+                    matches[a - 1][b - 1] = expected + size / 2;
+                }
+            }
+        }
+        Assertions.assertEquals(linearity, LinearApproximationTableBuilder.getLinearity(table));
+        BitPackedSubstitutionPermutationNetwork spn = new BitPackedSubstitutionPermutationNetwork(sBox, spec);
+        Assertions.assertArrayEquals(matches, new LinearCryptAnalyzer(spn).buildApproximationTable());
+    }
+
+    // The string count the analyzer used before the transform
+    private static int getMatches(BidiMap<String, String> sBox, String inputMask, String outputMask) {
+        int numberOfMatches = 0;
+        for (Map.Entry<String, String> entry : sBox.entrySet()) {
+            if (getCombinationResult(inputMask, entry.getKey()) == getCombinationResult(outputMask, entry.getValue())) {
+                numberOfMatches++;
+            }
+        }
+        return numberOfMatches;
+    }
+
+    private static int getCombinationResult(String mask, String value) {
+        int result = 0;
+        for (int i = 0; i < mask.length(); i++) {
+            result ^= mask.charAt(i) & value.charAt(i) & 1;
+        }
+        return result;
+    }
+}
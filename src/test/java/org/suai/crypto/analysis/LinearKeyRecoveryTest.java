@@ -0,0 +1,56 @@
+package org.suai.crypto.analysis;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.data.PairSource;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.List;
+
+class LinearKeyRecoveryTest {
+
+    private static final int[] S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+    private static final long KEY = 0xB7E1;
+
+    private BitPackedSubstitutionPermutationNetwork spn;
+    private LinearKeyRecovery recovery;
+    private PairSource pairs;
+
+    @BeforeEach
+    void setUp() {
+        SpnSpec spec = SpnSpec.of(16, 4, 4);
+        spn = new BitPackedSubstitutionPermutationNetwork(S_BOX, spec);
+        Trail trail = new LinearCryptAnalyzer(spn).findBestTrails(spec.getNumberOfRounds() - 1, 1).get(0);
+        recovery = new LinearKeyRecovery(spec, S_BOX, trail);
+        PlaintextGenerator generator = new PlaintextGenerator(16, 42, PlaintextGenerator.Mode.DISTINCT);
+        pairs = generator.knownPairs(PlaintextGenerator.encryption(spn, KEY), 1 << 14);
+    }
+
+    @Test
+    void testCorrelationsMatchDirectCount() {
+        long[] correlations = recovery.getCorrelations(recovery.compress(pairs));
+        long lastRoundMask = recovery.getLastRoundMask();
+        long plaintextMask = recovery.getPlaintextMask();
+        long keyMask = recovery.getActiveKeyMask();
+        List<SubKeyCandidate> candidates = recovery.recover(pairs, correlations.length);
+        for (SubKeyCandidate candidate : candidates.subList(0, 8)) {
+            long[] count = new long[1];
+            pairs.forEach((plaintext, ciphertext) -> {
+                // Undo the last round for the guessed bits only
+                long state = spn.substitute((ciphertext ^ candidate.getSubKey()) & keyMask, spn.getInverseSBoxTable());
+                long parity = Long.bitCount(plaintext & plaintextMask) + Long.bitCount(state & lastRoundMask);
+                count[0] += (parity & 1) == 0 ? 1 : -1;
+            });
+            Assertions.assertEquals(Math.abs(count[0]) / (2.0 * pairs.size()), candidate.getScore(), 1e-12);
+        }
+    }
+
+    @Test
+    void testRecoversLastRoundKeyBits() {
+        SubKeyCandidate best = recovery.recover(pairs, 1).get(0);
+        Assertions.assertEquals(KEY & recovery.getActiveKeyMask(), best.getSubKey());
+    }
+}
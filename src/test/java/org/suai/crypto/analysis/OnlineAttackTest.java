@@ -0,0 +1,87 @@
+package org.suai.crypto.analysis;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.oracle.LocalEncryptionOracle;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+class OnlineAttackTest {
+
+    private static final int[] S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+    private static final long KEY = 0xB7E1;
+
+    private SpnSpec spec;
+    private LocalEncryptionOracle oracle;
+
+    @BeforeEach
+    void setUp() {
+        spec = SpnSpec.of(16, 4, 4);
+        oracle = new LocalEncryptionOracle(new BitPackedSubstitutionPermutationNetwork(S_BOX, spec), KEY);
+    }
+
+    @Test
+    void testDifferentialAttackStopsEarly() {
+        DifferentialCryptAnalyzer analyzer = new DifferentialCryptAnalyzer(
+                new BitPackedSubstitutionPermutationNetwork(S_BOX, spec));
+        Trail characteristic = analyzer.findBestCharacteristics(spec.getNumberOfRounds() - 1, 1).get(0);
+        List<OnlineAttackStatus> statuses = new ArrayList<>();
+        OnlineAttackStatus result = analyzer.countSubKeysOnline(characteristic, oracle, 100, 50_000, 7, statuses::add);
+        Assertions.assertTrue(result.isSignificant());
+        Assertions.assertTrue(result.getNumberOfPairs() < 50_000);
+        Assertions.assertEquals(statuses.size(), result.getLook());
+        Assertions.assertEquals(2 * result.getNumberOfPairs(), oracle.getNumberOfQueries());
+        Assertions.assertEquals(KEY & result.getKeyMask(), result.getKey());
+    }
+
+    @Test
+    void testLinearAttackStopsEarly() {
+        LinearCryptAnalyzer analyzer = new LinearCryptAnalyzer(new BitPackedSubstitutionPermutationNetwork(S_BOX, spec));
+        // Guesses that share all but one active s-box score almost alike, so take the good trail
+        // with the fewest active last round s-boxes
+        Trail trail = analyzer.findBestTrails(spec.getNumberOfRounds() - 1, 20).stream()
+                .min(Comparator.comparingInt(candidate ->
+                        new LinearKeyRecovery(spec, S_BOX, candidate).getNumberOfActiveBits()))
+                .orElseThrow(IllegalStateException::new);
+        List<OnlineAttackStatus> statuses = new ArrayList<>();
+        OnlineAttackStatus result = analyzer.recoverLastRoundKeyOnline(trail, oracle, 500, 200_000, 7, statuses::add);
+        Assertions.assertTrue(result.isSignificant());
+        Assertions.assertTrue(result.getNumberOfPairs() < 200_000);
+        Assertions.assertEquals(statuses.size(), result.getLook());
+        Assertions.assertEquals(result.getNumberOfPairs(), oracle.getNumberOfQueries());
+        Assertions.assertEquals(KEY & result.getKeyMask(), result.getKey());
+    }
+
+    @Test
+    void testCriticalValueGrowsWithLooks() {
+        OnlineLinearAttack attack = new OnlineLinearAttack(spec, S_BOX,
+                new LinearCryptAnalyzer(new BitPackedSubstitutionPermutationNetwork(S_BOX, spec))
+                        .findBestTrails(spec.getNumberOfRounds() - 1, 1).get(0));
+        Assertions.assertTrue(attack.getCriticalValue(1) < attack.getCriticalValue(10));
+        // Stopped by the pair limit or by significance, every look takes one whole batch
+        OnlineAttackStatus result = attack.run(oracle, new PlaintextGenerator(16, 3, PlaintextGenerator.Mode.RANDOM),
+                1000, 3000, status -> { });
+        Assertions.assertTrue(result.getLook() <= 3);
+        Assertions.assertEquals(1000L * result.getLook(), result.getNumberOfPairs());
+        Assertions.assertEquals(result.getNumberOfPairs(), oracle.getNumberOfQueries());
+    }
+
+    @Test
+    void testEmptyBatchesAreRejected() {
+        OnlineLinearAttack attack = new OnlineLinearAttack(spec, S_BOX,
+                new LinearCryptAnalyzer(new BitPackedSubstitutionPermutationNetwork(S_BOX, spec))
+                        .findBestTrails(spec.getNumberOfRounds() - 1, 1).get(0));
+        PlaintextGenerator generator = new PlaintextGenerator(16, 3, PlaintextGenerator.Mode.RANDOM);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> attack.run(oracle, generator, 0, 3000, status -> { }));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> attack.run(oracle, generator, -5, 3000, status -> { }));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> attack.run(oracle, generator, 1000, 0, status -> { }));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> attack.run(oracle, generator, 1000, -1, status -> { }));
+        Assertions.assertEquals(0, oracle.getNumberOfQueries());
+    }
+}
@@ -0,0 +1,89 @@
+package org.suai.crypto.analysis;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class SBoxExplorerTest {
+
+    @Test
+    void testThreeBitClasses() {
+        List<SBoxProfile> profiles = new SBoxExplorer(SpnSpec.DEFAULT, 0).enumerate();
+        Assertions.assertEquals(4, profiles.size());
+        Assertions.assertEquals(40320, profiles.stream().mapToLong(SBoxProfile::getClassSize).sum());
+        Assertions.assertEquals(0, profiles.stream().mapToLong(SBoxProfile::getNumberOfDraws).sum());
+        // The identity is the first s-box by rank, so it represents the affine ones
+        SBoxProfile affine = profiles.stream()
+                .filter(profile -> Arrays.equals(new int[]{0, 1, 2, 3, 4, 5, 6, 7}, profile.getSBox()))
+                .findFirst().orElseThrow(AssertionError::new);
+        Assertions.assertEquals(4, affine.getLinearity());
+        Assertions.assertEquals(8, affine.getDifferentialUniformity());
+        Assertions.assertEquals(1344, affine.getClassSize());
+        Assertions.assertEquals(2, profiles.get(0).getLinearity());
+        Assertions.assertEquals(2, profiles.get(0).getDifferentialUniformity());
+    }
+
+    @Test
+    void testClassWeightsAreTheBestOfTheirMembers() {
+        // Two 3-bit s-boxes, the members of a class lead to different trails through the permutation
+        SpnSpec spec = SpnSpec.of(6, 4, 3);
+        Map<String, SBoxProfile> classes = new HashMap<>();
+        for (SBoxProfile profile : new SBoxExplorer(spec, 2).enumerate()) {
+            classes.put(SBoxExplorer.getInvariant(profile.getSBox(), 3), profile);
+        }
+        Assertions.assertEquals(4, classes.size());
+        // Every sampled group is a subset of one class and weighs at most as much
+        for (SBoxProfile sampled : new SBoxExplorer(spec, 2).sample(300, 3)) {
+            SBoxProfile profile = classes.get(SBoxExplorer.getInvariant(sampled.getSBox(), 3));
+            Assertions.assertTrue(sampled.getLinearTrailWeight() <= profile.getLinearTrailWeight());
+            if (sampled.getLinearTrailWeight() == profile.getLinearTrailWeight()) {
+                Assertions.assertTrue(sampled.getDifferentialTrailWeight() <= profile.getDifferentialTrailWeight());
+            }
+        }
+    }
+
+    @Test
+    void testLibraryIsReadBack(@TempDir Path directory) throws IOException {
+        List<SBoxProfile> profiles = new SBoxExplorer(SpnSpec.of(16, 4, 4), 2).sample(50, 1);
+        Path path = directory.resolve("sboxes.bin");
+        SBoxLibrary.write(path, profiles);
+        Assertions.assertEquals(profiles, SBoxLibrary.read(path));
+        Assertions.assertEquals(50, profiles.stream().mapToLong(SBoxProfile::getNumberOfDraws).sum());
+        Assertions.assertEquals(0, profiles.stream().mapToLong(SBoxProfile::getClassSize).sum());
+        for (int i = 1; i < profiles.size(); i++) {
+            Assertions.assertTrue(SBoxProfile.RANKING.compare(profiles.get(i - 1), profiles.get(i)) <= 0);
+        }
+    }
+
+    @Test
+    void testCorruptLibraryIsRejected(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("sboxes.bin");
+        List<SBoxProfile> profiles = new SBoxExplorer(SpnSpec.DEFAULT, 0).enumerate();
+        // Input size, count, then the first value of the first s-box repeated in the second entry
+        long[][] corruptions = {{8, -1}, {8, 40}, {8, 0}, {12, -1}, {12, 1 << 20}, {17, 0}};
+        for (long[] corruption : corruptions) {
+            SBoxLibrary.write(path, profiles);
+            try (RandomAccessFile out = new RandomAccessFile(path.toFile(), "rw")) {
+                out.seek(corruption[0]);
+                if (corruption[0] == 17) {
+                    out.writeByte(profiles.get(0).getSBox()[0]);
+                } else {
+                    out.writeInt((int) corruption[1]);
+                }
+            }
+            Assertions.assertThrows(IOException.class, () -> SBoxLibrary.read(path), Arrays.toString(corruption));
+        }
+        SBoxLibrary.write(path, Collections.emptyList());
+        Assertions.assertEquals(Collections.emptyList(), SBoxLibrary.read(path));
+    }
+}
@@ -0,0 +1,119 @@
+package org.suai.crypto.analysis;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class SBoxTableCacheTest {
+
+    private static final int[] S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+
+    @Test
+    void testSharedTableCannotBeModified() {
+        SBoxTableCache cache = new SBoxTableCache(8);
+        BitPackedSubstitutionPermutationNetwork spn =
+                new BitPackedSubstitutionPermutationNetwork(S_BOX, SpnSpec.of(16, 4, 4));
+        DifferentialCryptAnalyzer first = new DifferentialCryptAnalyzer(spn);
+        first.setTableCache(cache);
+        int[][] expected = first.getDifferenceDistributionTable();
+        first.getDifferenceDistributionTable()[1][2] = 99;
+        first.getDifferenceDistribution().getCounts()[3][4] = 99;
+        first.getDifferenceDistribution().getRightInputs()[0] = 99;
+
+        DifferentialCryptAnalyzer second = new DifferentialCryptAnalyzer(spn);
+        second.setTableCache(cache);
+        Assertions.assertSame(first.getDifferenceDistribution(), second.getDifferenceDistribution());
+        Assertions.assertArrayEquals(expected, second.getDifferenceDistributionTable());
+        Assertions.assertArrayEquals(DifferenceDistributionTable.build(S_BOX, 4).getRightInputs(),
+                second.getDifferenceDistribution().getRightInputs());
+    }
+
+    @Test
+    void testTablesAreReadBackFromDisk(@TempDir Path directory) {
+        SBoxTableCache first = new SBoxTableCache(8, directory);
+        int[][] approximationTable = first.getLinearApproximationTable(S_BOX, 4);
+        DifferenceDistributionTable ddt = first.getDifferenceDistributionTable(S_BOX, 4);
+        Assertions.assertSame(ddt, first.getDifferenceDistributionTable(S_BOX, 4));
+        Assertions.assertEquals(0, first.getDiskHits());
+
+        SBoxTableCache second = new SBoxTableCache(8, directory);
+        Assertions.assertArrayEquals(approximationTable, second.getLinearApproximationTable(S_BOX, 4));
+        DifferenceDistributionTable restored = second.getDifferenceDistributionTable(S_BOX, 4);
+        Assertions.assertEquals(2, second.getDiskHits());
+        Assertions.assertArrayEquals(ddt.getCounts(), restored.getCounts());
+        for (int a = 0; a < 16; a++) {
+            for (int b = 0; b < 16; b++) {
+                Assertions.assertArrayEquals(ddt.getRightInputs(a, b), restored.getRightInputs(a, b));
+            }
+        }
+    }
+
+    @Test
+    void testTrailsAreKeyedBySearch(@TempDir Path directory) {
+        SpnSpec spec = SpnSpec.of(16, 4, 4);
+        Trail trail = new Trail(new long[]{0x0B00, 0x0040}, new long[]{0x0400, 0x0050}, 4.5);
+        SBoxTableCache first = new SBoxTableCache(8, directory);
+        first.getTrails("linear", S_BOX, spec, 2, 1, () -> Collections.singletonList(trail));
+
+        SBoxTableCache second = new SBoxTableCache(8, directory);
+        List<Trail> restored = second.getTrails("linear", S_BOX, spec, 2, 1, () -> {
+            throw new AssertionError("Trails should come from disk");
+        });
+        Assertions.assertEquals(Collections.singletonList(trail), restored);
+        Assertions.assertEquals(4.5, restored.get(0).getWeight());
+        Assertions.assertTrue(second.getTrails("differential", S_BOX, spec, 2, 1, Collections::emptyList).isEmpty());
+    }
+
+    @Test
+    void testCorruptFilesAreRebuilt(@TempDir Path directory) throws IOException {
+        SpnSpec spec = SpnSpec.of(16, 4, 4);
+        Trail trail = new Trail(new long[]{0x0B00, 0x0040}, new long[]{0x0400, 0x0050}, 4.5);
+        SBoxTableCache first = new SBoxTableCache(8, directory);
+        int[][] approximationTable = first.getLinearApproximationTable(S_BOX, 4);
+        DifferenceDistributionTable ddt = first.getDifferenceDistributionTable(S_BOX, 4);
+        first.getTrails("linear", S_BOX, spec, 2, 1, () -> Collections.singletonList(trail));
+
+        // Huge and negative lengths right after the magic and version, for the DDT in its first row
+        for (int corruptValue : new int[]{Integer.MAX_VALUE, -3}) {
+            for (Path file : list(directory)) {
+                try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+                    out.seek(8);
+                    out.writeInt(file.toString().endsWith(".ddt") ? 16 : corruptValue);
+                    out.writeInt(file.toString().endsWith(".ddt") ? corruptValue : 0);
+                }
+            }
+            SBoxTableCache second = new SBoxTableCache(8, directory);
+            Assertions.assertArrayEquals(approximationTable, second.getLinearApproximationTable(S_BOX, 4));
+            Assertions.assertArrayEquals(ddt.getCounts(), second.getDifferenceDistributionTable(S_BOX, 4).getCounts());
+            Assertions.assertEquals(Collections.singletonList(trail),
+                    second.getTrails("linear", S_BOX, spec, 2, 1, () -> Collections.singletonList(trail)));
+            Assertions.assertEquals(0, second.getDiskHits());
+        }
+
+        // The rebuilt files replaced the corrupt ones
+        SBoxTableCache third = new SBoxTableCache(8, directory);
+        third.getLinearApproximationTable(S_BOX, 4);
+        third.getDifferenceDistributionTable(S_BOX, 4);
+        third.getTrails("linear", S_BOX, spec, 2, 1, () -> {
+            throw new AssertionError("Trails should come from disk");
+        });
+        Assertions.assertEquals(3, third.getDiskHits());
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.suai.crypto.analysis;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+class TrailSearchTest {
+
+    // Two 3-bit s-boxes, small enough to list every trail over three rounds
+    private static final SpnSpec SPEC = SpnSpec.of(6, 4, 3);
+    private static final int[] S_BOX = {6, 0, 5, 1, 7, 3, 4, 2};
+    private static final int[] APN_S_BOX = {0, 1, 2, 4, 3, 6, 7, 5};
+
+    @Test
+    void testLinearSearchMatchesBruteForce() {
+        for (int[] sBox : new int[][]{S_BOX, APN_S_BOX}) {
+            double[][] weights = TrailSearch.getLinearWeights(LinearApproximationTableBuilder.build(sBox, 3), 3);
+            assertMatchesBruteForce(sBox, weights);
+        }
+    }
+
+    @Test
+    void testDifferentialSearchMatchesBruteForce() {
+        for (int[] sBox : new int[][]{S_BOX, APN_S_BOX}) {
+            int[][] counts = DifferenceDistributionTable.build(sBox, 3).getCounts();
+            assertMatchesBruteForce(sBox, TrailSearch.getDifferentialWeights(counts, 3));
+        }
+    }
+
+    @Test
+    void testSearchIsRepeatable() {
+        // The APN s-box has many trails of equal weight, ties must not depend on thread timing
+        double[][] weights = TrailSearch.getLinearWeights(LinearApproximationTableBuilder.build(APN_S_BOX, 3), 3);
+        List<Trail> first = new TrailSearch(SPEC, weights).search(3, 4);
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals(first, new TrailSearch(SPEC, weights).search(3, 4));
+        }
+    }
+
+    @Test
+    void testEmptySearchesAreRejected() {
+        double[][] weights = TrailSearch.getLinearWeights(LinearApproximationTableBuilder.build(S_BOX, 3), 3);
+        TrailSearch search = new TrailSearch(SPEC, weights);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> search.search(3, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> search.search(0, 4));
+        // The cache checks before it looks for a file named after topK
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SBoxTableCache.getDefault()
+                .getTrails("linear", S_BOX, SPEC, 3, 0, Collections::emptyList));
+    }
+
+    private static void assertMatchesBruteForce(int[] sBox, double[][] weights) {
+        BitPackedSubstitutionPermutationNetwork spn = new BitPackedSubstitutionPermutationNetwork(sBox, SPEC);
+        for (int rounds = 1; rounds <= 3; rounds++) {
+            List<Trail> all = new ArrayList<>();
+            for (long input = 1; input < 1 << SPEC.getBlockSize(); input++) {
+                enumerate(spn, weights, new long[rounds], new long[rounds], 0, input, 0, all);
+            }
+            all.sort(Comparator.comparingDouble(Trail::getWeight)
+                    .thenComparing(Trail::getInputs, Arrays::compare)
+                    .thenComparing(Trail::getOutputs, Arrays::compare));
+            for (int topK : new int[]{1, 5, 40}) {
+                List<Trail> found = new TrailSearch(SPEC, weights).search(rounds, topK);
+                List<Trail> expected = all.subList(0, Math.min(topK, all.size()));
+                Assertions.assertEquals(expected, found, rounds + " rounds, top " + topK);
+                for (int i = 0; i < found.size(); i++) {
+                    Assertions.assertEquals(expected.get(i).getWeight(), found.get(i).getWeight(), 1e-9);
+                }
+            }
+        }
+    }
+
+    // Every output choice of the active s-boxes, the next round input is the permuted output
+    private static void enumerate(BitPackedSubstitutionPermutationNetwork spn, double[][] weights, long[] inputs,
+                                  long[] outputs, int round, long input, double weight, List<Trail> trails) {
+        if (round == inputs.length) {
+            trails.add(new Trail(inputs.clone(), outputs.clone(), weight));
+            return;
+        }
+        inputs[round] = input;
+        extend(spn, weights, inputs, outputs, round, 0, 0, weight, trails);
+    }
+
+    private static void extend(BitPackedSubstitutionPermutationNetwork spn, double[][] weights, long[] inputs,
+                               long[] outputs, int round, int sBox, long output, double weight, List<Trail> trails) {
+        if (sBox == SPEC.getNumberOfSBoxes()) {
+            outputs[round] = output;
+            enumerate(spn, weights, inputs, outputs, round + 1, spn.permute(output), weight, trails);
+            return;
+        }
+        int shift = SPEC.getSBoxShift(sBox);
+        int input = (int) (inputs[round] >>> shift) & 7;
+        if (input == 0) {
+            extend(spn, weights, inputs, outputs, round, sBox + 1, output, weight, trails);
+            return;
+        }
+        for (int value = 1; value < 8; value++) {
+            if (Double.isFinite(weights[input][value])) {
+                extend(spn, weights, inputs, outputs, round, sBox + 1, output | (long) value << shift,
+                        weight + weights[input][value], trails);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.suai.crypto.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+
+class CorpusTest {
+
+    private static final int[] S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testKnownPairsRoundTrip() throws IOException {
+        SpnSpec spec = SpnSpec.of(20, 3, 4);
+        LongUnaryOperator encryption = PlaintextGenerator.encryption(
+                new BitPackedSubstitutionPermutationNetwork(S_BOX, spec), 0xABCDE);
+        PairSource source = new PlaintextGenerator(spec.getBlockSize(), 5, PlaintextGenerator.Mode.DISTINCT)
+                .knownPairs(encryption, 10_000);
+        Path path = directory.resolve("known.corpus");
+        try (CorpusWriter writer = CorpusWriter.known(path, spec)) {
+            writer.write(source);
+        }
+
+        List<Long> expected = new ArrayList<>();
+        source.forEach((plaintext, ciphertext) -> {
+            expected.add(plaintext);
+            expected.add(ciphertext);
+        });
+        try (CorpusReader reader = new CorpusReader(path)) {
+            Assertions.assertEquals(spec, reader.getHeader().getSpec());
+            Assertions.assertEquals(10_000, reader.getHeader().getCount());
+            List<Long> actual = new ArrayList<>();
+            for (PairSource chunk : reader.asPairSource().split(7)) {
+                chunk.forEach((plaintext, ciphertext) -> {
+                    actual.add(plaintext);
+                    actual.add(ciphertext);
+                });
+            }
+            Assertions.assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void testDifferencePairsRoundTrip() throws IOException {
+        SpnSpec spec = SpnSpec.DEFAULT;
+        int[] sBox = {6, 0, 5, 1, 7, 3, 4, 2};
+        BitPackedSubstitutionPermutationNetwork spn = new BitPackedSubstitutionPermutationNetwork(sBox, spec);
+        long inputDifference = 0b000110000;
+        DifferencePairSource source = new PlaintextGenerator(spec.getBlockSize(), 9, PlaintextGenerator.Mode.RANDOM)
+                .differencePairs(PlaintextGenerator.encryption(spn, 0b010011101), inputDifference, 300);
+        Path path = directory.resolve("difference.corpus");
+        try (CorpusWriter writer = CorpusWriter.difference(path, spec, inputDifference)) {
+            writer.write(source);
+        }
+        try (CorpusReader reader = new CorpusReader(path)) {
+            DifferencePairSource corpus = reader.asDifferencePairSource();
+            Assertions.assertEquals(300, corpus.size());
+            corpus.forEach((firstPlaintext, firstCiphertext, secondPlaintext, secondCiphertext) -> {
+                Assertions.assertEquals(inputDifference, firstPlaintext ^ secondPlaintext);
+                Assertions.assertEquals(spn.encrypt((int) firstPlaintext, 0b010011101), firstCiphertext);
+                Assertions.assertEquals(spn.encrypt((int) secondPlaintext, 0b010011101), secondCiphertext);
+            });
+        }
+    }
+
+    @Test
+    void testCorruptHeadersAreRejected() throws IOException {
+        SpnSpec spec = SpnSpec.DEFAULT;
+        Path path = directory.resolve("corrupt.corpus");
+        try (CorpusWriter writer = CorpusWriter.known(path, spec)) {
+            writer.write(new PlaintextGenerator(spec.getBlockSize(), 1, PlaintextGenerator.Mode.CODEBOOK)
+                    .knownPairs(plaintext -> plaintext, 16));
+        }
+        byte[] original = Files.readAllBytes(path);
+        // Type byte, block size (too large, negative) and a count whose size in bytes overflows
+        assertRejected(path, original, buffer -> buffer.put(6, (byte) 5));
+        assertRejected(path, original, buffer -> buffer.putInt(8, 100));
+        assertRejected(path, original, buffer -> buffer.putInt(8, -3));
+        assertRejected(path, original, buffer -> buffer.putLong(28, Long.MAX_VALUE / 2));
+        assertRejected(path, original, buffer -> buffer.putLong(28, 17));
+    }
+
+    private static void assertRejected(Path path, byte[] original, Consumer<ByteBuffer> corruption) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(original.clone());
+        corruption.accept(buffer);
+        Files.write(path, buffer.array());
+        Assertions.assertThrows(IOException.class, () -> new CorpusReader(path).close());
+    }
+}
@@ -0,0 +1,56 @@
+package org.suai.crypto.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+class PlaintextGeneratorTest {
+
+    @Test
+    void testDistinctModeIsBijection() {
+        for (int blockSize : new int[]{1, 9, 16}) {
+            PlaintextGenerator generator = new PlaintextGenerator(blockSize, 42, PlaintextGenerator.Mode.DISTINCT);
+            BitSet seen = new BitSet(1 << blockSize);
+            for (long index = 0; index < 1L << blockSize; index++) {
+                long plaintext = generator.plaintext(index);
+                Assertions.assertTrue(plaintext >= 0 && plaintext < 1L << blockSize);
+                Assertions.assertFalse(seen.get((int) plaintext), "Repeated plaintext " + plaintext);
+                seen.set((int) plaintext);
+            }
+            Assertions.assertEquals(1 << blockSize, seen.cardinality());
+        }
+    }
+
+    @Test
+    void testSplitCoversRangeOnceAndSeedsReproduce() {
+        PlaintextGenerator generator = new PlaintextGenerator(16, 7, PlaintextGenerator.Mode.RANDOM);
+        PairSource pairs = generator.knownPairs(plaintext -> plaintext ^ 0xFFFF, 1001);
+        List<Long> whole = new ArrayList<>();
+        pairs.forEach((plaintext, ciphertext) -> {
+            Assertions.assertEquals(plaintext ^ 0xFFFF, ciphertext);
+            whole.add(plaintext);
+        });
+        List<Long> parts = new ArrayList<>();
+        List<PairSource> split = pairs.split(7);
+        Assertions.assertEquals(7, split.size());
+        for (PairSource part : split) {
+            part.forEach((plaintext, ciphertext) -> parts.add(plaintext));
+        }
+        Assertions.assertEquals(1001, whole.size());
+        Assertions.assertEquals(whole, parts);
+
+        List<Long> again = new ArrayList<>();
+        new PlaintextGenerator(16, 7, PlaintextGenerator.Mode.RANDOM)
+                .knownPairs(plaintext -> plaintext, 1001)
+                .forEach((plaintext, ciphertext) -> again.add(plaintext));
+        Assertions.assertEquals(whole, again);
+        List<Long> otherSeed = new ArrayList<>();
+        new PlaintextGenerator(16, 8, PlaintextGenerator.Mode.RANDOM)
+                .knownPairs(plaintext -> plaintext, 1001)
+                .forEach((plaintext, ciphertext) -> otherSeed.add(plaintext));
+        Assertions.assertNotEquals(whole, otherSeed);
+    }
+}
@@ -0,0 +1,78 @@
+package org.suai.crypto.experiment;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class CampaignRunnerTest {
+
+    private static final int[] S_BOX = {0, 1, 2, 4, 3, 6, 7, 5};
+
+    private static List<CampaignJob> createJobs() {
+        return CampaignJob.matrix(Collections.singletonMap("apn", S_BOX), SpnSpec.DEFAULT,
+                new long[]{0b101100111, 0b010011010, 0b111000101}, new int[]{64, 256},
+                AttackType.LINEAR, AttackType.DIFFERENTIAL);
+    }
+
+    @Test
+    void testResultsAreStreamedAndReturnedInJobOrder() {
+        List<CampaignJob> jobs = createJobs();
+        List<CampaignResult> streamed = new ArrayList<>();
+        try (CampaignRunner runner = new CampaignRunner(2, Duration.ofMinutes(1))) {
+            List<CampaignResult> results = runner.run(jobs, streamed::add);
+            Assertions.assertEquals(jobs, results.stream().map(CampaignResult::getJob).collect(Collectors.toList()));
+            Assertions.assertEquals(new HashSet<>(results), new HashSet<>(streamed));
+            Assertions.assertEquals(jobs.size(), streamed.size());
+            for (CampaignResult result : results) {
+                Assertions.assertEquals(CampaignResult.Status.SUCCEEDED, result.getStatus(), result.toString());
+            }
+        }
+    }
+
+    @Test
+    void testZeroTimeoutStopsEveryJob() {
+        try (CampaignRunner runner = new CampaignRunner(2, Duration.ZERO)) {
+            for (CampaignResult result : runner.run(createJobs())) {
+                Assertions.assertEquals(CampaignResult.Status.TIMED_OUT, result.getStatus());
+                Assertions.assertEquals(0, result.getRecoveredMask());
+            }
+        }
+    }
+
+    @Test
+    void testTableFailureIsReportedToEveryJob() {
+        // Too short for the network, so building the shared tables fails
+        List<CampaignJob> jobs = CampaignJob.matrix(Collections.singletonMap("short", new int[]{0, 1, 3, 2}),
+                SpnSpec.DEFAULT, new long[]{1, 2, 3}, new int[]{64}, AttackType.LINEAR, AttackType.DIFFERENTIAL);
+        try (CampaignRunner runner = new CampaignRunner(4, Duration.ofMinutes(1))) {
+            for (CampaignResult result : runner.run(jobs)) {
+                Assertions.assertEquals(CampaignResult.Status.FAILED, result.getStatus());
+                Assertions.assertTrue(result.getError().contains("S-box doesn't match"), result.getError());
+            }
+        }
+    }
+
+    @Test
+    void testCancelStopsOnlyTheRunInProgress() {
+        List<CampaignJob> jobs = createJobs();
+        try (CampaignRunner runner = new CampaignRunner(1, Duration.ofMinutes(1))) {
+            // One worker, so every job after the first one starts after the cancellation
+            List<CampaignResult> results = runner.run(jobs, result -> runner.cancel());
+            long succeeded = results.stream().filter(r -> r.getStatus() == CampaignResult.Status.SUCCEEDED).count();
+            long cancelled = results.stream().filter(r -> r.getStatus() == CampaignResult.Status.CANCELLED).count();
+            Assertions.assertEquals(1, succeeded);
+            Assertions.assertEquals(jobs.size() - 1, cancelled);
+
+            for (CampaignResult result : runner.run(jobs)) {
+                Assertions.assertEquals(CampaignResult.Status.SUCCEEDED, result.getStatus());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.suai.crypto.experiment;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.time.Duration;
+import java.util.List;
+
+class SuccessRateExperimentTest {
+
+    private static final int[] S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+    private static final SpnSpec SPEC = SpnSpec.of(16, 4, 4);
+
+    @Test
+    void testSuccessNeedsEveryAttackedBit() {
+        CampaignJob job = new CampaignJob(0, "heys", S_BOX, SPEC, AttackType.LINEAR, 0xB7E1, 1000, 1);
+        CampaignResult full = CampaignResult.succeeded(job, 0x0F0F, 0x0F0F, 0xB7E1, 1, 0);
+        Assertions.assertTrue(full.isKeyRecovered());
+        Assertions.assertFalse(full.isPartiallyRecovered());
+
+        // Right bits of one s-box only, the other one tied
+        CampaignResult partial = CampaignResult.succeeded(job, 0x0F0F, 0x000F, 0xB7E1, 2, 0);
+        Assertions.assertFalse(partial.isKeyRecovered());
+        Assertions.assertTrue(partial.isPartiallyRecovered());
+
+        CampaignResult wrong = CampaignResult.succeeded(job, 0x0F0F, 0x0F0F, 0xB7E0, 2, 0);
+        Assertions.assertFalse(wrong.isKeyRecovered());
+        Assertions.assertFalse(wrong.isPartiallyRecovered());
+        Assertions.assertEquals(7, wrong.getNumberOfCorrectBits());
+
+        CampaignResult nothing = CampaignResult.succeeded(job, 0x0F0F, 0, 0, 16, 0);
+        Assertions.assertFalse(nothing.isKeyRecovered());
+        Assertions.assertFalse(nothing.isPartiallyRecovered());
+    }
+
+    @Test
+    void testSeededRunsAreReproducible() {
+        int[] pairCounts = {200, 2000};
+        for (AttackType attackType : AttackType.values()) {
+            List<SuccessRatePoint> first;
+            List<SuccessRatePoint> second;
+            try (CampaignRunner runner = new CampaignRunner(1, Duration.ofMinutes(1))) {
+                first = new SuccessRateExperiment(runner).run("heys", S_BOX, SPEC, attackType, 8, pairCounts, 3);
+            }
+            try (CampaignRunner runner = new CampaignRunner(4, Duration.ofMinutes(1))) {
+                second = new SuccessRateExperiment(runner).run("heys", S_BOX, SPEC, attackType, 8, pairCounts, 3);
+            }
+            for (int i = 0; i < pairCounts.length; i++) {
+                Assertions.assertEquals(0, first.get(i).getUnfinished());
+                Assertions.assertEquals(first.get(i).getSuccesses(), second.get(i).getSuccesses());
+                Assertions.assertEquals(first.get(i).getPartialRecoveries(), second.get(i).getPartialRecoveries());
+                Assertions.assertEquals(first.get(i).getAverageKeyRank(), second.get(i).getAverageKeyRank());
+            }
+            Assertions.assertTrue(first.get(1).getSuccesses() > 0, first.get(1).toString());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.suai.crypto.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+
+    @Test
+    void testBucketsCoverAllValues() {
+        long[] values = {0, 1, 31, 32, 33, 47, 48, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = Histogram.getBucketIndex(value);
+            Assertions.assertTrue(Histogram.getBucketLimit(index) >= value);
+            if (index > 0) {
+                Assertions.assertTrue(Histogram.getBucketLimit(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        Assertions.assertEquals(1000, histogram.getCount());
+        Assertions.assertEquals(1, histogram.getMin());
+        Assertions.assertEquals(1000, histogram.getMax());
+        Assertions.assertEquals(500.5, histogram.getMean(), 1e-9);
+        long median = histogram.getValueAtPercentile(50);
+        Assertions.assertTrue(median >= 500 && median <= 500 * 1.07, "median = " + median);
+        Assertions.assertEquals(1000, histogram.getValueAtPercentile(100));
+    }
+}
@@ -0,0 +1,109 @@
+package org.suai.crypto.oracle;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.data.DifferencePairSource;
+import org.suai.crypto.data.PlaintextGenerator;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongUnaryOperator;
+
+class RemoteEncryptionOracleTest {
+
+    private static final int[] S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+    private static final long KEY = 0xB7E1;
+
+    private BitPackedSubstitutionPermutationNetwork spn;
+    private OracleServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        spn = new BitPackedSubstitutionPermutationNetwork(S_BOX, SpnSpec.of(16, 4, 4));
+        server = OracleServer.start(new LocalEncryptionOracle(spn, KEY), 0);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void testPipelinedBatchesMatchLocalEncryption() throws IOException {
+        LongUnaryOperator encryption = PlaintextGenerator.encryption(spn, KEY);
+        long[] plaintexts = new long[10_000];
+        for (int i = 0; i < plaintexts.length; i++) {
+            plaintexts[i] = i * 7919L & 0xFFFF;
+        }
+        try (RemoteEncryptionOracle oracle = new RemoteEncryptionOracle("localhost", server.getPort(), 333)) {
+            Assertions.assertEquals(16, oracle.getBlockSize());
+            for (int request = 0; request < 3; request++) {
+                long[] ciphertexts = oracle.encrypt(plaintexts);
+                for (int i = 0; i < plaintexts.length; i++) {
+                    Assertions.assertEquals(encryption.applyAsLong(plaintexts[i]), ciphertexts[i]);
+                }
+            }
+            Assertions.assertEquals(0, oracle.encrypt(new long[0]).length);
+            Assertions.assertEquals(3L * plaintexts.length, oracle.getNumberOfQueries());
+        }
+    }
+
+    @Test
+    void testDifferencePairsThroughOracle() throws IOException {
+        PlaintextGenerator generator = new PlaintextGenerator(16, 5, PlaintextGenerator.Mode.RANDOM);
+        try (RemoteEncryptionOracle oracle = new RemoteEncryptionOracle("localhost", server.getPort())) {
+            DifferencePairSource pairs = generator.differencePairs(oracle, 0x0B00, 1000);
+            DifferencePairSource expected = generator.differencePairs(PlaintextGenerator.encryption(spn, KEY), 0x0B00, 1000);
+            long[] checksum = new long[2];
+            pairs.forEach((p1, c1, p2, c2) -> checksum[0] = checksum[0] * 31 + (p1 ^ c1 * 7 ^ p2 * 11 ^ c2 * 13));
+            expected.forEach((p1, c1, p2, c2) -> checksum[1] = checksum[1] * 31 + (p1 ^ c1 * 7 ^ p2 * 11 ^ c2 * 13));
+            Assertions.assertEquals(checksum[1], checksum[0]);
+        }
+    }
+
+    @Test
+    void testConnectionIsClosedAfterServerDiesMidRequest() throws IOException {
+        LocalEncryptionOracle local = new LocalEncryptionOracle(spn, KEY);
+        AtomicInteger batches = new AtomicInteger();
+        OracleServer[] dying = new OracleServer[1];
+        // Answers two batches, then shuts the server down while the third one is in flight
+        EncryptionOracle oracle = new EncryptionOracle() {
+            @Override
+            public int getBlockSize() {
+                return local.getBlockSize();
+            }
+
+            @Override
+            public long[] encrypt(long[] plaintexts) {
+                if (batches.incrementAndGet() == 3) {
+                    try {
+                        dying[0].close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return local.encrypt(plaintexts);
+            }
+
+            @Override
+            public long getNumberOfQueries() {
+                return local.getNumberOfQueries();
+            }
+        };
+        dying[0] = OracleServer.start(oracle, 0);
+        try (RemoteEncryptionOracle remote = new RemoteEncryptionOracle("localhost", dying[0].getPort(), 100)) {
+            Assertions.assertThrows(UncheckedIOException.class, () -> remote.encrypt(new long[1000]));
+            IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                    () -> remote.encrypt(new long[10]));
+            Assertions.assertTrue(e.getCause() instanceof IOException);
+            Assertions.assertEquals(0, remote.getNumberOfQueries());
+        } finally {
+            dying[0].close();
+        }
+    }
+}
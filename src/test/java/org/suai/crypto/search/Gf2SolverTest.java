@@ -0,0 +1,74 @@
+package org.suai.crypto.search;
+
+import org.apache.commons.math3.fraction.Fraction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.util.EquationElement;
+import org.suai.crypto.util.LinearApproximation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.suai.crypto.util.EquationElementType.*;
+
+class Gf2SolverTest {
+
+    private static LinearApproximation equation(Fraction probability, boolean constant, int... bits) {
+        List<EquationElement> left = Arrays.stream(bits)
+                .mapToObj(bit -> new EquationElement(bit, KEY))
+                .collect(Collectors.toList());
+        List<EquationElement> right = new ArrayList<>();
+        right.add(new EquationElement(constant ? ONE : ZERO));
+        return new LinearApproximation(left, right, probability);
+    }
+
+    @Test
+    void testWeakerContradictionIsReported() {
+        LinearApproximation weak = equation(new Fraction(5, 8), false, 1, 2, 3);
+        Gf2Solution solution = new Gf2Solver(4).solve(Arrays.asList(
+                weak,
+                equation(new Fraction(7, 8), true, 1, 2),
+                equation(new Fraction(1, 8), false, 3)));
+        Assertions.assertEquals(2, solution.getRank());
+        Assertions.assertEquals(4, solution.size());
+        Assertions.assertEquals(Arrays.asList(weak), solution.getConflicts());
+        // K(1) + K(2) = 1, K(3) = 0
+        PrimitiveIterator.OfLong keys = solution.iterator();
+        for (int i = 0; i < solution.size(); i++) {
+            long key = keys.nextLong();
+            Assertions.assertTrue(solution.satisfies(key));
+            Assertions.assertEquals(1, (key >>> 3 ^ key >>> 2) & 1);
+            Assertions.assertEquals(0, key >>> 1 & 1);
+        }
+    }
+
+    @Test
+    void testEnumeratesWholeKeySpaceByLikelihood() {
+        Gf2Solution solution = new Gf2Solver(5).solve(Arrays.asList(
+                equation(new Fraction(3, 4), false, 1, 4),
+                equation(new Fraction(9, 16), true, 2),
+                equation(new Fraction(1, 4), true, 3, 5)));
+        Set<Long> keys = new HashSet<>();
+        List<Integer> violatedWeights = new ArrayList<>();
+        PrimitiveIterator.OfLong iterator = solution.iterator();
+        while (iterator.hasNext()) {
+            long key = iterator.nextLong();
+            keys.add(key);
+            // The equation biases are 1/4, 1/16 and 1/4, so flipping the second one is cheapest
+            int violated = 0;
+            violated += (Long.bitCount(key & 0b10010) & 1) != 0 ? 4 : 0;
+            violated += (key >>> 3 & 1) != 1 ? 1 : 0;
+            violated += (Long.bitCount(key & 0b00101) & 1) != 1 ? 4 : 0;
+            violatedWeights.add(violated);
+        }
+        Assertions.assertEquals(32, keys.size());
+        for (int i = 1; i < violatedWeights.size(); i++) {
+            Assertions.assertTrue(violatedWeights.get(i - 1) <= violatedWeights.get(i));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.suai.crypto.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.CachingBlockCipher;
+import org.suai.crypto.spn.CodebookCache;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class KeySearchEngineTest {
+
+    private static final int[] S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+    private static final long KEY = 0xB7E1;
+
+    @Test
+    void testFullSearchFindsKeyWithoutCodebooks() {
+        CodebookCache cache = new CodebookCache(16);
+        CachingBlockCipher spn = new CachingBlockCipher(
+                new BitPackedSubstitutionPermutationNetwork(S_BOX, SpnSpec.of(16, 4, 4)), cache);
+        long[] plaintexts = {0x0000, 0x1234, 0xFFFF, 0xA5A5};
+        long[] ciphertexts = new long[plaintexts.length];
+        for (int i = 0; i < plaintexts.length; i++) {
+            ciphertexts[i] = spn.encrypt(plaintexts[i], spn.getSpec().expandKey(KEY));
+        }
+        KeySearchResult result = new KeySearchEngine()
+                .search(KeySpace.full(16), KeyVerifier.knownPairs(spn, plaintexts, ciphertexts), false);
+        Assertions.assertEquals(Collections.singletonList(KEY), result.getKeys());
+        Assertions.assertEquals(1 << 16, result.getKeysTested());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testSubKeysFixTheirBits() {
+        Map<Integer, Set<String>> subKeys = new HashMap<>();
+        subKeys.put(0, new HashSet<>(List.of("1011", "0001")));
+        subKeys.put(3, Collections.singleton("0001"));
+        List<KeySpace> spaces = KeySpace.fromSubKeys(SpnSpec.of(16, 4, 4), subKeys);
+        Assertions.assertEquals(2, spaces.size());
+        Set<Long> keys = new HashSet<>();
+        for (KeySpace space : spaces) {
+            Assertions.assertEquals(256, space.size());
+            for (long index = 0; index < space.size(); index++) {
+                long key = space.get(index);
+                Assertions.assertEquals(0x0001, key & 0x000F);
+                Assertions.assertTrue((key >>> 12) == 0xB || (key >>> 12) == 0x1);
+                keys.add(key);
+            }
+        }
+        Assertions.assertEquals(512, keys.size());
+        Assertions.assertTrue(keys.contains(KEY));
+    }
+}
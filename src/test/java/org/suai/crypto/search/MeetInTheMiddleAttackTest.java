@@ -0,0 +1,75 @@
+package org.suai.crypto.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.suai.crypto.spn.BitPackedSubstitutionPermutationNetwork;
+import org.suai.crypto.spn.SpnSpec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class MeetInTheMiddleAttackTest {
+
+    // Differentially 2-uniform, s-boxes with a linear structure admit many equivalent round keys
+    private static final int[] S_BOX = {0, 1, 2, 4, 3, 6, 7, 5};
+    private static final long[] ROUND_KEYS = {0b010011101, 0b110001011, 0b001110100, 0b101010111};
+
+    private BitPackedSubstitutionPermutationNetwork spn;
+    private long[] plaintexts;
+    private long[] ciphertexts;
+
+    @BeforeEach
+    void setUp() {
+        spn = new BitPackedSubstitutionPermutationNetwork(S_BOX, SpnSpec.DEFAULT);
+        plaintexts = new long[]{0, 1, 2, 4, 8, 16, 32, 64, 128, 256, 511, 0b101101101};
+        ciphertexts = new long[plaintexts.length];
+        for (int i = 0; i < plaintexts.length; i++) {
+            ciphertexts[i] = spn.encrypt(plaintexts[i], ROUND_KEYS);
+        }
+    }
+
+    @Test
+    void testKeyIsFoundInMemory() throws IOException {
+        MeetInTheMiddleResult result = new MeetInTheMiddleAttack(spn, 2).attack(plaintexts, ciphertexts);
+        Assertions.assertEquals(1, result.getPartitions());
+        Assertions.assertEquals(1, result.getKeys().size());
+        Assertions.assertArrayEquals(ROUND_KEYS, result.getKeys().get(0));
+    }
+
+    @Test
+    void testPartitionsOnDiskGiveTheSameKeys(@TempDir Path directory) throws IOException {
+        MeetInTheMiddleAttack attack = new MeetInTheMiddleAttack(spn, 2);
+        attack.setMaxTableEntries(1 << 14);
+        attack.setTemporaryDirectory(directory);
+        MeetInTheMiddleResult result = attack.attack(plaintexts, ciphertexts);
+        Assertions.assertEquals(32, result.getPartitions());
+        Assertions.assertTrue(result.getLargestTable() <= 1 << 14, result.toString());
+        Assertions.assertEquals(1, result.getKeys().size());
+        Assertions.assertArrayEquals(ROUND_KEYS, result.getKeys().get(0));
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertEquals(Collections.emptyList(), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testLargePartitionsAreSplitAgain(@TempDir Path directory) throws IOException {
+        // 2^18 forward guesses in tables of 64 need more than the 1024 partitions of one split
+        MeetInTheMiddleAttack attack = new MeetInTheMiddleAttack(spn, 2);
+        attack.setMaxTableEntries(64);
+        attack.setTemporaryDirectory(directory);
+        MeetInTheMiddleResult result = attack.attack(plaintexts, ciphertexts);
+        Assertions.assertTrue(result.getPartitions() > 1024, result.toString());
+        Assertions.assertTrue(result.getLargestTable() <= 64, result.toString());
+        Assertions.assertEquals(1, result.getKeys().size());
+        Assertions.assertArrayEquals(ROUND_KEYS, result.getKeys().get(0));
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertEquals(Collections.emptyList(), files.collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.suai.crypto.spn;
+
+import org.apache.commons.collections4.BidiMap;
+import org.apache.commons.collections4.bidimap.DualHashBidiMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.suai.crypto.util.BinaryString.valueOf;
+
+class BitPackedSubstitutionPermutationNetworkTest {
+
+    private SubstitutionPermutationNetwork reference;
+    private BitPackedSubstitutionPermutationNetwork spn;
+
+    @BeforeEach
+    void setUp() {
+        BidiMap<String, String> sBox = new DualHashBidiMap<>();
+        sBox.put("000", "110");
+        sBox.put("001", "000");
+        sBox.put("010", "101");
+        sBox.put("011", "001");
+        sBox.put("100", "111");
+        sBox.put("101", "011");
+        sBox.put("110", "100");
+        sBox.put("111", "010");
+        reference = new SubstitutionPermutationNetwork(sBox);
+        spn = new BitPackedSubstitutionPermutationNetwork(sBox);
+    }
+
+    @Test
+    void testEncryptMatchesStringNetwork() {
+        int[] keys = {0, 0b101010100, 0b110101001, 0b111111111};
+        for (int key : keys) {
+            for (int plaintext = 0; plaintext < 512; plaintext++) {
+                String expected = reference.encrypt(valueOf(plaintext, 9), valueOf(key, 9));
+                Assertions.assertEquals(Integer.parseInt(expected, 2), spn.encrypt(plaintext, key));
+            }
+        }
+    }
+
+    @Test
+    void testSuccessDecrypt() {
+        int key = 0b010011101;
+        for (int plaintext = 0; plaintext < 512; plaintext++) {
+            Assertions.assertEquals(plaintext, spn.decrypt(spn.encrypt(plaintext, key), key));
+        }
+        Assertions.assertEquals("101001111", spn.decrypt(spn.encrypt("101001111", "101010100"), "101010100"));
+    }
+
+    @Test
+    void testIndependentRoundKeysOnLargerNetwork() {
+        int[] sBox = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+        SpnSpec spec = SpnSpec.of(16, 4, 4);
+        BitPackedSubstitutionPermutationNetwork packed = new BitPackedSubstitutionPermutationNetwork(sBox, spec);
+        SubstitutionPermutationNetwork strings = new SubstitutionPermutationNetwork(packed.getSBox(), spec);
+        long[] roundKeys = {0x3A94, 0xA94D, 0x94D6, 0x4D63, 0xD63F};
+        for (long plaintext = 0; plaintext < 1 << 16; plaintext += 97) {
+            long ciphertext = packed.encrypt(plaintext, roundKeys);
+            Assertions.assertEquals(strings.encrypt(plaintext, roundKeys), ciphertext);
+            Assertions.assertEquals(plaintext, packed.decrypt(ciphertext, roundKeys));
+            for (int round = 1; round < spec.getNumberOfRounds(); round++) {
+                Assertions.assertEquals(packed.encryptRounds(plaintext, roundKeys, round),
+                        packed.decryptRounds(ciphertext, roundKeys, round));
+            }
+        }
+    }
+
+    @Test
+    void testSixtyFourBitBlock() {
+        int[] sBox = new int[256];
+        for (int i = 0; i < sBox.length; i++) {
+            sBox[i] = (i * 167 + 13) & 0xFF;
+        }
+        SpnSpec spec = SpnSpec.of(64, 5, 8);
+        BitPackedSubstitutionPermutationNetwork packed = new BitPackedSubstitutionPermutationNetwork(sBox, spec);
+        long[] roundKeys = {1L, -1L, 0x0123456789ABCDEFL, 0xFEDCBA9876543210L, 42L, Long.MIN_VALUE};
+        long plaintext = 0xDEADBEEFCAFEBABEL;
+        Assertions.assertEquals(plaintext, packed.decrypt(packed.encrypt(plaintext, roundKeys), roundKeys));
+    }
+
+    @Test
+    void testWideBlocksAsStrings() {
+        int[] sBox = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+        for (int blockSize : new int[]{32, 64}) {
+            SpnSpec spec = SpnSpec.of(blockSize, 4, 4);
+            BitPackedSubstitutionPermutationNetwork packed = new BitPackedSubstitutionPermutationNetwork(sBox, spec);
+            SubstitutionPermutationNetwork strings = new SubstitutionPermutationNetwork(packed.getSBox(), spec);
+            CachingBlockCipher caching = new CachingBlockCipher(packed, new CodebookCache(1));
+            // Top bits set, so they don't fit into a signed int or long
+            String plaintext = "1" + valueOf(0x5A5AL, blockSize - 1);
+            String key = "11" + valueOf(0x0F0FL, blockSize - 2);
+            String ciphertext = strings.encrypt(plaintext, key);
+            Assertions.assertEquals(ciphertext, packed.encrypt(plaintext, key));
+            Assertions.assertEquals(ciphertext, caching.encrypt(plaintext, key));
+            Assertions.assertEquals(plaintext, packed.decrypt(ciphertext, key));
+            Assertions.assertEquals(plaintext, caching.decrypt(ciphertext, key));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> packed.encrypt(1, 1));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> packed.decrypt(1, 1));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> caching.encrypt(1, 1));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> strings.encrypt(1, 1));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.suai.crypto.spn;
+
+import org.apache.commons.collections4.BidiMap;
+import org.apache.commons.collections4.bidimap.DualHashBidiMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class BitslicedSubstitutionPermutationNetworkTest {
+
+    private BitPackedSubstitutionPermutationNetwork reference;
+    private BitslicedSubstitutionPermutationNetwork spn;
+
+    @BeforeEach
+    void setUp() {
+        BidiMap<String, String> sBox = new DualHashBidiMap<>();
+        sBox.put("000", "111");
+        sBox.put("001", "110");
+        sBox.put("010", "011");
+        sBox.put("011", "010");
+        sBox.put("100", "000");
+        sBox.put("101", "001");
+        sBox.put("110", "101");
+        sBox.put("111", "100");
+        reference = new BitPackedSubstitutionPermutationNetwork(sBox);
+        spn = new BitslicedSubstitutionPermutationNetwork(sBox);
+    }
+
+    @Test
+    void testEncryptBatchUnderOneKey() {
+        int key = 0b110101001;
+        int[] plaintexts = new Random(7).ints(64, 0, 512).toArray();
+        int[] ciphertexts = spn.encrypt(plaintexts, key);
+        for (int i = 0; i < plaintexts.length; i++) {
+            Assertions.assertEquals(reference.encrypt(plaintexts[i], key), ciphertexts[i]);
+        }
+        Assertions.assertArrayEquals(plaintexts, spn.decrypt(ciphertexts, key));
+    }
+
+    @Test
+    void testEncryptUnderBatchOfKeys() {
+        int plaintext = 0b101001111;
+        int[] keys = new Random(11).ints(64, 0, 512).toArray();
+        int[] ciphertexts = spn.encryptUnderKeys(plaintext, keys);
+        for (int i = 0; i < keys.length; i++) {
+            Assertions.assertEquals(reference.encrypt(plaintext, keys[i]), ciphertexts[i]);
+        }
+    }
+
+    @Test
+    void testIndependentRoundKeysOnLargerNetwork() {
+        int[] sBox = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+        SpnSpec spec = SpnSpec.of(16, 4, 4);
+        BitPackedSubstitutionPermutationNetwork packed = new BitPackedSubstitutionPermutationNetwork(sBox, spec);
+        BitslicedSubstitutionPermutationNetwork sliced = new BitslicedSubstitutionPermutationNetwork(sBox, spec);
+        long[] roundKeys = {0x3A94, 0xA94D, 0x94D6, 0x4D63, 0xD63F};
+        long[][] roundKeyPlanes = new long[roundKeys.length][];
+        for (int i = 0; i < roundKeys.length; i++) {
+            roundKeyPlanes[i] = sliced.broadcast(roundKeys[i]);
+        }
+        long[] plaintexts = new Random(3).longs(64, 0, 1 << 16).toArray();
+        long[] ciphertextPlanes = sliced.encrypt(sliced.toPlanes(plaintexts), roundKeyPlanes);
+        long[] ciphertexts = sliced.fromLongPlanes(ciphertextPlanes, plaintexts.length);
+        for (int i = 0; i < plaintexts.length; i++) {
+            Assertions.assertEquals(packed.encrypt(plaintexts[i], roundKeys), ciphertexts[i]);
+        }
+        long[] decrypted = sliced.fromLongPlanes(sliced.decrypt(ciphertextPlanes, roundKeyPlanes), plaintexts.length);
+        Assertions.assertArrayEquals(plaintexts, decrypted);
+    }
+}
@@ -0,0 +1,45 @@
+package org.suai.crypto.spn;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CachingBlockCipherTest {
+
+    private static final int[] S_BOX = {0xE, 0x4, 0xD, 0x1, 0x2, 0xF, 0xB, 0x8, 0x3, 0xA, 0x6, 0xC, 0x5, 0x9, 0x0, 0x7};
+
+    @Test
+    void testCodebooksMatchCipher() {
+        BitPackedSubstitutionPermutationNetwork spn = new BitPackedSubstitutionPermutationNetwork(S_BOX, SpnSpec.of(16, 4, 4));
+        CodebookCache cache = new CodebookCache(2);
+        CachingBlockCipher caching = new CachingBlockCipher(spn, cache);
+        int[] keys = {0x3A94, 0xB7E1, 0x0F0F};
+        for (int key : keys) {
+            for (int plaintext = 0; plaintext < 1 << 16; plaintext += 61) {
+                int ciphertext = caching.encrypt(plaintext, key);
+                Assertions.assertEquals(spn.encrypt(plaintext, key), ciphertext);
+                Assertions.assertEquals(plaintext, caching.decrypt(ciphertext, key));
+            }
+        }
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(3, cache.getMisses());
+        // The first key was evicted, the last one is still there
+        caching.encrypt(0, keys[0]);
+        caching.encrypt(0, keys[2]);
+        Assertions.assertEquals(4, cache.getMisses());
+        Assertions.assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testWideBlocksSkipCodebooks() {
+        BitPackedSubstitutionPermutationNetwork spn = new BitPackedSubstitutionPermutationNetwork(S_BOX, SpnSpec.of(28, 3, 4));
+        CodebookCache cache = new CodebookCache(2);
+        CachingBlockCipher caching = new CachingBlockCipher(spn, cache);
+        int key = 0x0ABCDEF1;
+        for (int plaintext = 0; plaintext < 1 << 28; plaintext += 1_000_003) {
+            int ciphertext = caching.encrypt(plaintext, key);
+            Assertions.assertEquals(spn.encrypt(plaintext, key), ciphertext);
+            Assertions.assertEquals(plaintext, caching.decrypt(ciphertext, key));
+        }
+        Assertions.assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,44 @@
+package org.suai.crypto.util;
+
+import org.apache.commons.math3.fraction.Fraction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.suai.crypto.util.EquationElementType.*;
+
+class BitEquationTest {
+
+    @Test
+    void testRoundTripKeepsStandardForm() {
+        LinearApproximation approximation = new LinearApproximation(
+                Arrays.asList(new EquationElement(6, CIPHERTEXT), new EquationElement(2, PLAINTEXT)),
+                Arrays.asList(new EquationElement(4, KEY), new EquationElement(1, KEY), new EquationElement(ONE)),
+                new Fraction(3, 8));
+        BitEquation equation = BitEquation.of(approximation, 9, 3);
+        Assertions.assertEquals(0b010000000, equation.getPlaintextMask());
+        Assertions.assertEquals(0b000001000, equation.getCiphertextMask());
+        Assertions.assertEquals(0b100100000, equation.getKeyMask());
+        Assertions.assertEquals("X(2) + Y(6) = K(1) + K(4) + 1 p = 3 / 8", equation.toString());
+    }
+
+    @Test
+    void testXorCancelsIntermediateVariables() {
+        BitEquation first = BitEquation.of(new LinearApproximation(
+                Collections.singletonList(new EquationElement(1, 3, S_BOX_OUTPUT)),
+                Arrays.asList(new EquationElement(1, PLAINTEXT), new EquationElement(1, KEY)),
+                new Fraction(3, 4)), 3, 2);
+        BitEquation second = BitEquation.of(new LinearApproximation(
+                Arrays.asList(new EquationElement(3, CIPHERTEXT), new EquationElement(3, KEY)),
+                Collections.singletonList(new EquationElement(1, 3, S_BOX_OUTPUT)),
+                new Fraction(1, 4)), 3, 2);
+        Assertions.assertTrue(first.hasIntermediateVariables());
+        BitEquation sum = first.xor(second);
+        Assertions.assertFalse(sum.hasIntermediateVariables());
+        Assertions.assertEquals(0b101, sum.getKeyMask());
+        Assertions.assertEquals(new Fraction(3, 8), sum.getProbability());
+        Assertions.assertEquals("0 = 0 p = 17 / 32", sum.xor(sum).toString());
+    }
+}
@@ -0,0 +1,22 @@
+package org.suai.crypto.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LruCacheTest {
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        cache.computeIfAbsent(1, String::valueOf);
+        cache.computeIfAbsent(2, String::valueOf);
+        // Using 1 makes 2 the eldest entry
+        Assertions.assertEquals("1", cache.computeIfAbsent(1, key -> "other"));
+        cache.computeIfAbsent(3, String::valueOf);
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals("1", cache.get(1));
+        Assertions.assertNull(cache.get(2));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(3, cache.getMisses());
+    }
+}